@@ -30,10 +30,21 @@ java {
     }
 }
 
+// Classes that replace ones in main on Java 21+, packaged as a multi-release jar
+val java21: SourceSet by sourceSets.creating {
+    java.setSrcDirs(listOf("src/main/java21"))
+    compileClasspath += sourceSets.main.get().output
+}
+
 tasks.withType<JavaCompile>().configureEach {
     options.release = 17  // make sources compiled with --release flag
 }
 
+tasks.named<JavaCompile>("compileJava21Java") {
+    options.release = 21
+    options.compilerArgs.addAll(listOf("--add-modules", "jdk.incubator.vector"))
+}
+
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
     useJUnitPlatform()
@@ -44,10 +55,14 @@ tasks.named<Test>("test") {
 
 tasks.named<Jar>("jar") {
     archiveBaseName = rootProject.name
+    into("META-INF/versions/21") {
+        from(java21.output)
+    }
     manifest {
         attributes(
             mapOf(
-                "Implementation-Title" to rootProject.name, "Implementation-Version" to project.version
+                "Implementation-Title" to rootProject.name, "Implementation-Version" to project.version,
+                "Multi-Release" to "true"
             )
         )
     }
@@ -0,0 +1,106 @@
+package io.github.shimies.csv;
+
+/**
+ * An aggregate function computed over each group of records by {@link CsvAggregator}.
+ *
+ * <p>Numeric aggregates take a field as a {@code long} value if it is an integer within the range
+ * of {@code long}, or as a {@code double} value otherwise. A column missing in a record, or a blank
+ * field, is taken as no value and is ignored. A field that cannot be parsed as a number causes
+ * {@link NumberFormatException}. An aggregate over no value results in an empty field.
+ */
+public final class Aggregation {
+
+  enum Kind {
+    COUNT,
+    COUNT_DISTINCT,
+    SUM,
+    MIN,
+    MAX,
+    AVG
+  }
+
+  private final Kind kind;
+  private final int column;
+
+  private Aggregation(Kind kind, int column) {
+    if (column < 0) {
+      throw new IllegalArgumentException("Negative column: " + column);
+    }
+    this.kind = kind;
+    this.column = column;
+  }
+
+  /**
+   * Returns an aggregate of the number of records.
+   *
+   * @return an aggregate function
+   */
+  public static Aggregation count() {
+    return new Aggregation(Kind.COUNT, 0);
+  }
+
+  /**
+   * Returns an aggregate of the number of distinct fields in the column. Fields are distinguished
+   * as strings, and blank ones are counted as well.
+   *
+   * @param column the index of the column
+   * @return an aggregate function
+   */
+  public static Aggregation countDistinct(int column) {
+    return new Aggregation(Kind.COUNT_DISTINCT, column);
+  }
+
+  /**
+   * Returns an aggregate of the sum of values in the column. The sum is a {@code long} value as
+   * long as all values are, and falls back to a {@code double} value otherwise or on overflow.
+   *
+   * @param column the index of the column
+   * @return an aggregate function
+   */
+  public static Aggregation sum(int column) {
+    return new Aggregation(Kind.SUM, column);
+  }
+
+  /**
+   * Returns an aggregate of the minimum of values in the column.
+   *
+   * @param column the index of the column
+   * @return an aggregate function
+   */
+  public static Aggregation min(int column) {
+    return new Aggregation(Kind.MIN, column);
+  }
+
+  /**
+   * Returns an aggregate of the maximum of values in the column.
+   *
+   * @param column the index of the column
+   * @return an aggregate function
+   */
+  public static Aggregation max(int column) {
+    return new Aggregation(Kind.MAX, column);
+  }
+
+  /**
+   * Returns an aggregate of the arithmetic mean of values in the column as a {@code double} value.
+   *
+   * @param column the index of the column
+   * @return an aggregate function
+   */
+  public static Aggregation avg(int column) {
+    return new Aggregation(Kind.AVG, column);
+  }
+
+  Kind getKind() {
+    return kind;
+  }
+
+  int getColumn() {
+    return column;
+  }
+
+  @Override
+  public String toString() {
+    return kind == Kind.COUNT ? "COUNT" : kind + "(" + column + ")";
+  }
+}
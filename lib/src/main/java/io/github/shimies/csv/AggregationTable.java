@@ -0,0 +1,492 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Hash table of aggregates keyed by groups of records, for {@link CsvAggregator}.
+ *
+ * <p>Groups are numbered in the order added, and located by open addressing with linear probing on
+ * the hash of their keys, which are encoded by {@link RecordKeys}. The states of aggregates are
+ * held in primitive arrays indexed by group, so that each group costs a few dozen bytes besides its
+ * key. The heap occupied by the table is estimated as it grows, to tell when it has reached the
+ * memory budget. Once it has, neither a new group nor a new distinct value of a group in the table
+ * should be accumulated, as told by {@link #find(String, int)} and {@link #wouldGrow(int, List)},
+ * but spilled instead.
+ */
+final class AggregationTable {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final long BYTES_PER_GROUP = 56 + 4 + 8 + 8 + 8;
+  private static final long BYTES_PER_VALUE = 56 + 4 + 4 + 8 + 8;
+
+  private final int[] keyColumns;
+  private final List<Aggregation> aggregations;
+  private final Accumulator[] accumulators;
+  private final long memoryBudget;
+  private int[] slots;
+  private String[] keys;
+  private int[] hashes;
+  private long[] recordCounts;
+  private int groupCount;
+  private long estimatedBytes;
+
+  AggregationTable(int[] keyColumns, List<Aggregation> aggregations, long memoryBudget) {
+    this.keyColumns = keyColumns;
+    this.aggregations = aggregations;
+    this.accumulators = new Accumulator[aggregations.size()];
+    this.memoryBudget = memoryBudget;
+    clear();
+  }
+
+  /** Removes all groups, releasing the memory they occupy. */
+  void clear() {
+    slots = new int[INITIAL_CAPACITY * 2]; // group + 1, or 0 if empty
+    keys = new String[INITIAL_CAPACITY];
+    hashes = new int[INITIAL_CAPACITY];
+    recordCounts = new long[INITIAL_CAPACITY];
+    for (int i = 0; i < accumulators.length; i++) {
+      accumulators[i] = Accumulator.of(aggregations.get(i), INITIAL_CAPACITY);
+    }
+    groupCount = 0;
+    estimatedBytes = 0;
+  }
+
+  String keyOf(List<String> record) {
+    return RecordKeys.keyOf(record, keyColumns);
+  }
+
+  boolean isFull() {
+    return estimatedBytes >= memoryBudget;
+  }
+
+  int getGroupCount() {
+    return groupCount;
+  }
+
+  /** Returns the group of the key, or -1 if not found. */
+  int find(String key, int hash) {
+    int mask = slots.length - 1;
+    for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+      int group = slots[i] - 1;
+      if (hashes[group] == hash && keys[group].equals(key)) {
+        return group;
+      }
+    }
+    return -1;
+  }
+
+  /** Adds a group of the key, which must not be found in this table yet. */
+  int add(String key, int hash) {
+    if (groupCount == keys.length) {
+      grow();
+    }
+    int group = groupCount++;
+    keys[group] = key;
+    hashes[group] = hash;
+    int mask = slots.length - 1;
+    int i = hash & mask;
+    while (slots[i] != 0) {
+      i = (i + 1) & mask;
+    }
+    slots[i] = group + 1;
+    estimatedBytes += BYTES_PER_GROUP + 2L * key.length();
+    for (Accumulator accumulator : accumulators) {
+      estimatedBytes += accumulator.getBytesPerGroup();
+    }
+    return group;
+  }
+
+  /** Tells whether accumulating the record into the group would occupy more memory. */
+  boolean wouldGrow(int group, List<String> record) {
+    for (Accumulator accumulator : accumulators) {
+      if (accumulator.wouldGrow(group, record)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  void accumulate(int group, List<String> record) {
+    recordCounts[group]++;
+    for (Accumulator accumulator : accumulators) {
+      estimatedBytes += accumulator.accumulate(group, record);
+    }
+  }
+
+  /**
+   * Merges the aggregates of the groups of the other table, whose hashes satisfy the predicate,
+   * into this table.
+   */
+  void mergeFrom(AggregationTable other, IntPredicate hashFilter) {
+    int[] groupMapping = new int[other.groupCount];
+    for (int g = 0; g < other.groupCount; g++) {
+      if (!hashFilter.test(other.hashes[g])) {
+        groupMapping[g] = -1;
+        continue;
+      }
+      int group = find(other.keys[g], other.hashes[g]);
+      if (group < 0) {
+        group = add(other.keys[g], other.hashes[g]);
+      }
+      groupMapping[g] = group;
+      recordCounts[group] += other.recordCounts[g];
+    }
+    for (int i = 0; i < accumulators.length; i++) {
+      estimatedBytes += accumulators[i].mergeFrom(other.accumulators[i], groupMapping);
+    }
+  }
+
+  /** Writes the key fields followed by the aggregates of each group. */
+  void writeTo(RecordWriter writer) throws IOException {
+    for (int group = 0; group < groupCount; group++) {
+      List<String> record = new ArrayList<>(keyColumns.length + accumulators.length);
+      RecordKeys.addFieldsOf(keys[group], keyColumns.length, record);
+      for (Accumulator accumulator : accumulators) {
+        record.add(accumulator.getResult(group, recordCounts[group]));
+      }
+      writer.writeRecord(record);
+    }
+  }
+
+  private void grow() {
+    int capacity = keys.length * 2;
+    keys = Arrays.copyOf(keys, capacity);
+    hashes = Arrays.copyOf(hashes, capacity);
+    recordCounts = Arrays.copyOf(recordCounts, capacity);
+    for (Accumulator accumulator : accumulators) {
+      accumulator.grow(capacity);
+    }
+    // keep the load factor of slots at most 0.5
+    slots = new int[capacity * 2];
+    int mask = slots.length - 1;
+    for (int group = 0; group < groupCount; group++) {
+      int i = hashes[group] & mask;
+      while (slots[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      slots[i] = group + 1;
+    }
+  }
+
+  /** State of an aggregate of all groups. */
+  private abstract static class Accumulator {
+
+    static Accumulator of(Aggregation aggregation, int capacity) {
+      switch (aggregation.getKind()) {
+        case COUNT:
+          return new CountAccumulator();
+        case COUNT_DISTINCT:
+          return new DistinctAccumulator(aggregation.getColumn(), capacity);
+        default:
+          return new NumericAccumulator(aggregation.getKind(), aggregation.getColumn(), capacity);
+      }
+    }
+
+    abstract long getBytesPerGroup();
+
+    abstract void grow(int capacity);
+
+    /** Tells whether accumulating the record into the group would occupy more memory. */
+    boolean wouldGrow(int group, List<String> record) {
+      return false;
+    }
+
+    /** Accumulates the record into the group, and returns the number of bytes newly occupied. */
+    abstract long accumulate(int group, List<String> record);
+
+    /**
+     * Merges the other state of the same aggregate, where groups are mapped by the array or skipped
+     * if mapped to -1, and returns the number of bytes newly occupied.
+     */
+    abstract long mergeFrom(Accumulator other, int[] groupMapping);
+
+    abstract String getResult(int group, long recordCount);
+  }
+
+  private static final class CountAccumulator extends Accumulator {
+
+    @Override
+    long getBytesPerGroup() {
+      return 0;
+    }
+
+    @Override
+    void grow(int capacity) {}
+
+    @Override
+    long accumulate(int group, List<String> record) {
+      return 0;
+    }
+
+    @Override
+    long mergeFrom(Accumulator other, int[] groupMapping) {
+      return 0;
+    }
+
+    @Override
+    String getResult(int group, long recordCount) {
+      return Long.toString(recordCount);
+    }
+  }
+
+  /**
+   * State of numeric aggregates, where each group holds either a {@code long} or {@code double}
+   * value as told by its type, along with the number of values accumulated.
+   */
+  private static final class NumericAccumulator extends Accumulator {
+
+    private static final byte NONE = 0;
+    private static final byte LONG = 1;
+    private static final byte DOUBLE = 2;
+
+    private final Aggregation.Kind kind;
+    private final int column;
+    private byte[] types;
+    private long[] longs;
+    private double[] doubles;
+    private long[] counts;
+
+    NumericAccumulator(Aggregation.Kind kind, int column, int capacity) {
+      this.kind = kind;
+      this.column = column;
+      grow(capacity);
+    }
+
+    @Override
+    long getBytesPerGroup() {
+      return 1 + 8 + 8 + 8;
+    }
+
+    @Override
+    void grow(int capacity) {
+      types = types == null ? new byte[capacity] : Arrays.copyOf(types, capacity);
+      longs = longs == null ? new long[capacity] : Arrays.copyOf(longs, capacity);
+      doubles = doubles == null ? new double[capacity] : Arrays.copyOf(doubles, capacity);
+      counts = counts == null ? new long[capacity] : Arrays.copyOf(counts, capacity);
+    }
+
+    @Override
+    long accumulate(int group, List<String> record) {
+      if (column >= record.size() || record.get(column).isBlank()) {
+        return 0;
+      }
+      String field = record.get(column).strip();
+      if (isInteger(field)) {
+        try {
+          combine(group, LONG, Long.parseLong(field), 0, 1);
+          return 0;
+        } catch (NumberFormatException e) {
+          // out of the range of long
+        }
+      }
+      combine(group, DOUBLE, 0, Double.parseDouble(field), 1);
+      return 0;
+    }
+
+    @Override
+    long mergeFrom(Accumulator other, int[] groupMapping) {
+      NumericAccumulator that = (NumericAccumulator) other;
+      for (int g = 0; g < groupMapping.length; g++) {
+        if (groupMapping[g] >= 0 && that.types[g] != NONE) {
+          combine(groupMapping[g], that.types[g], that.longs[g], that.doubles[g], that.counts[g]);
+        }
+      }
+      return 0;
+    }
+
+    private void combine(int group, byte type, long longValue, double doubleValue, long count) {
+      counts[group] += count;
+      if (types[group] == NONE) {
+        types[group] = type;
+        longs[group] = longValue;
+        doubles[group] = doubleValue;
+        return;
+      }
+      if (kind == Aggregation.Kind.SUM || kind == Aggregation.Kind.AVG) {
+        if (types[group] == LONG && type == LONG) {
+          long sum = longs[group] + longValue;
+          // fall back to double on overflow, as told by the signs
+          if (((longs[group] ^ sum) & (longValue ^ sum)) >= 0) {
+            longs[group] = sum;
+            return;
+          }
+        }
+        doubles[group] = asDouble(types[group], longs[group], doubles[group]);
+        doubles[group] += asDouble(type, longValue, doubleValue);
+        types[group] = DOUBLE;
+        return;
+      }
+      int c;
+      if (types[group] == LONG && type == LONG) {
+        c = Long.compare(longValue, longs[group]);
+      } else {
+        c =
+            Double.compare(
+                asDouble(type, longValue, doubleValue),
+                asDouble(types[group], longs[group], doubles[group]));
+      }
+      if (kind == Aggregation.Kind.MIN ? c < 0 : c > 0) {
+        types[group] = type;
+        longs[group] = longValue;
+        doubles[group] = doubleValue;
+      }
+    }
+
+    @Override
+    String getResult(int group, long recordCount) {
+      if (types[group] == NONE) {
+        return "";
+      } else if (kind == Aggregation.Kind.AVG) {
+        double sum = asDouble(types[group], longs[group], doubles[group]);
+        return Double.toString(sum / counts[group]);
+      } else if (types[group] == LONG) {
+        return Long.toString(longs[group]);
+      }
+      return Double.toString(doubles[group]);
+    }
+
+    private static double asDouble(byte type, long longValue, double doubleValue) {
+      return type == LONG ? longValue : doubleValue;
+    }
+
+    private static boolean isInteger(String field) {
+      int start = field.startsWith("-") || field.startsWith("+") ? 1 : 0;
+      if (start == field.length()) {
+        return false;
+      }
+      for (int i = start; i < field.length(); i++) {
+        char c = field.charAt(i);
+        if (c < '0' || c > '9') {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * State of distinct counts, where distinct values of all groups are held in a single hash set of
+   * pairs of a group and a value.
+   */
+  private static final class DistinctAccumulator extends Accumulator {
+
+    private final int column;
+    private long[] distinctCounts;
+    private int[] slots = new int[INITIAL_CAPACITY * 2]; // entry + 1, or 0 if empty
+    private int[] entryGroups = new int[INITIAL_CAPACITY];
+    private String[] entryValues = new String[INITIAL_CAPACITY];
+    private int[] entryHashes = new int[INITIAL_CAPACITY];
+    private int entryCount = 0;
+
+    DistinctAccumulator(int column, int capacity) {
+      this.column = column;
+      this.distinctCounts = new long[capacity];
+    }
+
+    @Override
+    long getBytesPerGroup() {
+      return 8;
+    }
+
+    @Override
+    void grow(int capacity) {
+      distinctCounts = Arrays.copyOf(distinctCounts, capacity);
+    }
+
+    @Override
+    boolean wouldGrow(int group, List<String> record) {
+      if (column >= record.size()) {
+        return false;
+      }
+      String value = record.get(column);
+      int hash = hashOf(group, value);
+      return slots[indexOf(group, value, hash)] == 0;
+    }
+
+    @Override
+    long accumulate(int group, List<String> record) {
+      if (column >= record.size()) {
+        return 0;
+      }
+      return addIfAbsent(group, record.get(column));
+    }
+
+    @Override
+    long mergeFrom(Accumulator other, int[] groupMapping) {
+      DistinctAccumulator that = (DistinctAccumulator) other;
+      long bytes = 0;
+      for (int e = 0; e < that.entryCount; e++) {
+        int group = groupMapping[that.entryGroups[e]];
+        if (group >= 0) {
+          bytes += addIfAbsent(group, that.entryValues[e]);
+        }
+      }
+      return bytes;
+    }
+
+    private static int hashOf(int group, String value) {
+      return RecordKeys.hash(value) + group * 0x9e3779b9;
+    }
+
+    /** Returns the slot of the pair of the group and the value, or the empty slot to add it to. */
+    private int indexOf(int group, String value, int hash) {
+      int mask = slots.length - 1;
+      int i = hash & mask;
+      for (; slots[i] != 0; i = (i + 1) & mask) {
+        int e = slots[i] - 1;
+        if (entryHashes[e] == hash && entryGroups[e] == group && entryValues[e].equals(value)) {
+          return i;
+        }
+      }
+      return i;
+    }
+
+    private long addIfAbsent(int group, String value) {
+      int hash = hashOf(group, value);
+      int i = indexOf(group, value, hash);
+      if (slots[i] != 0) {
+        return 0;
+      }
+      if (entryCount == entryValues.length) {
+        growEntries();
+        int mask = slots.length - 1;
+        i = hash & mask;
+        while (slots[i] != 0) {
+          i = (i + 1) & mask;
+        }
+      }
+      int e = entryCount++;
+      entryGroups[e] = group;
+      entryValues[e] = value;
+      entryHashes[e] = hash;
+      slots[i] = e + 1;
+      distinctCounts[group]++;
+      return BYTES_PER_VALUE + 2L * value.length();
+    }
+
+    private void growEntries() {
+      int capacity = entryValues.length * 2;
+      entryGroups = Arrays.copyOf(entryGroups, capacity);
+      entryValues = Arrays.copyOf(entryValues, capacity);
+      entryHashes = Arrays.copyOf(entryHashes, capacity);
+      slots = new int[capacity * 2];
+      int mask = slots.length - 1;
+      for (int e = 0; e < entryCount; e++) {
+        int i = entryHashes[e] & mask;
+        while (slots[i] != 0) {
+          i = (i + 1) & mask;
+        }
+        slots[i] = e + 1;
+      }
+    }
+
+    @Override
+    String getResult(int group, long recordCount) {
+      return Long.toString(distinctCounts[group]);
+    }
+  }
+}
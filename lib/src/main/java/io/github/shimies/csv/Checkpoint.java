@@ -0,0 +1,99 @@
+package io.github.shimies.csv;
+
+import java.io.Serializable;
+
+/**
+ * A position in a CSV file at a boundary of records, taken by {@link
+ * CheckpointableRecordReader#checkpoint()}, from which a new reader resumes reading the same file.
+ *
+ * <p>Besides the byte offset of the next record, it holds what the reader needs to go on as if it
+ * had read the file from the beginning: the line number the record begins on, the number of records
+ * read before it, and the number of fields every record must have. A checkpoint is serializable, so
+ * that it can be stored to survive the process reading the file.
+ */
+public final class Checkpoint implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private final long byteOffset;
+  private final int lineNo;
+  private final long recordCount;
+  private final int fieldCount;
+
+  /**
+   * Constructs.
+   *
+   * @param byteOffset the offset of the first byte of the next record
+   * @param lineNo the line number the next record begins on
+   * @param recordCount the number of records read before the next record
+   * @param fieldCount the number of fields every record must have, or -1 if not fixed yet
+   * @throws IllegalArgumentException if any value is out of range
+   */
+  public Checkpoint(long byteOffset, int lineNo, long recordCount, int fieldCount) {
+    if (byteOffset < 0) {
+      throw new IllegalArgumentException("Negative byte offset: " + byteOffset);
+    }
+    if (lineNo < 1) {
+      throw new IllegalArgumentException("Non-positive line number: " + lineNo);
+    }
+    if (recordCount < 0) {
+      throw new IllegalArgumentException("Negative record count: " + recordCount);
+    }
+    if (fieldCount < -1) {
+      throw new IllegalArgumentException("Illegal field count: " + fieldCount);
+    }
+    this.byteOffset = byteOffset;
+    this.lineNo = lineNo;
+    this.recordCount = recordCount;
+    this.fieldCount = fieldCount;
+  }
+
+  /**
+   * Returns the offset of the first byte of the next record.
+   *
+   * @return the byte offset
+   */
+  public long getByteOffset() {
+    return byteOffset;
+  }
+
+  /**
+   * Returns the line number the next record begins on.
+   *
+   * @return the line number
+   */
+  public int getLineNumber() {
+    return lineNo;
+  }
+
+  /**
+   * Returns the number of records read before the next record.
+   *
+   * @return the number of records
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the number of fields every record must have.
+   *
+   * @return the number of fields, or -1 if not fixed yet
+   */
+  public int getFieldCount() {
+    return fieldCount;
+  }
+
+  @Override
+  public String toString() {
+    return "Checkpoint[byteOffset="
+        + byteOffset
+        + ", lineNo="
+        + lineNo
+        + ", recordCount="
+        + recordCount
+        + ", fieldCount="
+        + fieldCount
+        + ']';
+  }
+}
@@ -0,0 +1,29 @@
+package io.github.shimies.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@link RecordReader} of a CSV file that can take a {@link Checkpoint} between records, from
+ * which a new reader created by {@link CsvParser#newCheckpointableRecordReader(java.nio.file.Path,
+ * java.nio.charset.Charset, Checkpoint)} resumes reading the file, for example after the process
+ * reading it has crashed. It must be closed to close the file.
+ */
+public interface CheckpointableRecordReader extends RecordReader, Closeable {
+
+  /**
+   * Takes a checkpoint at the next record to read.
+   *
+   * @return the checkpoint
+   * @throws IllegalStateException if the last record failed to be read partway through
+   */
+  Checkpoint checkpoint();
+
+  /**
+   * Closes the file being read.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,337 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An aggregator of CSV records grouped by key columns, which streams records without holding them
+ * in memory.
+ *
+ * <p>Records are dispatched in batches to as many threads as the parallelism, each of which
+ * aggregates them into its own hash table, and the tables are merged at the end. Once a table
+ * reaches its share of the memory budget, records of groups not in the table, or with distinct
+ * values new to their groups in the table, are spilled into temporary files in 16 partitions by the
+ * hash of their keys. The groups in memory are then split by the same partitions, and each
+ * partition is aggregated along with the records spilled into it, spilling into finer partitions in
+ * turn if it does not fit either. Spilled records are written in RFC 4180, so that any field
+ * survives spilling as is.
+ *
+ * <p>Each result is a record of the key fields followed by the aggregates in the order specified.
+ * A key column missing in a record is taken as an empty field. Results come in no particular
+ * order. The memory budget is based on a rough estimate of the heap occupied by aggregates, and
+ * does not account for the records in batches or the buffers of the readers and writers in use.
+ * {@link CsvAggregator} is immutable, and can be used to aggregate multiple CSVs.
+ *
+ * @see Aggregation
+ */
+public class CsvAggregator {
+
+  private static final int BATCH_SIZE = 1024;
+  private static final List<List<String>> END_OF_BATCHES = new ArrayList<>();
+
+  private final int[] keyColumns;
+  private final List<Aggregation> aggregations;
+  private final long memoryBudget;
+  private final int parallelism;
+  private final Path tempDirectory;
+
+  /**
+   * Constructs with the default memory budget of 64 MiB, the parallelism of the number of
+   * available processors, and the default temporary-file directory.
+   *
+   * @param keyColumns the indexes of the key columns to group records by, or an empty array to
+   *     aggregate all records as a single group
+   * @param aggregations the aggregates to compute for each group
+   */
+  public CsvAggregator(int[] keyColumns, List<Aggregation> aggregations) {
+    this(
+        keyColumns,
+        aggregations,
+        OperatorSupport.DEFAULT_MEMORY_BUDGET,
+        Runtime.getRuntime().availableProcessors(),
+        null);
+  }
+
+  /**
+   * Constructs.
+   *
+   * @param keyColumns the indexes of the key columns to group records by, or an empty array to
+   *     aggregate all records as a single group
+   * @param aggregations the aggregates to compute for each group
+   * @param memoryBudget the approximate number of bytes of aggregates to hold in memory at once
+   * @param parallelism the number of threads to aggregate records with
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   */
+  public CsvAggregator(
+      int[] keyColumns,
+      List<Aggregation> aggregations,
+      long memoryBudget,
+      int parallelism,
+      Path tempDirectory) {
+    for (int column : keyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    if (aggregations.isEmpty()) {
+      throw new IllegalArgumentException("No aggregation specified");
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Non-positive memory budget: " + memoryBudget);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Non-positive parallelism: " + parallelism);
+    }
+    this.keyColumns = keyColumns.clone();
+    this.aggregations = List.copyOf(aggregations);
+    this.memoryBudget = memoryBudget;
+    this.parallelism = parallelism;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Aggregates all remaining records from the record reader.
+   *
+   * @param reader the record reader to read records from
+   * @return a {@link List} of results, each of which is a {@link List} of strings
+   * @throws IOException if an I/O error occurs
+   */
+  public List<List<String>> aggregate(RecordReader reader) throws IOException {
+    List<List<String>> results = new ArrayList<>();
+    aggregate(reader, results::add);
+    return results;
+  }
+
+  /**
+   * Aggregates all remaining records from the record reader into the record writer.
+   *
+   * @param reader the record reader to read records from
+   * @param writer the record writer to write results to
+   * @throws IOException if an I/O error occurs
+   */
+  public void aggregate(RecordReader reader, RecordWriter writer) throws IOException {
+    Objects.requireNonNull(writer);
+    List<PartitionedSpill> spills = new ArrayList<>();
+    try {
+      AggregationTable table =
+          parallelism == 1
+              ? aggregateSequentially(reader, spills)
+              : aggregateInParallel(reader, spills);
+      emit(table, spills, 0, writer);
+    } finally {
+      for (PartitionedSpill spill : spills) {
+        spill.delete();
+      }
+    }
+  }
+
+  private AggregationTable aggregateSequentially(RecordReader reader, List<PartitionedSpill> spills)
+      throws IOException {
+    AggregationTable table = new AggregationTable(keyColumns, aggregations, memoryBudget);
+    PartitionedSpill spill = new PartitionedSpill(tempDirectory, 0);
+    spills.add(spill);
+    try {
+      while (reader.hasMoreRecord()) {
+        accumulate(table, reader.readRecord(), spill);
+      }
+    } finally {
+      spill.close();
+    }
+    return table;
+  }
+
+  private AggregationTable aggregateInParallel(RecordReader reader, List<PartitionedSpill> spills)
+      throws IOException {
+    BlockingQueue<List<List<String>>> queue = new ArrayBlockingQueue<>(parallelism * 2);
+    AtomicBoolean hasFailed = new AtomicBoolean();
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    List<Future<AggregationTable>> futures = new ArrayList<>();
+    try {
+      for (int i = 0; i < parallelism; i++) {
+        PartitionedSpill spill = new PartitionedSpill(tempDirectory, 0);
+        spills.add(spill);
+        futures.add(executor.submit(() -> aggregateBatches(queue, spill, hasFailed)));
+      }
+      List<List<String>> batch = new ArrayList<>(BATCH_SIZE);
+      while (!hasFailed.get() && reader.hasMoreRecord()) {
+        batch.add(reader.readRecord());
+        if (batch.size() == BATCH_SIZE) {
+          put(queue, batch);
+          batch = new ArrayList<>(BATCH_SIZE);
+        }
+      }
+      if (!batch.isEmpty()) {
+        put(queue, batch);
+      }
+      for (int i = 0; i < parallelism; i++) {
+        put(queue, END_OF_BATCHES);
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      // interrupt the threads waiting for batches, and wait for them to close their spills
+      executor.shutdownNow();
+      awaitTermination(executor);
+      throw e;
+    } finally {
+      executor.shutdown();
+    }
+
+    // wait for all, so that no spill is still being written when the spills get deleted
+    AggregationTable merged = null;
+    Throwable failure = null;
+    for (Future<AggregationTable> future : futures) {
+      try {
+        AggregationTable table = future.get();
+        if (failure != null) {
+          continue;
+        } else if (merged == null) {
+          merged = table;
+        } else {
+          merged.mergeFrom(table, hash -> true);
+        }
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new InterruptedIOException("Interrupted while aggregating records");
+        }
+      }
+    }
+    if (failure != null) {
+      throw OperatorSupport.asIoException(failure);
+    }
+    return merged;
+  }
+
+  private AggregationTable aggregateBatches(
+      BlockingQueue<List<List<String>>> queue, PartitionedSpill spill, AtomicBoolean hasFailed)
+      throws Exception {
+    AggregationTable table =
+        new AggregationTable(keyColumns, aggregations, memoryBudget / parallelism);
+    Throwable failure = null;
+    try {
+      List<List<String>> batch;
+      while ((batch = queue.take()) != END_OF_BATCHES) {
+        if (failure != null) {
+          // keep taking batches, so that the reader never gets blocked
+          continue;
+        }
+        try {
+          for (List<String> record : batch) {
+            accumulate(table, record, spill);
+          }
+        } catch (IOException | RuntimeException | Error e) {
+          failure = e;
+          hasFailed.set(true);
+        }
+      }
+    } finally {
+      spill.close();
+    }
+    if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw (Exception) failure;
+    }
+    return table;
+  }
+
+  /**
+   * Writes the results of the table, unless any record has been spilled. Otherwise, splits the
+   * table into partitions, clearing the table, and aggregates each partition along with the records
+   * spilled into it.
+   */
+  private void emit(
+      AggregationTable table, List<PartitionedSpill> spills, int level, RecordWriter writer)
+      throws IOException {
+    if (spills.stream().allMatch(PartitionedSpill::isEmpty)) {
+      table.writeTo(writer);
+      return;
+    }
+    AggregationTable[] partitions = new AggregationTable[PartitionedSpill.PARTITION_COUNT];
+    for (int p = 0; p < partitions.length; p++) {
+      int partition = p;
+      partitions[p] = new AggregationTable(keyColumns, aggregations, memoryBudget);
+      partitions[p].mergeFrom(
+          table, hash -> PartitionedSpill.partitionOf(hash, level) == partition);
+    }
+    // the partitions hold all groups of the table from now on
+    table.clear();
+    for (int p = 0; p < partitions.length; p++) {
+      // beyond the max level, partitions are aggregated in memory whatever the budget
+      PartitionedSpill spill =
+          level + 1 < PartitionedSpill.MAX_LEVEL
+              ? new PartitionedSpill(tempDirectory, level + 1)
+              : null;
+      try {
+        for (PartitionedSpill spilled : spills) {
+          try (InputStream in = spilled.open(p)) {
+            RecordReader reader = PartitionedSpill.newRecordReader(in);
+            while (reader.hasMoreRecord()) {
+              accumulate(partitions[p], reader.readRecord(), spill);
+            }
+          }
+        }
+        if (spill != null) {
+          spill.close();
+        }
+        emit(partitions[p], spill == null ? List.of() : List.of(spill), level + 1, writer);
+      } finally {
+        partitions[p] = null;
+        if (spill != null) {
+          spill.delete();
+        }
+      }
+    }
+  }
+
+  private static void accumulate(
+      AggregationTable table, List<String> record, PartitionedSpill spill) throws IOException {
+    String key = table.keyOf(record);
+    int hash = RecordKeys.hash(key);
+    int group = table.find(key, hash);
+    if (spill != null && table.isFull() && (group < 0 || table.wouldGrow(group, record))) {
+      // aggregated later into the same group, which goes to the same partition as the record
+      spill.write(hash, record);
+      return;
+    }
+    if (group < 0) {
+      group = table.add(key, hash);
+    }
+    table.accumulate(group, record);
+  }
+
+  private static void put(BlockingQueue<List<List<String>>> queue, List<List<String>> batch)
+      throws InterruptedIOException {
+    try {
+      queue.put(batch);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while dispatching records");
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
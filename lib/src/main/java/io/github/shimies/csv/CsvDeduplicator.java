@@ -0,0 +1,193 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * A deduplicator of CSV records, which drops records whose keys have already been seen.
+ *
+ * <p>Keys seen are held as 64-bit fingerprints in an open-addressing table of primitives, which
+ * costs 16 to 32 bytes per key. Two different keys may then share a fingerprint by chance, which is
+ * unlikely but drops a record by mistake. In the exact mode, keys are held along with their
+ * fingerprints to tell them apart, which costs as much memory as the keys themselves.
+ *
+ * <p>Records are streamed through in order, until the keys seen reach the memory budget. From then
+ * on, records of keys not seen yet are spilled into temporary files in 16 partitions by their
+ * fingerprints, each of which is deduplicated in turn after all records have been read,
+ * partitioning further if it does not fit either. The first record of each key is kept in any
+ * case, but records spilled come after all others. {@link CsvDeduplicator} is immutable, and can be
+ * used to deduplicate multiple CSVs.
+ */
+public class CsvDeduplicator {
+
+  private final int[] keyColumns;
+  private final boolean isExact;
+  private final long memoryBudget;
+  private final Path tempDirectory;
+
+  /**
+   * Constructs in the mode of fingerprints only, with the default memory budget of 64 MiB and the
+   * default temporary-file directory.
+   *
+   * @param keyColumns the indexes of the key columns, or an empty array to take whole records as
+   *     keys
+   */
+  public CsvDeduplicator(int[] keyColumns) {
+    this(keyColumns, false, OperatorSupport.DEFAULT_MEMORY_BUDGET, null);
+  }
+
+  /**
+   * Constructs.
+   *
+   * @param keyColumns the indexes of the key columns, or an empty array to take whole records as
+   *     keys
+   * @param isExact whether to verify keys sharing a fingerprint, holding keys in memory
+   * @param memoryBudget the approximate number of bytes of keys seen to hold in memory at once
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   */
+  public CsvDeduplicator(int[] keyColumns, boolean isExact, long memoryBudget, Path tempDirectory) {
+    for (int column : keyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Non-positive memory budget: " + memoryBudget);
+    }
+    this.keyColumns = keyColumns.clone();
+    this.isExact = isExact;
+    this.memoryBudget = memoryBudget;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Deduplicates all remaining records from the record reader into the record writer.
+   *
+   * @param reader the record reader to read records from
+   * @param writer the record writer to write records kept to
+   * @return the number of records dropped
+   * @throws IOException if an I/O error occurs
+   */
+  public long deduplicate(RecordReader reader, RecordWriter writer) throws IOException {
+    return deduplicate(reader, writer, 0);
+  }
+
+  private long deduplicate(RecordReader reader, RecordWriter writer, int level) throws IOException {
+    FingerprintSet seen = new FingerprintSet(isExact);
+    PartitionedSpill spill = null;
+    long dropCount = 0;
+    try {
+      while (reader.hasMoreRecord()) {
+        List<String> record = reader.readRecord();
+        String key =
+            keyColumns.length == 0 ? RecordKeys.pack(record) : RecordKeys.keyOf(record, keyColumns);
+        long fingerprint = RecordKeys.fingerprint(key);
+        if (seen.contains(fingerprint, key)) {
+          dropCount++;
+        } else if (seen.isFull(memoryBudget) && level < PartitionedSpill.MAX_LEVEL) {
+          if (spill == null) {
+            spill = new PartitionedSpill(tempDirectory, level);
+          }
+          spill.write((int) (fingerprint ^ (fingerprint >>> 32)), record);
+        } else {
+          seen.add(fingerprint, key);
+          writer.writeRecord(record);
+        }
+      }
+      if (spill == null) {
+        return dropCount;
+      }
+      seen = null;
+      spill.close();
+      for (int p = 0; p < PartitionedSpill.PARTITION_COUNT; p++) {
+        try (InputStream in = spill.open(p)) {
+          dropCount += deduplicate(PartitionedSpill.newRecordReader(in), writer, level + 1);
+        }
+      }
+      return dropCount;
+    } finally {
+      if (spill != null) {
+        spill.delete();
+      }
+    }
+  }
+
+  /**
+   * Set of fingerprints by open addressing with linear probing, where 0 marks an empty slot. In the
+   * exact mode, keys are held in the slots of their fingerprints as well.
+   */
+  private static final class FingerprintSet {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private String[] keys;
+    private int size = 0;
+    private long estimatedBytes;
+
+    FingerprintSet(boolean isExact) {
+      this.keys = isExact ? new String[INITIAL_CAPACITY] : null;
+      this.estimatedBytes = bytesOfSlots(INITIAL_CAPACITY);
+    }
+
+    boolean isFull(long memoryBudget) {
+      // hold at least one key, so that partitions of a single key never get spilled
+      return size > 0 && estimatedBytes >= memoryBudget;
+    }
+
+    boolean contains(long fingerprint, String key) {
+      int mask = fingerprints.length - 1;
+      for (int i = (int) fingerprint & mask; fingerprints[i] != 0; i = (i + 1) & mask) {
+        if (fingerprints[i] == fingerprint && (keys == null || keys[i].equals(key))) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /** Adds the fingerprint of the key, which must not be contained yet. */
+    void add(long fingerprint, String key) {
+      // keep the load factor at most 0.5
+      if (size * 2 >= fingerprints.length) {
+        grow();
+      }
+      insert(fingerprint, key);
+      size++;
+      if (keys != null) {
+        estimatedBytes += 56 + 2L * key.length();
+      }
+    }
+
+    private void insert(long fingerprint, String key) {
+      int mask = fingerprints.length - 1;
+      int i = (int) fingerprint & mask;
+      while (fingerprints[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      fingerprints[i] = fingerprint;
+      if (keys != null) {
+        keys[i] = key;
+      }
+    }
+
+    private void grow() {
+      long[] oldFingerprints = fingerprints;
+      String[] oldKeys = keys;
+      fingerprints = new long[oldFingerprints.length * 2];
+      keys = oldKeys == null ? null : new String[fingerprints.length];
+      for (int i = 0; i < oldFingerprints.length; i++) {
+        if (oldFingerprints[i] != 0) {
+          insert(oldFingerprints[i], oldKeys == null ? null : oldKeys[i]);
+        }
+      }
+      estimatedBytes += bytesOfSlots(fingerprints.length) - bytesOfSlots(oldFingerprints.length);
+    }
+
+    private long bytesOfSlots(int capacity) {
+      return (keys == null ? 8L : 16L) * capacity;
+    }
+  }
+}
@@ -0,0 +1,373 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A differ of two CSVs, which finds records added, removed and changed from an old CSV to a new
+ * CSV, either by key columns or by position.
+ *
+ * <p>Without key columns, records are compared by position, the first with the first and so on,
+ * streaming both CSVs at once. With key columns, records of the same key are compared. If both CSVs
+ * are sorted by the key columns, they are merged in a single pass with memory for a record of each.
+ * Otherwise, records of the old CSV are held in a hash table by their keys, through which records
+ * of the new CSV are streamed. If the old CSV exceeds the memory budget, both CSVs are partitioned
+ * into temporary files in 16 partitions by the hash of their keys, and pairs of partitions are
+ * compared in parallel, each within its share of the budget, partitioning further if they do not
+ * fit either.
+ *
+ * <p>Keys are compared as strings, and a key column missing in a record is taken as an empty field.
+ * Sorted CSVs must be in strictly ascending lexicographic order of the key columns, compared from
+ * the first one. Keys must be unique in each CSV, and duplicate keys found are reported as {@link
+ * IllegalArgumentException}, as are keys out of order in sorted CSVs. Unless sorted, only keys of
+ * the new CSV that match old records are tracked, so that memory is bounded by the old CSV alone,
+ * hence a key duplicated among records only in the new CSV is not detected, and each of the
+ * records is reported as added.
+ *
+ * <p>Differences are reported in order of records when compared by position or merged. Otherwise,
+ * they come in no particular order, and the handler may be called from multiple threads, though
+ * only by one at a time. {@link CsvDiffer} is immutable, and can be used to compare multiple pairs
+ * of CSVs.
+ */
+public class CsvDiffer {
+
+  private final int[] keyColumns;
+  private final boolean isSorted;
+  private final long memoryBudget;
+  private final int parallelism;
+  private final Path tempDirectory;
+
+  /**
+   * Constructs for CSVs not sorted, with the default memory budget of 64 MiB, the parallelism of
+   * the number of available processors, and the default temporary-file directory.
+   *
+   * @param keyColumns the indexes of the key columns, or an empty array to compare records by
+   *     position
+   */
+  public CsvDiffer(int[] keyColumns) {
+    this(
+        keyColumns,
+        false,
+        OperatorSupport.DEFAULT_MEMORY_BUDGET,
+        Runtime.getRuntime().availableProcessors(),
+        null);
+  }
+
+  /**
+   * Constructs.
+   *
+   * @param keyColumns the indexes of the key columns, or an empty array to compare records by
+   *     position
+   * @param isSorted whether both CSVs are sorted by the key columns
+   * @param memoryBudget the approximate number of bytes of old records to hold in memory at once
+   * @param parallelism the number of threads to compare partitions with
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   */
+  public CsvDiffer(
+      int[] keyColumns, boolean isSorted, long memoryBudget, int parallelism, Path tempDirectory) {
+    for (int column : keyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Non-positive memory budget: " + memoryBudget);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Non-positive parallelism: " + parallelism);
+    }
+    this.keyColumns = keyColumns.clone();
+    this.isSorted = isSorted;
+    this.memoryBudget = memoryBudget;
+    this.parallelism = parallelism;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Compares all remaining records from the record readers, reporting differences to the handler.
+   *
+   * @param oldReader the record reader to read records of the old CSV from
+   * @param newReader the record reader to read records of the new CSV from
+   * @param handler the handler to report differences to
+   * @return the number of differences reported
+   * @throws IOException if an I/O error occurs
+   */
+  public long diff(RecordReader oldReader, RecordReader newReader, DiffHandler handler)
+      throws IOException {
+    Objects.requireNonNull(handler);
+    if (keyColumns.length == 0) {
+      return diffByPosition(oldReader, newReader, handler);
+    } else if (isSorted) {
+      return diffSorted(oldReader, newReader, handler);
+    }
+    return diffHashed(oldReader, newReader, handler, memoryBudget, 0);
+  }
+
+  private long diffByPosition(RecordReader oldReader, RecordReader newReader, DiffHandler handler)
+      throws IOException {
+    long diffCount = 0;
+    while (oldReader.hasMoreRecord() || newReader.hasMoreRecord()) {
+      RecordDiff diff;
+      if (!newReader.hasMoreRecord()) {
+        diff = RecordDiff.removed(oldReader.readRecord());
+      } else if (!oldReader.hasMoreRecord()) {
+        diff = RecordDiff.added(newReader.readRecord());
+      } else {
+        diff = RecordDiff.changed(oldReader.readRecord(), newReader.readRecord());
+      }
+      if (diff != null) {
+        handler.handle(diff);
+        diffCount++;
+      }
+    }
+    return diffCount;
+  }
+
+  private long diffSorted(RecordReader oldReader, RecordReader newReader, DiffHandler handler)
+      throws IOException {
+    long diffCount = 0;
+    List<String> oldRecord = nextSorted(oldReader, null);
+    List<String> newRecord = nextSorted(newReader, null);
+    while (oldRecord != null || newRecord != null) {
+      int c = oldRecord == null ? 1 : newRecord == null ? -1 : compareKeys(oldRecord, newRecord);
+      RecordDiff diff;
+      if (c < 0) {
+        diff = RecordDiff.removed(oldRecord);
+        oldRecord = nextSorted(oldReader, oldRecord);
+      } else if (c > 0) {
+        diff = RecordDiff.added(newRecord);
+        newRecord = nextSorted(newReader, newRecord);
+      } else {
+        diff = RecordDiff.changed(oldRecord, newRecord);
+        oldRecord = nextSorted(oldReader, oldRecord);
+        newRecord = nextSorted(newReader, newRecord);
+      }
+      if (diff != null) {
+        handler.handle(diff);
+        diffCount++;
+      }
+    }
+    return diffCount;
+  }
+
+  /** Reads the next record, which must have a greater key than the previous one. */
+  private List<String> nextSorted(RecordReader reader, List<String> previous) throws IOException {
+    if (!reader.hasMoreRecord()) {
+      return null;
+    }
+    List<String> record = reader.readRecord();
+    if (previous != null) {
+      int c = compareKeys(previous, record);
+      if (c == 0) {
+        throw new IllegalArgumentException("Duplicate key: " + keyFieldsOf(record));
+      } else if (c > 0) {
+        throw new IllegalArgumentException("Key out of order: " + keyFieldsOf(record));
+      }
+    }
+    return record;
+  }
+
+  private int compareKeys(List<String> left, List<String> right) {
+    for (int column : keyColumns) {
+      int c =
+          OperatorSupport.getFieldOrEmpty(left, column)
+              .compareTo(OperatorSupport.getFieldOrEmpty(right, column));
+      if (c != 0) {
+        return c;
+      }
+    }
+    return 0;
+  }
+
+  private List<String> keyFieldsOf(List<String> record) {
+    List<String> fields = new ArrayList<>(keyColumns.length);
+    for (int column : keyColumns) {
+      fields.add(OperatorSupport.getFieldOrEmpty(record, column));
+    }
+    return fields;
+  }
+
+  /**
+   * Compares the records through a hash table of the old records, partitioning both CSVs if the old
+   * records exceed the budget, which is a share of the memory budget for partitions compared in
+   * parallel.
+   */
+  private long diffHashed(
+      RecordReader oldReader, RecordReader newReader, DiffHandler handler, long budget, int level)
+      throws IOException {
+    Map<String, List<String>> oldRecords = new HashMap<>();
+    long estimatedBytes = 0;
+    while (oldReader.hasMoreRecord()) {
+      List<String> record = oldReader.readRecord();
+      // beyond the max level, partitions are compared in memory whatever the budget
+      if (estimatedBytes >= budget && level < PartitionedSpill.MAX_LEVEL) {
+        return diffPartitioned(oldRecords, record, oldReader, newReader, handler, budget, level);
+      }
+      String key = RecordKeys.keyOf(record, keyColumns);
+      if (oldRecords.putIfAbsent(key, record) != null) {
+        throw new IllegalArgumentException("Duplicate key: " + keyFieldsOf(record));
+      }
+      estimatedBytes += estimateSize(key, record);
+    }
+    long diffCount = 0;
+    while (newReader.hasMoreRecord()) {
+      List<String> record = newReader.readRecord();
+      String key = RecordKeys.keyOf(record, keyColumns);
+      // matched keys are left mapped to null, so that duplicates among them are found, whereas
+      // keys only in the new CSV are not tracked, so that the table stays within the budget
+      List<String> oldRecord = null;
+      if (oldRecords.containsKey(key)) {
+        oldRecord = oldRecords.put(key, null);
+        if (oldRecord == null) {
+          throw new IllegalArgumentException("Duplicate key: " + keyFieldsOf(record));
+        }
+      }
+      RecordDiff diff =
+          oldRecord == null ? RecordDiff.added(record) : RecordDiff.changed(oldRecord, record);
+      if (diff != null) {
+        handler.handle(diff);
+        diffCount++;
+      }
+    }
+    for (List<String> oldRecord : oldRecords.values()) {
+      if (oldRecord != null) {
+        handler.handle(RecordDiff.removed(oldRecord));
+        diffCount++;
+      }
+    }
+    return diffCount;
+  }
+
+  private static long estimateSize(String key, List<String> record) {
+    // entry of the map and the key, besides the record
+    return 24 + 2L * key.length() + OperatorSupport.estimateHeapSize(record);
+  }
+
+  /** Partitions all records of both CSVs, and compares each pair of partitions. */
+  private long diffPartitioned(
+      Map<String, List<String>> oldRecords,
+      List<String> pending,
+      RecordReader oldReader,
+      RecordReader newReader,
+      DiffHandler handler,
+      long budget,
+      int level)
+      throws IOException {
+    PartitionedSpill oldSpill = new PartitionedSpill(tempDirectory, level);
+    PartitionedSpill newSpill = new PartitionedSpill(tempDirectory, level);
+    try {
+      try {
+        for (Map.Entry<String, List<String>> entry : oldRecords.entrySet()) {
+          oldSpill.write(RecordKeys.hash(entry.getKey()), entry.getValue());
+        }
+        oldRecords.clear();
+        spill(oldSpill, pending);
+        while (oldReader.hasMoreRecord()) {
+          spill(oldSpill, oldReader.readRecord());
+        }
+        while (newReader.hasMoreRecord()) {
+          spill(newSpill, newReader.readRecord());
+        }
+      } finally {
+        oldSpill.close();
+        newSpill.close();
+      }
+      if (level == 0 && parallelism > 1) {
+        return diffPartitionsInParallel(oldSpill, newSpill, handler, budget);
+      }
+      long diffCount = 0;
+      for (int p = 0; p < PartitionedSpill.PARTITION_COUNT; p++) {
+        diffCount += diffPartition(oldSpill, newSpill, p, handler, budget, level);
+      }
+      return diffCount;
+    } finally {
+      oldSpill.delete();
+      newSpill.delete();
+    }
+  }
+
+  private long diffPartitionsInParallel(
+      PartitionedSpill oldSpill, PartitionedSpill newSpill, DiffHandler handler, long budget)
+      throws IOException {
+    // partitions compared at once share the budget, so that it bounds the memory of all of them
+    int threadCount = Math.min(parallelism, PartitionedSpill.PARTITION_COUNT);
+    long partitionBudget = Math.max(1, budget / threadCount);
+    Object lock = new Object();
+    DiffHandler serialHandler =
+        diff -> {
+          synchronized (lock) {
+            handler.handle(diff);
+          }
+        };
+    ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    List<Future<Long>> futures = new ArrayList<>();
+    try {
+      for (int p = 0; p < PartitionedSpill.PARTITION_COUNT; p++) {
+        int partition = p;
+        futures.add(
+            executor.submit(
+                () ->
+                    diffPartition(
+                        oldSpill, newSpill, partition, serialHandler, partitionBudget, 0)));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    // wait for all partitions, so that none is still being read when the spills get deleted
+    long diffCount = 0;
+    Throwable failure = null;
+    for (Future<Long> future : futures) {
+      try {
+        diffCount += future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new InterruptedIOException("Interrupted while comparing partitions");
+        }
+      }
+    }
+    if (failure != null) {
+      throw OperatorSupport.asIoException(failure);
+    }
+    return diffCount;
+  }
+
+  private long diffPartition(
+      PartitionedSpill oldSpill,
+      PartitionedSpill newSpill,
+      int partition,
+      DiffHandler handler,
+      long budget,
+      int level)
+      throws IOException {
+    try (InputStream oldIn = oldSpill.open(partition);
+        InputStream newIn = newSpill.open(partition)) {
+      return diffHashed(
+          PartitionedSpill.newRecordReader(oldIn),
+          PartitionedSpill.newRecordReader(newIn),
+          handler,
+          budget,
+          level + 1);
+    }
+  }
+
+  private void spill(PartitionedSpill spill, List<String> record) throws IOException {
+    spill.write(RecordKeys.hash(RecordKeys.keyOf(record, keyColumns)), record);
+  }
+}
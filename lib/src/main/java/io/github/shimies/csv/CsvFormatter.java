@@ -28,6 +28,57 @@ public interface CsvFormatter {
    */
   RecordWriter newRecordWriter(Writer writer) throws IOException;
 
+  /**
+   * Creates a new {@link TypedRecordWriter} for writing CSV records field by field into the
+   * specified writer.
+   *
+   * <p>The default implementation collects the fields of each record into a list, written through
+   * {@link #newRecordWriter(Writer)}. Implementations may override this to format fields straight
+   * into the output.
+   *
+   * @param writer the {@link Writer} to write records to
+   * @return an instance of {@link TypedRecordWriter}
+   * @throws IOException if an {@link IOException} occurs
+   */
+  default TypedRecordWriter newTypedRecordWriter(Writer writer) throws IOException {
+    return new TypedRecordWriterImpl(newRecordWriter(writer));
+  }
+
+  /**
+   * Creates a new {@link ObjectWriter} for writing objects serialized by the serializer into the
+   * specified writer.
+   *
+   * <p>The default implementation writes the fields of each object through {@link
+   * #newRecordWriter(Writer)}. Implementations may override this to format typed columns straight
+   * into the output.
+   *
+   * @param <T> the type of objects to write
+   * @param writer the {@link Writer} to write records to
+   * @param serializer the serializer of objects to records
+   * @return an instance of {@link ObjectWriter}
+   * @throws IOException if an {@link IOException} occurs
+   */
+  default <T> ObjectWriter<T> newObjectWriter(Writer writer, RecordSerializer<T> serializer)
+      throws IOException {
+    return new ObjectWriterImpl<>(newRecordWriter(writer), serializer);
+  }
+
+  /**
+   * Creates a new {@link ReusableRecordWriter}, which writes records into a writer given by {@link
+   * ReusableRecordWriter#reset(Writer)} each time, for formatting many small CSVs one after
+   * another.
+   *
+   * <p>The default implementation creates a new {@link RecordWriter} by {@link
+   * #newRecordWriter(Writer)} on each reset. Implementations may override this to reuse the
+   * buffers of the writer.
+   *
+   * @return an instance of {@link ReusableRecordWriter}
+   * @throws IOException if an {@link IOException} occurs
+   */
+  default ReusableRecordWriter newReusableRecordWriter() throws IOException {
+    return new ReusableRecordWriterImpl(this);
+  }
+
   /**
    * Formats and writes all records to a file at the specified path and charset.
    *
@@ -27,5 +27,28 @@ public class CsvFormatters {
     return new CsvFormatterRfc4180(delimiter, newline.toString(), allowRecordEndWithEmptyField);
   }
 
+  /**
+   * Returns a CSV formatter for RFC 4180 with custom settings, quoting fields by the policy.
+   * Fields in the safe columns, which the caller knows never contain the delimiter, a double quote,
+   * CR or LF, are written without being scanned for them, nor for lone surrogates.
+   *
+   * @param delimiter the field delimiter character
+   * @param newline the newline type
+   * @param allowRecordEndWithEmptyField whether to allow records ending with an empty field
+   * @param quotingPolicy the policy of which fields to quote
+   * @param safeColumns the indices of columns known to need no escape
+   * @return an instance of {@link CsvFormatter}
+   * @throws IllegalArgumentException if any column index is negative
+   */
+  public static CsvFormatter ofRfc4180(
+      int delimiter,
+      Newline newline,
+      boolean allowRecordEndWithEmptyField,
+      QuotingPolicy quotingPolicy,
+      int... safeColumns) {
+    return new CsvFormatterRfc4180(
+        delimiter, newline.toString(), allowRecordEndWithEmptyField, quotingPolicy, safeColumns);
+  }
+
   private CsvFormatters() {}
 }
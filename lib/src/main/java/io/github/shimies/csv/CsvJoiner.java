@@ -0,0 +1,388 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * A joiner of two CSVs by key columns, by hash join.
+ *
+ * <p>Records of the build side are packed into a compact hash table by their keys, through which
+ * records of the other side are streamed. If the build side exceeds the memory budget, both sides
+ * are partitioned into temporary files in 16 partitions by the hash of their keys, and each pair of
+ * partitions is joined in turn, partitioning further if it does not fit either.
+ *
+ * <p>Each result is a record of the fields of the left record followed by those of the right
+ * record. Keys are compared as strings, and a key column missing in a record is taken as an empty
+ * field. When the right side is the build side and fits in memory, results come in the order of
+ * the left records, and matches of each left record in the order of the right records. Otherwise,
+ * results come in no particular order. {@link CsvJoiner} is immutable, and can be used to join
+ * multiple CSVs.
+ */
+public class CsvJoiner {
+
+  /** Type of join. */
+  public enum JoinType {
+    /** Joins each left record with each right record of the same key. */
+    INNER,
+
+    /**
+     * Joins as {@link #INNER}, and also results in each left record without any right record of the
+     * same key, followed by as many empty fields as the first right record has.
+     */
+    LEFT,
+
+    /** Results in each left record without any right record of the same key, as is. */
+    ANTI
+  }
+
+  private final CsvParser parser;
+  private final CsvFormatter formatter;
+  private final JoinType joinType;
+  private final int[] leftKeyColumns;
+  private final int[] rightKeyColumns;
+  private final long memoryBudget;
+  private final Path tempDirectory;
+
+  /**
+   * Constructs with the default memory budget of 64 MiB and the default temporary-file directory.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write output CSVs with
+   * @param joinType the type of join
+   * @param leftKeyColumns the indexes of the key columns of the left records
+   * @param rightKeyColumns the indexes of the key columns of the right records, as many as of the
+   *     left records
+   */
+  public CsvJoiner(
+      CsvParser parser,
+      CsvFormatter formatter,
+      JoinType joinType,
+      int[] leftKeyColumns,
+      int[] rightKeyColumns) {
+    this(
+        parser,
+        formatter,
+        joinType,
+        leftKeyColumns,
+        rightKeyColumns,
+        OperatorSupport.DEFAULT_MEMORY_BUDGET,
+        null);
+  }
+
+  /**
+   * Constructs.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write output CSVs with
+   * @param joinType the type of join
+   * @param leftKeyColumns the indexes of the key columns of the left records
+   * @param rightKeyColumns the indexes of the key columns of the right records, as many as of the
+   *     left records
+   * @param memoryBudget the approximate number of bytes of build records to hold in memory at once
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   */
+  public CsvJoiner(
+      CsvParser parser,
+      CsvFormatter formatter,
+      JoinType joinType,
+      int[] leftKeyColumns,
+      int[] rightKeyColumns,
+      long memoryBudget,
+      Path tempDirectory) {
+    if (leftKeyColumns.length == 0 || leftKeyColumns.length != rightKeyColumns.length) {
+      throw new IllegalArgumentException(
+          "Key columns mismatched in number: "
+              + leftKeyColumns.length
+              + " and "
+              + rightKeyColumns.length);
+    }
+    for (int column : leftKeyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    for (int column : rightKeyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Non-positive memory budget: " + memoryBudget);
+    }
+    this.parser = Objects.requireNonNull(parser);
+    this.formatter = Objects.requireNonNull(formatter);
+    this.joinType = Objects.requireNonNull(joinType);
+    this.leftKeyColumns = leftKeyColumns.clone();
+    this.rightKeyColumns = rightKeyColumns.clone();
+    this.memoryBudget = memoryBudget;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Joins two CSV files into another file in the specified charset. The smaller file is the build
+   * side.
+   *
+   * @param left the {@link Path} to the left CSV file
+   * @param right the {@link Path} to the right CSV file
+   * @param output the {@link Path} to the output CSV file, which must differ from the inputs
+   * @param cs the {@link Charset} of all files
+   * @throws IOException if an I/O error occurs
+   */
+  public void join(Path left, Path right, Path output, Charset cs) throws IOException {
+    try (InputStream leftIn = Files.newInputStream(left);
+        InputStream rightIn = Files.newInputStream(right);
+        Writer writer = Files.newBufferedWriter(output, cs)) {
+      RecordReader leftReader = parser.newRecordReader(leftIn, cs);
+      RecordReader rightReader = parser.newRecordReader(rightIn, cs);
+      RecordWriter recordWriter = formatter.newRecordWriter(writer);
+      if (Files.size(left) < Files.size(right)) {
+        new Join(true, recordWriter).run(leftReader, rightReader, 0);
+      } else {
+        new Join(false, recordWriter).run(rightReader, leftReader, 0);
+      }
+    }
+  }
+
+  /**
+   * Joins all remaining records from the record readers into the record writer. The right side is
+   * the build side, which is expected to be the smaller one.
+   *
+   * @param left the record reader to read left records from
+   * @param right the record reader to read right records from
+   * @param writer the record writer to write results to
+   * @throws IOException if an I/O error occurs
+   */
+  public void join(RecordReader left, RecordReader right, RecordWriter writer) throws IOException {
+    new Join(false, Objects.requireNonNull(writer)).run(right, left, 0);
+  }
+
+  /** State of a join, where records of the build side are probed by those of the other side. */
+  private final class Join {
+
+    private final boolean isBuildLeft;
+    private final int[] buildKeyColumns;
+    private final int[] probeKeyColumns;
+    private final RecordWriter writer;
+    private List<String> rightPadding = null;
+
+    Join(boolean isBuildLeft, RecordWriter writer) {
+      this.isBuildLeft = isBuildLeft;
+      this.buildKeyColumns = isBuildLeft ? leftKeyColumns : rightKeyColumns;
+      this.probeKeyColumns = isBuildLeft ? rightKeyColumns : leftKeyColumns;
+      this.writer = writer;
+    }
+
+    void run(RecordReader build, RecordReader probe, int level) throws IOException {
+      BuildTable table = new BuildTable();
+      while (build.hasMoreRecord()) {
+        List<String> record = build.readRecord();
+        noteRightRecord(record, !isBuildLeft);
+        String key = RecordKeys.keyOf(record, buildKeyColumns);
+        // beyond the max level, partitions are joined in memory whatever the budget
+        if (table.estimatedBytes >= memoryBudget && level < PartitionedSpill.MAX_LEVEL) {
+          runPartitioned(table, record, build, probe, level);
+          return;
+        }
+        table.add(key, RecordKeys.hash(key), record);
+      }
+      while (probe.hasMoreRecord()) {
+        List<String> record = probe.readRecord();
+        noteRightRecord(record, isBuildLeft);
+        probe(table, record);
+      }
+      if (isBuildLeft && joinType != JoinType.INNER) {
+        int r = table.matched.nextClearBit(0);
+        while (r < table.recordCount) {
+          List<String> left = table.getRecord(r);
+          writer.writeRecord(joinType == JoinType.LEFT ? concat(left, rightPadding) : left);
+          r = table.matched.nextClearBit(r + 1);
+        }
+      }
+    }
+
+    private void probe(BuildTable table, List<String> record) throws IOException {
+      String key = RecordKeys.keyOf(record, probeKeyColumns);
+      int k = table.find(key, RecordKeys.hash(key));
+      if (isBuildLeft) {
+        for (int r = k < 0 ? -1 : table.heads[k]; r >= 0; r = table.next[r]) {
+          table.matched.set(r);
+          if (joinType != JoinType.ANTI) {
+            writer.writeRecord(concat(table.getRecord(r), record));
+          }
+        }
+      } else if (k < 0) {
+        if (joinType == JoinType.LEFT) {
+          writer.writeRecord(concat(record, rightPadding));
+        } else if (joinType == JoinType.ANTI) {
+          writer.writeRecord(record);
+        }
+      } else if (joinType != JoinType.ANTI) {
+        for (int r = table.heads[k]; r >= 0; r = table.next[r]) {
+          writer.writeRecord(concat(record, table.getRecord(r)));
+        }
+      }
+    }
+
+    /** Partitions all records of both sides, and joins each pair of partitions. */
+    private void runPartitioned(
+        BuildTable table, List<String> pending, RecordReader build, RecordReader probe, int level)
+        throws IOException {
+      PartitionedSpill buildSpill = new PartitionedSpill(tempDirectory, level);
+      PartitionedSpill probeSpill = new PartitionedSpill(tempDirectory, level);
+      try {
+        try {
+          for (int r = 0; r < table.recordCount; r++) {
+            spill(buildSpill, table.getRecord(r), buildKeyColumns);
+          }
+          spill(buildSpill, pending, buildKeyColumns);
+          while (build.hasMoreRecord()) {
+            List<String> record = build.readRecord();
+            noteRightRecord(record, !isBuildLeft);
+            spill(buildSpill, record, buildKeyColumns);
+          }
+          while (probe.hasMoreRecord()) {
+            List<String> record = probe.readRecord();
+            noteRightRecord(record, isBuildLeft);
+            spill(probeSpill, record, probeKeyColumns);
+          }
+        } finally {
+          buildSpill.close();
+          probeSpill.close();
+        }
+        for (int p = 0; p < PartitionedSpill.PARTITION_COUNT; p++) {
+          try (InputStream buildIn = buildSpill.open(p);
+              InputStream probeIn = probeSpill.open(p)) {
+            run(
+                PartitionedSpill.newRecordReader(buildIn),
+                PartitionedSpill.newRecordReader(probeIn),
+                level + 1);
+          }
+        }
+      } finally {
+        buildSpill.delete();
+        probeSpill.delete();
+      }
+    }
+
+    private void spill(PartitionedSpill spill, List<String> record, int[] keyColumns)
+        throws IOException {
+      spill.write(RecordKeys.hash(RecordKeys.keyOf(record, keyColumns)), record);
+    }
+
+    private void noteRightRecord(List<String> record, boolean isRight) {
+      // all right records are read before any left record needs padding
+      if (isRight && rightPadding == null) {
+        rightPadding = Collections.nCopies(record.size(), "");
+      }
+    }
+
+    private List<String> concat(List<String> left, List<String> right) {
+      List<String> joined = new ArrayList<>(left.size() + (right == null ? 0 : right.size()));
+      joined.addAll(left);
+      if (right != null) {
+        joined.addAll(right);
+      }
+      return joined;
+    }
+  }
+
+  /**
+   * Hash table of build records by key, where records with the same key are chained in the order
+   * added. Keys are located by open addressing with linear probing, and records are packed into
+   * single strings by {@link RecordKeys}.
+   */
+  private static final class BuildTable {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final long BYTES_PER_KEY = 56 + 8 + 4 + 4 + 4 + 8;
+    private static final long BYTES_PER_RECORD = 56 + 8 + 4;
+
+    private int[] slots = new int[INITIAL_CAPACITY * 2]; // key + 1, or 0 if empty
+    private String[] keys = new String[INITIAL_CAPACITY];
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] heads = new int[INITIAL_CAPACITY];
+    private int[] tails = new int[INITIAL_CAPACITY];
+    private int keyCount = 0;
+    private String[] records = new String[INITIAL_CAPACITY];
+    private int[] next = new int[INITIAL_CAPACITY];
+    private int recordCount = 0;
+    private final BitSet matched = new BitSet();
+    private long estimatedBytes = 0;
+
+    /** Returns the key, or -1 if not found. */
+    int find(String key, int hash) {
+      int mask = slots.length - 1;
+      for (int i = hash & mask; slots[i] != 0; i = (i + 1) & mask) {
+        int k = slots[i] - 1;
+        if (hashes[k] == hash && keys[k].equals(key)) {
+          return k;
+        }
+      }
+      return -1;
+    }
+
+    void add(String key, int hash, List<String> record) {
+      if (recordCount == records.length) {
+        records = Arrays.copyOf(records, recordCount * 2);
+        next = Arrays.copyOf(next, recordCount * 2);
+      }
+      int r = recordCount++;
+      records[r] = RecordKeys.pack(record);
+      next[r] = -1;
+      estimatedBytes += BYTES_PER_RECORD + 2L * records[r].length();
+      int k = find(key, hash);
+      if (k >= 0) {
+        next[tails[k]] = r;
+        tails[k] = r;
+        return;
+      }
+      if (keyCount == keys.length) {
+        grow();
+      }
+      k = keyCount++;
+      keys[k] = key;
+      hashes[k] = hash;
+      heads[k] = r;
+      tails[k] = r;
+      insert(k);
+      estimatedBytes += BYTES_PER_KEY + 2L * key.length();
+    }
+
+    List<String> getRecord(int r) {
+      return RecordKeys.unpack(records[r]);
+    }
+
+    private void grow() {
+      int capacity = keys.length * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+      heads = Arrays.copyOf(heads, capacity);
+      tails = Arrays.copyOf(tails, capacity);
+      // keep the load factor of slots at most 0.5
+      slots = new int[capacity * 2];
+      for (int k = 0; k < keyCount; k++) {
+        insert(k);
+      }
+    }
+
+    private void insert(int k) {
+      int mask = slots.length - 1;
+      int i = hashes[k] & mask;
+      while (slots[i] != 0) {
+        i = (i + 1) & mask;
+      }
+      slots[i] = k + 1;
+    }
+  }
+}
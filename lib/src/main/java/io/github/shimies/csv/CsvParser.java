@@ -1,12 +1,18 @@
 package io.github.shimies.csv;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.StringReader;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A CSV parser that parses textually-represented CSVs to corresponding data represented by Java
@@ -28,6 +34,105 @@ public interface CsvParser {
    */
   RecordReader newRecordReader(Reader reader) throws IOException;
 
+  /**
+   * Creates a new {@link RecordReader} for reading CSV records from the specified input stream,
+   * decoding bytes in the specified charset. Malformed or unmappable byte sequences are reported as
+   * {@link java.nio.charset.CharacterCodingException}.
+   *
+   * <p>The default implementation decodes bytes through {@link InputStreamReader}. Implementations
+   * may override this to scan bytes directly.
+   *
+   * @param in the input stream to read records from
+   * @param cs the charset to decode bytes in
+   * @return an instance of {@link RecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  default RecordReader newRecordReader(InputStream in, Charset cs) throws IOException {
+    return newRecordReader(new InputStreamReader(in, cs.newDecoder()));
+  }
+
+  /**
+   * Creates a new {@link NamedRecordReader} for reading CSV records from the specified reader,
+   * taking the first record as the header. Every record must have as many fields as the header,
+   * even if this parser allows records to have different number of fields from one another.
+   *
+   * <p>The default implementation decorates {@link #newRecordReader(Reader)}. Implementations may
+   * override this to validate widths of records against the header as they are parsed.
+   *
+   * @param reader the reader to read records from
+   * @return an instance of {@link NamedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  default NamedRecordReader newNamedRecordReader(Reader reader) throws IOException {
+    return NamedRecordReader.of(newRecordReader(reader));
+  }
+
+  /**
+   * Creates a new {@link NamedRecordReader} for reading CSV records from the specified input
+   * stream, decoding bytes in the specified charset, and taking the first record as the header.
+   *
+   * @param in the input stream to read records from
+   * @param cs the charset to decode bytes in
+   * @return an instance of {@link NamedRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @see #newNamedRecordReader(Reader)
+   */
+  default NamedRecordReader newNamedRecordReader(InputStream in, Charset cs) throws IOException {
+    return NamedRecordReader.of(newRecordReader(in, cs));
+  }
+
+  /**
+   * Reads all records from the specified reader as objects of the record class or the bean class,
+   * taking the first record as the header and binding the rest by {@link RecordBinder}.
+   *
+   * @param <T> the type of objects to bind records to
+   * @param reader the reader to read records from
+   * @param type the record class or the bean class
+   * @return a list of objects bound from the records
+   * @throws IOException if an I/O error occurs
+   * @see RecordBinder#of(Class, Header)
+   */
+  default <T> List<T> readAs(Reader reader, Class<T> type) throws IOException {
+    NamedRecordReader records = newNamedRecordReader(reader);
+    RecordBinder<T> binder = RecordBinder.of(type, records.getHeader());
+    List<T> objects = new ArrayList<>();
+    while (records.hasMoreRecord()) {
+      objects.add(binder.bind(records.readRecord()));
+    }
+    return Collections.unmodifiableList(objects);
+  }
+
+  /**
+   * Creates a new {@link RecordReader} for reading CSV records leniently from the specified reader.
+   * Malformed records are reported to the handler instead of thrown as {@link ParserException}, and
+   * the reader resumes from the next record.
+   *
+   * @param reader the reader to read records from
+   * @param handler the handler to report malformed records to
+   * @return an instance of {@link RecordReader}
+   * @throws IOException if an I/O error occurs
+   * @throws UnsupportedOperationException if this parser cannot recover from malformed records
+   */
+  default RecordReader newRecordReader(Reader reader, MalformedRecordHandler handler)
+      throws IOException {
+    throw new UnsupportedOperationException("Recovering from malformed records is not supported");
+  }
+
+  /**
+   * Creates a new {@link ReusableRecordReader}, which reads records from a reader given by {@link
+   * ReusableRecordReader#reset(Reader)} each time, for parsing many small CSVs one after another.
+   *
+   * <p>The default implementation creates a new {@link RecordReader} by {@link
+   * #newRecordReader(Reader)} on each reset. Implementations may override this to reuse the
+   * buffers of the reader.
+   *
+   * @return an instance of {@link ReusableRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  default ReusableRecordReader newReusableRecordReader() throws IOException {
+    return new ReusableRecordReaderImpl(this);
+  }
+
   /**
    * Parses a CSV file at the specified path and charset.
    *
@@ -42,6 +147,143 @@ public interface CsvParser {
     }
   }
 
+  /**
+   * Parses a CSV file at the specified path and charset leniently.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param handler the handler to report malformed records to
+   * @return a list of well-formed records parsed from the file
+   * @throws IOException if an I/O error occurs
+   * @see #newRecordReader(Reader, MalformedRecordHandler)
+   */
+  default List<List<String>> parseFile(Path path, Charset cs, MalformedRecordHandler handler)
+      throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, cs)) {
+      return newRecordReader(reader, handler).readAllRecords();
+    }
+  }
+
+  /**
+   * Counts records of a CSV file at the specified path and charset, validating them as {@link
+   * #parseFile(Path, Charset)} does. The first malformed record is thrown as {@link
+   * ParserException}, so that this also serves as a check of validity.
+   *
+   * <p>The default implementation parses the file. Implementations may override this to validate
+   * records without creating their fields.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return the number of records in the file
+   * @throws IOException if an I/O error occurs
+   */
+  default long countRecords(Path path, Charset cs) throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, cs)) {
+      return count(newRecordReader(reader));
+    }
+  }
+
+  /**
+   * Validates records of a CSV file at the specified path and charset, reporting all malformed
+   * records to the handler as {@link #parseFile(Path, Charset, MalformedRecordHandler)} does.
+   *
+   * <p>The default implementation parses the file. Implementations may override this to validate
+   * records without creating their fields.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param handler the handler to report malformed records to
+   * @return the number of well-formed records in the file
+   * @throws IOException if an I/O error occurs
+   * @see #countRecords(Path, Charset)
+   */
+  default long validate(Path path, Charset cs, MalformedRecordHandler handler)
+      throws IOException {
+    try (Reader reader = Files.newBufferedReader(path, cs)) {
+      return count(newRecordReader(reader, handler));
+    }
+  }
+
+  /**
+   * Creates a new {@link CheckpointableRecordReader} for reading CSV records from the beginning of
+   * a file at the specified path and charset, which can take checkpoints between records.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return an instance of {@link CheckpointableRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @throws UnsupportedOperationException if this parser cannot take checkpoints in the charset
+   */
+  default CheckpointableRecordReader newCheckpointableRecordReader(Path path, Charset cs)
+      throws IOException {
+    throw new UnsupportedOperationException("Checkpoints are not supported");
+  }
+
+  /**
+   * Creates a new {@link CheckpointableRecordReader} for reading CSV records from a file at the
+   * specified path and charset, resuming from a checkpoint taken by a reader of the same file. The
+   * file must not have been changed before the checkpoint since it was taken.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param checkpoint the checkpoint to resume from
+   * @return an instance of {@link CheckpointableRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @throws UnsupportedOperationException if this parser cannot take checkpoints in the charset
+   */
+  default CheckpointableRecordReader newCheckpointableRecordReader(
+      Path path, Charset cs, Checkpoint checkpoint) throws IOException {
+    throw new UnsupportedOperationException("Checkpoints are not supported");
+  }
+
+  private static long count(RecordReader reader) throws IOException {
+    long count = 0;
+    while (reader.hasMoreRecord()) {
+      reader.readRecord();
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Creates a new {@link SourcedRecordReader} for reading CSV records from the specified files as
+   * one merged sequence, telling the file and the line each record comes from.
+   *
+   * <p>Records are read in order of files and of records in each file if ordered, otherwise in any
+   * order in which they are parsed. The default implementation reads the files one after another in
+   * order, without line numbers. Implementations may override this to parse files concurrently.
+   *
+   * @param paths the {@link Path}s to the input CSV files
+   * @param cs the {@link Charset} to use
+   * @param isOrdered whether to read records in order of files and of records in each file
+   * @return an instance of {@link SourcedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  default SourcedRecordReader newSourcedRecordReader(
+      List<Path> paths, Charset cs, boolean isOrdered) throws IOException {
+    return new SourcedRecordReaderImpl(this, paths, cs);
+  }
+
+  /**
+   * Creates a new {@link SourcedRecordReader} for reading CSV records from the regular files in the
+   * specified directory, in order of their names if ordered, except those in its subdirectories.
+   *
+   * @param directory the {@link Path} to the directory of the input CSV files
+   * @param cs the {@link Charset} to use
+   * @param isOrdered whether to read records in order of files and of records in each file
+   * @return an instance of {@link SourcedRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @see #newSourcedRecordReader(List, Charset, boolean)
+   */
+  default SourcedRecordReader newSourcedRecordReader(Path directory, Charset cs, boolean isOrdered)
+      throws IOException {
+    List<Path> paths;
+    try (Stream<Path> files = Files.list(directory)) {
+      paths = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+    }
+    return newSourcedRecordReader(paths, cs, isOrdered);
+  }
+
   /**
    * Parses a CSV string.
    *
@@ -54,4 +296,20 @@ public interface CsvParser {
       return newRecordReader(reader).readAllRecords();
     }
   }
+
+  /**
+   * Parses a CSV string leniently.
+   *
+   * @param csv the CSV string to parse
+   * @param handler the handler to report malformed records to
+   * @return a list of well-formed records parsed from the string
+   * @throws IOException if an I/O error occurs
+   * @see #newRecordReader(Reader, MalformedRecordHandler)
+   */
+  default List<List<String>> parseString(String csv, MalformedRecordHandler handler)
+      throws IOException {
+    try (Reader reader = new StringReader(csv)) {
+      return newRecordReader(reader, handler).readAllRecords();
+    }
+  }
 }
@@ -5,6 +5,14 @@ import io.github.shimies.csv.impl.CsvParserRfc4180;
 /** Factory for creating {@link CsvParser} instances. */
 public class CsvParsers {
 
+  // parsers are immutable, so the ones in common use are shared along with their prepared tables
+  private static final CsvParser STRICT = new CsvParserRfc4180(',', false, false, false, false);
+  private static final CsvParser STRICT_STRIPPED =
+      new CsvParserRfc4180(',', true, false, false, false);
+  private static final CsvParser VARIADIC = new CsvParserRfc4180(',', false, false, true, false);
+  private static final CsvParser VARIADIC_STRIPPED =
+      new CsvParserRfc4180(',', true, false, true, false);
+
   /**
    * Returns a strict RFC 4180 CSV parser.
    *
@@ -12,7 +20,7 @@ public class CsvParsers {
    * @return an instance of {@link CsvParser}
    */
   public static CsvParser ofStrictRfc4180(boolean stripFields) {
-    return new CsvParserRfc4180(',', stripFields, false, false, false);
+    return stripFields ? STRICT_STRIPPED : STRICT;
   }
 
   /**
@@ -22,7 +30,7 @@ public class CsvParsers {
    * @return an instance of {@link CsvParser}
    */
   public static CsvParser ofStrictRfc4180ForVariadicFields(boolean stripFields) {
-    return new CsvParserRfc4180(',', stripFields, false, true, false);
+    return stripFields ? VARIADIC_STRIPPED : VARIADIC;
   }
 
   /**
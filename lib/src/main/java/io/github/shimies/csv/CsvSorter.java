@@ -0,0 +1,348 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A sorter of CSV records that may not fit in memory, by external merge sort.
+ *
+ * <p>Records are read into chunks within the memory budget, and each chunk is sorted and spilled
+ * into a temporary file as a sorted run, in parallel with reading the next chunk. The runs are then
+ * merged by a k-way merge with a heap into the output. If all records fit in a single chunk, they
+ * are sorted in memory without any temporary file. Runs are written in RFC 4180, so that any field,
+ * including ones with newlines, survives spilling as is. Keys of comparators by {@link
+ * RecordComparators} are extracted once per record as it is read, so that a malformed key is
+ * reported at the record, and keys are not parsed again on every comparison.
+ *
+ * <p>The sort is stable: records that compare equal keep the order in which they are read. The
+ * memory budget is based on a rough estimate of the heap occupied by records, and does not account
+ * for the buffers of the readers and writers in use. {@link CsvSorter} is immutable, and can be
+ * used to sort multiple CSVs.
+ *
+ * @see RecordComparators
+ */
+public class CsvSorter {
+
+  private static final int MAX_MERGE_WIDTH = 64;
+  private static final long ENTRY_SIZE = 32; // entry with its key
+  private static final CsvParser RUN_PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final CsvFormatter RUN_FORMATTER = CsvFormatters.ofRfc4180();
+
+  private final CsvParser parser;
+  private final CsvFormatter formatter;
+  private final Comparator<? super List<String>> comparator;
+  private final RecordComparators.KeyedComparator keyedComparator;
+  private final Comparator<Entry> entryComparator;
+  private final long memoryBudget;
+  private final int parallelism;
+  private final Path tempDirectory;
+
+  /**
+   * Constructs with the default memory budget of 64 MiB, the parallelism of the number of
+   * available processors, and the default temporary-file directory.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write output CSVs with
+   * @param comparator the comparator of records to sort by
+   */
+  public CsvSorter(
+      CsvParser parser, CsvFormatter formatter, Comparator<? super List<String>> comparator) {
+    this(
+        parser,
+        formatter,
+        comparator,
+        OperatorSupport.DEFAULT_MEMORY_BUDGET,
+        Runtime.getRuntime().availableProcessors(),
+        null);
+  }
+
+  /**
+   * Constructs.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write output CSVs with
+   * @param comparator the comparator of records to sort by
+   * @param memoryBudget the approximate number of bytes of records to hold in memory at once
+   * @param parallelism the number of threads to sort and spill runs with
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   */
+  public CsvSorter(
+      CsvParser parser,
+      CsvFormatter formatter,
+      Comparator<? super List<String>> comparator,
+      long memoryBudget,
+      int parallelism,
+      Path tempDirectory) {
+    if (memoryBudget <= 0) {
+      throw new IllegalArgumentException("Non-positive memory budget: " + memoryBudget);
+    }
+    if (parallelism <= 0) {
+      throw new IllegalArgumentException("Non-positive parallelism: " + parallelism);
+    }
+    this.parser = Objects.requireNonNull(parser);
+    this.formatter = Objects.requireNonNull(formatter);
+    this.comparator = Objects.requireNonNull(comparator);
+    if (comparator instanceof RecordComparators.KeyedComparator) {
+      RecordComparators.KeyedComparator keyed = (RecordComparators.KeyedComparator) comparator;
+      this.keyedComparator = keyed;
+      this.entryComparator = (a, b) -> keyed.compareKeys(a.key, b.key);
+    } else {
+      this.keyedComparator = null;
+      this.entryComparator = (a, b) -> comparator.compare(a.record, b.record);
+    }
+    this.memoryBudget = memoryBudget;
+    this.parallelism = parallelism;
+    this.tempDirectory = tempDirectory;
+  }
+
+  /**
+   * Sorts a CSV file into another file in the specified charset.
+   *
+   * @param input the {@link Path} to the input CSV file
+   * @param output the {@link Path} to the output CSV file, which must differ from the input
+   * @param cs the {@link Charset} of both files
+   * @throws IOException if an I/O error occurs
+   */
+  public void sort(Path input, Path output, Charset cs) throws IOException {
+    try (InputStream in = Files.newInputStream(input);
+        Writer writer = Files.newBufferedWriter(output, cs)) {
+      sort(parser.newRecordReader(in, cs), formatter.newRecordWriter(writer));
+    }
+  }
+
+  /**
+   * Sorts all remaining records from the record reader into the record writer.
+   *
+   * @param reader the record reader to read records from
+   * @param writer the record writer to write sorted records to
+   * @throws IOException if an I/O error occurs
+   */
+  public void sort(RecordReader reader, RecordWriter writer) throws IOException {
+    List<Path> runs = new ArrayList<>();
+    try {
+      List<Entry> entries = generateRuns(reader, runs);
+      if (runs.isEmpty()) {
+        entries.sort(entryComparator);
+        for (Entry entry : entries) {
+          writer.writeRecord(entry.record);
+        }
+        return;
+      }
+      while (runs.size() > MAX_MERGE_WIDTH) {
+        List<Path> merged = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i += MAX_MERGE_WIDTH) {
+          List<Path> group = runs.subList(i, Math.min(i + MAX_MERGE_WIDTH, runs.size()));
+          merged.add(spill(recordWriter -> merge(group, recordWriter)));
+        }
+        deleteAll(runs);
+        runs.addAll(merged);
+      }
+      merge(runs, writer);
+    } finally {
+      deleteAll(runs);
+    }
+  }
+
+  /**
+   * Reads records into chunks, and spills each chunk as a sorted run in parallel, unless all
+   * records fit in the first chunk.
+   *
+   * @return the entries of the first chunk if no run has been spilled, or an empty list otherwise
+   */
+  private List<Entry> generateRuns(RecordReader reader, List<Path> runs) throws IOException {
+    long chunkBudget = Math.max(1, memoryBudget / (parallelism + 1));
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    Semaphore permits = new Semaphore(parallelism);
+    List<Future<Path>> futures = new ArrayList<>();
+    List<Entry> chunk = new ArrayList<>();
+    try {
+      long chunkSize = 0;
+      while (reader.hasMoreRecord()) {
+        List<String> record = reader.readRecord();
+        chunk.add(newEntry(record));
+        chunkSize += ENTRY_SIZE + OperatorSupport.estimateHeapSize(record);
+        if (chunkSize >= chunkBudget && reader.hasMoreRecord()) {
+          futures.add(submitRun(executor, permits, chunk));
+          chunk = new ArrayList<>();
+          chunkSize = 0;
+        }
+      }
+      if (!futures.isEmpty() && !chunk.isEmpty()) {
+        futures.add(submitRun(executor, permits, chunk));
+        chunk = new ArrayList<>();
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      executor.shutdown();
+      try {
+        collectRuns(futures, runs);
+      } catch (IOException | RuntimeException | Error suppressed) {
+        e.addSuppressed(suppressed);
+      }
+      throw e;
+    }
+    executor.shutdown();
+    collectRuns(futures, runs);
+    return chunk;
+  }
+
+  private static void collectRuns(List<Future<Path>> futures, List<Path> runs)
+      throws IOException {
+    Throwable failure = null;
+    for (Future<Path> future : futures) {
+      try {
+        // wait for all, so that every run spilled gets deleted even on failure
+        runs.add(future.get());
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        if (failure == null) {
+          failure = new InterruptedIOException("Interrupted while spilling runs");
+        }
+      }
+    }
+    if (failure != null) {
+      throw OperatorSupport.asIoException(failure);
+    }
+  }
+
+  private Future<Path> submitRun(
+      ExecutorService executor, Semaphore permits, List<Entry> chunk)
+      throws InterruptedIOException {
+    try {
+      // bound the number of chunks held in memory at once
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for runs to be spilled");
+    }
+    return executor.submit(
+        () -> {
+          try {
+            chunk.sort(entryComparator);
+            return spill(
+                recordWriter -> {
+                  for (Entry entry : chunk) {
+                    recordWriter.writeRecord(entry.record);
+                  }
+                });
+          } finally {
+            permits.release();
+          }
+        });
+  }
+
+  private Path spill(RunWriting writing) throws IOException {
+    Path run =
+        tempDirectory == null
+            ? Files.createTempFile("csvsort", ".csv")
+            : Files.createTempFile(tempDirectory, "csvsort", ".csv");
+    try (Writer writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+      writing.writeTo(RUN_FORMATTER.newRecordWriter(writer));
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(run);
+      throw e;
+    }
+    return run;
+  }
+
+  private void merge(List<Path> runs, RecordWriter writer) throws IOException {
+    PriorityQueue<RunCursor> queue =
+        new PriorityQueue<>(
+            runs.size(),
+            (a, b) -> {
+              int c = entryComparator.compare(a.entry, b.entry);
+              // earlier runs hold records read earlier, which come first for stability
+              return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+    List<InputStream> streams = new ArrayList<>();
+    try {
+      for (int i = 0; i < runs.size(); i++) {
+        InputStream in = Files.newInputStream(runs.get(i));
+        streams.add(in);
+        RunCursor cursor = new RunCursor(i, RUN_PARSER.newRecordReader(in, StandardCharsets.UTF_8));
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+      while (!queue.isEmpty()) {
+        RunCursor cursor = queue.poll();
+        writer.writeRecord(cursor.entry.record);
+        if (cursor.advance()) {
+          queue.add(cursor);
+        }
+      }
+    } finally {
+      for (InputStream in : streams) {
+        in.close();
+      }
+    }
+  }
+
+  private Entry newEntry(List<String> record) {
+    return new Entry(keyedComparator == null ? null : keyedComparator.keyOf(record), record);
+  }
+
+  private static void deleteAll(List<Path> runs) throws IOException {
+    for (Path run : runs) {
+      Files.deleteIfExists(run);
+    }
+    runs.clear();
+  }
+
+  @FunctionalInterface
+  private interface RunWriting {
+    void writeTo(RecordWriter writer) throws IOException;
+  }
+
+  /** Record along with its key, if extracted by the comparator. */
+  private static final class Entry {
+
+    private final Object key;
+    private final List<String> record;
+
+    Entry(Object key, List<String> record) {
+      this.key = key;
+      this.record = record;
+    }
+  }
+
+  private class RunCursor {
+
+    private final int index;
+    private final RecordReader reader;
+    private Entry entry;
+
+    public RunCursor(int index, RecordReader reader) {
+      this.index = index;
+      this.reader = reader;
+    }
+
+    public boolean advance() throws IOException {
+      if (!reader.hasMoreRecord()) {
+        return false;
+      }
+      entry = newEntry(reader.readRecord());
+      return true;
+    }
+  }
+}
@@ -0,0 +1,283 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+/**
+ * A splitter of a CSV into multiple files, called shards, either by the hash of key columns or by
+ * the size of shards.
+ *
+ * <p>Split by key columns, records go to as many shards as specified by the hash of their keys, so
+ * that records of the same key always go to the same shard, even across CSVs. Keys are compared as
+ * strings, and a key column missing in a record is taken as an empty field. Split by size, records
+ * go to the first shard until its size reaches the target, then to the next shard, and so on. The
+ * size of a shard is the number of characters of the fields and the delimiters of its records,
+ * which approximates the number of bytes for mostly ASCII text.
+ *
+ * <p>The input is read on the calling thread, which dispatches records in batches to the shards,
+ * each of which is written on a thread of its own behind a bounded queue. With a header, the first
+ * record is taken as the header and written at the beginning of every shard. {@link CsvSplitter} is
+ * immutable, and can be used to split multiple CSVs.
+ */
+public class CsvSplitter {
+
+  private static final int BATCH_SIZE = 1024;
+  private static final int QUEUE_CAPACITY = 4;
+  private static final List<List<String>> END_OF_BATCHES = List.of();
+
+  private final CsvParser parser;
+  private final CsvFormatter formatter;
+  private final int[] keyColumns;
+  private final int shardCount;
+  private final long shardSize;
+  private final boolean hasHeader;
+
+  private CsvSplitter(
+      CsvParser parser,
+      CsvFormatter formatter,
+      int[] keyColumns,
+      int shardCount,
+      long shardSize,
+      boolean hasHeader) {
+    this.parser = Objects.requireNonNull(parser);
+    this.formatter = Objects.requireNonNull(formatter);
+    this.keyColumns = keyColumns;
+    this.shardCount = shardCount;
+    this.shardSize = shardSize;
+    this.hasHeader = hasHeader;
+  }
+
+  /**
+   * Returns a splitter into the number of shards by the hash of the key columns.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write shards with
+   * @param keyColumns the indexes of the key columns
+   * @param shardCount the number of shards
+   * @param hasHeader whether to take the first record as the header, written into every shard
+   * @return an instance of {@link CsvSplitter}
+   */
+  public static CsvSplitter byKey(
+      CsvParser parser,
+      CsvFormatter formatter,
+      int[] keyColumns,
+      int shardCount,
+      boolean hasHeader) {
+    if (keyColumns.length == 0) {
+      throw new IllegalArgumentException("No key columns");
+    }
+    for (int column : keyColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative key column: " + column);
+      }
+    }
+    if (shardCount <= 0) {
+      throw new IllegalArgumentException("Non-positive shard count: " + shardCount);
+    }
+    return new CsvSplitter(parser, formatter, keyColumns.clone(), shardCount, 0, hasHeader);
+  }
+
+  /**
+   * Returns a splitter into shards of the target size each, except the last one.
+   *
+   * @param parser the parser to read input CSVs with
+   * @param formatter the formatter to write shards with
+   * @param shardSize the number of characters of records to write into each shard
+   * @param hasHeader whether to take the first record as the header, written into every shard
+   * @return an instance of {@link CsvSplitter}
+   */
+  public static CsvSplitter bySize(
+      CsvParser parser, CsvFormatter formatter, long shardSize, boolean hasHeader) {
+    if (shardSize <= 0) {
+      throw new IllegalArgumentException("Non-positive shard size: " + shardSize);
+    }
+    return new CsvSplitter(parser, formatter, null, 0, shardSize, hasHeader);
+  }
+
+  /**
+   * Splits a CSV file into shards in the specified charset.
+   *
+   * @param input the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} of the input file and shards
+   * @param shardPaths the function from the index of a shard to the {@link Path} to write it to
+   * @return the number of records written into each shard, excluding the header
+   * @throws IOException if an I/O error occurs
+   */
+  public long[] split(Path input, Charset cs, IntFunction<Path> shardPaths) throws IOException {
+    try (InputStream in = Files.newInputStream(input)) {
+      return split(parser.newRecordReader(in, cs), cs, shardPaths);
+    }
+  }
+
+  /**
+   * Splits all remaining records from the record reader into shards in the specified charset.
+   * Split by key columns, all shards are written even if some get no record.
+   *
+   * @param reader the record reader to read records from
+   * @param cs the {@link Charset} of shards
+   * @param shardPaths the function from the index of a shard to the {@link Path} to write it to
+   * @return the number of records written into each shard, excluding the header
+   * @throws IOException if an I/O error occurs
+   */
+  public long[] split(RecordReader reader, Charset cs, IntFunction<Path> shardPaths)
+      throws IOException {
+    List<String> header = hasHeader && reader.hasMoreRecord() ? reader.readRecord() : null;
+    AtomicBoolean hasFailed = new AtomicBoolean();
+    ExecutorService executor = Executors.newCachedThreadPool();
+    List<Shard> shards = new ArrayList<>();
+    try {
+      for (int i = 0; i < shardCount; i++) {
+        shards.add(new Shard(executor, shardPaths.apply(i), cs, header, hasFailed));
+      }
+      Shard current = null;
+      while (!hasFailed.get() && reader.hasMoreRecord()) {
+        List<String> record = reader.readRecord();
+        Shard shard;
+        if (keyColumns != null) {
+          String key = RecordKeys.keyOf(record, keyColumns);
+          shard = shards.get(Math.floorMod(RecordKeys.hash(key), shardCount));
+        } else {
+          if (current == null || current.size >= shardSize) {
+            if (current != null) {
+              current.finish();
+            }
+            current = new Shard(executor, shardPaths.apply(shards.size()), cs, header, hasFailed);
+            shards.add(current);
+          }
+          shard = current;
+          shard.size += OperatorSupport.estimateFormattedSize(record);
+        }
+        shard.add(record);
+      }
+      for (Shard shard : shards) {
+        shard.finish();
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      // interrupt the threads waiting for batches, and wait for them to close their shards
+      executor.shutdownNow();
+      awaitTermination(executor);
+      throw e;
+    } finally {
+      executor.shutdown();
+    }
+
+    long[] recordCounts = new long[shards.size()];
+    Throwable failure = null;
+    for (int i = 0; i < recordCounts.length; i++) {
+      try {
+        recordCounts[i] = shards.get(i).future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while writing shards");
+      }
+    }
+    if (failure != null) {
+      throw OperatorSupport.asIoException(failure);
+    }
+    return recordCounts;
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Shard written on a thread of its own, which takes batches of records from the queue until the
+   * end of batches. After failing, it keeps taking batches so that the reading thread never blocks.
+   */
+  private final class Shard {
+
+    private final BlockingQueue<List<List<String>>> queue =
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Future<Long> future;
+    private List<List<String>> batch = new ArrayList<>(BATCH_SIZE);
+    private boolean isFinished = false;
+    private long size = 0;
+
+    Shard(
+        ExecutorService executor,
+        Path path,
+        Charset cs,
+        List<String> header,
+        AtomicBoolean hasFailed) {
+      Objects.requireNonNull(path);
+      this.future = executor.submit(() -> write(path, cs, header, hasFailed));
+    }
+
+    void add(List<String> record) throws InterruptedIOException {
+      batch.add(record);
+      if (batch.size() == BATCH_SIZE) {
+        put(batch);
+        batch = new ArrayList<>(BATCH_SIZE);
+      }
+    }
+
+    void finish() throws InterruptedIOException {
+      if (!isFinished) {
+        isFinished = true;
+        if (!batch.isEmpty()) {
+          put(batch);
+        }
+        put(END_OF_BATCHES);
+      }
+    }
+
+    private void put(List<List<String>> records) throws InterruptedIOException {
+      try {
+        queue.put(records);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while dispatching records");
+      }
+    }
+
+    private long write(Path path, Charset cs, List<String> header, AtomicBoolean hasFailed)
+        throws IOException, InterruptedException {
+      long recordCount = 0;
+      try (Writer writer = Files.newBufferedWriter(path, cs)) {
+        RecordWriter recordWriter = formatter.newRecordWriter(writer);
+        if (header != null) {
+          recordWriter.writeRecord(header);
+        }
+        for (List<List<String>> records = queue.take();
+            records != END_OF_BATCHES;
+            records = queue.take()) {
+          recordWriter.writeAllRecords(records);
+          recordCount += records.size();
+        }
+      } catch (IOException | RuntimeException | Error e) {
+        hasFailed.set(true);
+        while (queue.take() != END_OF_BATCHES) {
+          // discard the rest
+        }
+        throw e;
+      }
+      return recordCount;
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+
+/** A handler of differences between two CSVs found by {@link CsvDiffer}. */
+@FunctionalInterface
+public interface DiffHandler {
+
+  /**
+   * Handles a difference.
+   *
+   * @param diff the difference
+   * @throws IOException if an I/O error occurs
+   */
+  void handle(RecordDiff diff) throws IOException;
+}
@@ -0,0 +1,178 @@
+package io.github.shimies.csv;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Map;
+
+/**
+ * Converters from fields into values of Java types, each of which is given as a method handle of
+ * type {@code (String)T}. Primitives are parsed from fields into primitives without boxing. Empty
+ * fields are converted into {@code null} for reference types other than {@link String}.
+ */
+final class FieldConverters {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final Map<Class<?>, MethodHandle> CONVERTERS =
+      Map.ofEntries(
+          Map.entry(String.class, MethodHandles.identity(String.class)),
+          Map.entry(int.class, converter("toInt", int.class)),
+          Map.entry(long.class, converter("toLong", long.class)),
+          Map.entry(short.class, converter("toShort", short.class)),
+          Map.entry(byte.class, converter("toByte", byte.class)),
+          Map.entry(double.class, converter("toDouble", double.class)),
+          Map.entry(float.class, converter("toFloat", float.class)),
+          Map.entry(boolean.class, converter("toBoolean", boolean.class)),
+          Map.entry(char.class, converter("toChar", char.class)),
+          Map.entry(Integer.class, converter("toInteger", Integer.class)),
+          Map.entry(Long.class, converter("toLongObject", Long.class)),
+          Map.entry(Short.class, converter("toShortObject", Short.class)),
+          Map.entry(Byte.class, converter("toByteObject", Byte.class)),
+          Map.entry(Double.class, converter("toDoubleObject", Double.class)),
+          Map.entry(Float.class, converter("toFloatObject", Float.class)),
+          Map.entry(Boolean.class, converter("toBooleanObject", Boolean.class)),
+          Map.entry(Character.class, converter("toCharacter", Character.class)),
+          Map.entry(BigDecimal.class, converter("toBigDecimal", BigDecimal.class)),
+          Map.entry(BigInteger.class, converter("toBigInteger", BigInteger.class)),
+          Map.entry(LocalDate.class, converter("toLocalDate", LocalDate.class)),
+          Map.entry(LocalTime.class, converter("toLocalTime", LocalTime.class)),
+          Map.entry(LocalDateTime.class, converter("toLocalDateTime", LocalDateTime.class)),
+          Map.entry(Instant.class, converter("toInstant", Instant.class)));
+  private static final MethodHandle TO_ENUM =
+      converter("toEnum", Enum.class, MethodType.methodType(Enum.class, Class.class, String.class));
+
+  /**
+   * Returns the converter into the type.
+   *
+   * @param type the type to convert fields into
+   * @return the method handle of type {@code (String)T}
+   * @throws IllegalArgumentException if fields cannot be converted into the type
+   */
+  static MethodHandle of(Class<?> type) {
+    MethodHandle converter = CONVERTERS.get(type);
+    if (converter != null) {
+      return converter;
+    }
+    if (type.isEnum()) {
+      return MethodHandles.insertArguments(TO_ENUM, 0, type)
+          .asType(MethodType.methodType(type, String.class));
+    }
+    throw new IllegalArgumentException("Unsupported type: " + type.getName());
+  }
+
+  private static MethodHandle converter(String name, Class<?> type) {
+    return converter(name, type, MethodType.methodType(type, String.class));
+  }
+
+  private static MethodHandle converter(String name, Class<?> type, MethodType methodType) {
+    try {
+      return LOOKUP.findStatic(FieldConverters.class, name, methodType);
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static int toInt(String field) {
+    return Integer.parseInt(field);
+  }
+
+  private static long toLong(String field) {
+    return Long.parseLong(field);
+  }
+
+  private static short toShort(String field) {
+    return Short.parseShort(field);
+  }
+
+  private static byte toByte(String field) {
+    return Byte.parseByte(field);
+  }
+
+  private static double toDouble(String field) {
+    return Double.parseDouble(field);
+  }
+
+  private static float toFloat(String field) {
+    return Float.parseFloat(field);
+  }
+
+  private static boolean toBoolean(String field) {
+    return Boolean.parseBoolean(field);
+  }
+
+  private static char toChar(String field) {
+    if (field.length() != 1) {
+      throw new IllegalArgumentException("Not a single character: " + field);
+    }
+    return field.charAt(0);
+  }
+
+  private static Integer toInteger(String field) {
+    return field.isEmpty() ? null : toInt(field);
+  }
+
+  private static Long toLongObject(String field) {
+    return field.isEmpty() ? null : toLong(field);
+  }
+
+  private static Short toShortObject(String field) {
+    return field.isEmpty() ? null : toShort(field);
+  }
+
+  private static Byte toByteObject(String field) {
+    return field.isEmpty() ? null : toByte(field);
+  }
+
+  private static Double toDoubleObject(String field) {
+    return field.isEmpty() ? null : toDouble(field);
+  }
+
+  private static Float toFloatObject(String field) {
+    return field.isEmpty() ? null : toFloat(field);
+  }
+
+  private static Boolean toBooleanObject(String field) {
+    return field.isEmpty() ? null : toBoolean(field);
+  }
+
+  private static Character toCharacter(String field) {
+    return field.isEmpty() ? null : toChar(field);
+  }
+
+  private static BigDecimal toBigDecimal(String field) {
+    return field.isEmpty() ? null : new BigDecimal(field);
+  }
+
+  private static BigInteger toBigInteger(String field) {
+    return field.isEmpty() ? null : new BigInteger(field);
+  }
+
+  private static LocalDate toLocalDate(String field) {
+    return field.isEmpty() ? null : LocalDate.parse(field);
+  }
+
+  private static LocalTime toLocalTime(String field) {
+    return field.isEmpty() ? null : LocalTime.parse(field);
+  }
+
+  private static LocalDateTime toLocalDateTime(String field) {
+    return field.isEmpty() ? null : LocalDateTime.parse(field);
+  }
+
+  private static Instant toInstant(String field) {
+    return field.isEmpty() ? null : Instant.parse(field);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static Enum<?> toEnum(Class type, String field) {
+    return field.isEmpty() ? null : Enum.valueOf(type, field);
+  }
+
+  private FieldConverters() {}
+}
@@ -0,0 +1,96 @@
+package io.github.shimies.csv;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable header of CSV records, which maps column names to their indexes.
+ *
+ * <p>The table of names is built once when constructed, and shared by all records read along with
+ * the header, so that looking up a field by its column name allocates nothing per record. If a name
+ * appears more than once, it is mapped to the index of its first occurrence.
+ */
+public final class Header {
+
+  private final List<String> names;
+  private final Map<String, Integer> indexes;
+
+  private Header(List<String> names) {
+    this.names = List.copyOf(names);
+    Map<String, Integer> indexes = new HashMap<>();
+    for (int i = 0; i < this.names.size(); i++) {
+      indexes.putIfAbsent(this.names.get(i), i);
+    }
+    this.indexes = Map.copyOf(indexes);
+  }
+
+  /**
+   * Returns a header of the column names.
+   *
+   * @param names the column names in order of columns
+   * @return an instance of {@link Header}
+   */
+  public static Header of(List<String> names) {
+    return new Header(names);
+  }
+
+  /**
+   * Returns the column names in order of columns.
+   *
+   * @return an unmodifiable list of column names
+   */
+  public List<String> names() {
+    return names;
+  }
+
+  /**
+   * Returns the number of columns.
+   *
+   * @return the number of columns
+   */
+  public int size() {
+    return names.size();
+  }
+
+  /**
+   * Returns the index of the column of the name.
+   *
+   * @param name the column name
+   * @return the index of the column, or -1 if there is no column of the name
+   */
+  public int indexOf(String name) {
+    Integer index = indexes.get(name);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * Returns the index of the column of the name, or throws if there is none.
+   *
+   * @param name the column name
+   * @return the index of the column
+   * @throws IllegalArgumentException if there is no column of the name
+   */
+  public int requireIndexOf(String name) {
+    int index = indexOf(name);
+    if (index < 0) {
+      throw new IllegalArgumentException("Unknown column name: " + name);
+    }
+    return index;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Header && names.equals(((Header) obj).names);
+  }
+
+  @Override
+  public int hashCode() {
+    return names.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return names.toString();
+  }
+}
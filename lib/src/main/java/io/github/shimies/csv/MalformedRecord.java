@@ -0,0 +1,75 @@
+package io.github.shimies.csv;
+
+/**
+ * A record that could not be parsed, reported to {@link MalformedRecordHandler} instead of thrown
+ * as {@link ParserException} when parsing leniently.
+ *
+ * <p>The raw text is the text of the record as it appears in the source, from the beginning of the
+ * record up to and including the record delimiter at which the parser resynchronized.
+ */
+public final class MalformedRecord implements TextLocator {
+
+  private final int lineNo;
+  private final int characterNo;
+  private final String reason;
+  private final String rawText;
+
+  /**
+   * Constructs.
+   *
+   * @param lineNo the line number where the error occurred
+   * @param characterNo the character number where the error occurred, or -1 if unknown
+   * @param reason the reason why the record is malformed
+   * @param rawText the raw text of the record
+   */
+  public MalformedRecord(int lineNo, int characterNo, String reason, String rawText) {
+    this.lineNo = lineNo;
+    this.characterNo = characterNo;
+    this.reason = reason;
+    this.rawText = rawText;
+  }
+
+  /**
+   * Returns the line number where the error occurred.
+   *
+   * @return the line number
+   */
+  @Override
+  public int getLineNumber() {
+    return lineNo;
+  }
+
+  /**
+   * Returns the character number where the error occurred.
+   *
+   * @return the character number, or -1 if unknown
+   */
+  @Override
+  public int getCharacterNumber() {
+    return characterNo;
+  }
+
+  /**
+   * Returns the reason why the record is malformed.
+   *
+   * @return the reason
+   */
+  public String getReason() {
+    return reason;
+  }
+
+  /**
+   * Returns the raw text of the record.
+   *
+   * @return the raw text
+   */
+  public String getRawText() {
+    return rawText;
+  }
+
+  @Override
+  public String toString() {
+    String location = characterNo >= 0 ? "L" + lineNo + ",C" + characterNo : "L" + lineNo;
+    return reason + " [" + location + ']';
+  }
+}
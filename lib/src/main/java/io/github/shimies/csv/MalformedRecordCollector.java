@@ -0,0 +1,55 @@
+package io.github.shimies.csv;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link MalformedRecordHandler} that collects malformed records into a list of bounded size.
+ * Malformed records beyond the capacity are only counted, so that the memory in use stays bounded
+ * however dirty the source is. This class is not thread-safe.
+ */
+public class MalformedRecordCollector implements MalformedRecordHandler {
+
+  private final int capacity;
+  private final List<MalformedRecord> records = new ArrayList<>();
+  private long count = 0;
+
+  /**
+   * Constructs.
+   *
+   * @param capacity the maximum number of malformed records to keep
+   */
+  public MalformedRecordCollector(int capacity) {
+    if (capacity < 0) {
+      throw new IllegalArgumentException("Negative capacity: " + capacity);
+    }
+    this.capacity = capacity;
+  }
+
+  @Override
+  public void handle(MalformedRecord record) {
+    if (records.size() < capacity) {
+      records.add(record);
+    }
+    count++;
+  }
+
+  /**
+   * Returns the malformed records collected so far, up to the capacity in the order of occurrence.
+   *
+   * @return an unmodifiable view of the collected malformed records
+   */
+  public List<MalformedRecord> getMalformedRecords() {
+    return Collections.unmodifiableList(records);
+  }
+
+  /**
+   * Returns the number of malformed records handled so far, including ones beyond the capacity.
+   *
+   * @return the number of malformed records
+   */
+  public long getMalformedRecordCount() {
+    return count;
+  }
+}
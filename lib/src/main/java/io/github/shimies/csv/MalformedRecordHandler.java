@@ -0,0 +1,45 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A handler of records that could not be parsed. Giving a handler to {@link CsvParser} makes it
+ * parse leniently, that is, it skips malformed records reporting them to the handler and continues
+ * parsing from the next record.
+ */
+@FunctionalInterface
+public interface MalformedRecordHandler {
+
+  /**
+   * Handles a malformed record.
+   *
+   * @param record the malformed record
+   * @throws IOException if an I/O error occurs
+   */
+  void handle(MalformedRecord record) throws IOException;
+
+  /**
+   * Returns a composed handler that passes a malformed record to this handler, then to the other.
+   *
+   * @param other the handler to pass a malformed record after this handler
+   * @return the composed handler
+   */
+  default MalformedRecordHandler andThen(MalformedRecordHandler other) {
+    return record -> {
+      handle(record);
+      other.handle(record);
+    };
+  }
+
+  /**
+   * Returns a handler that writes the raw text of malformed records into the specified writer as
+   * is. The written text can be fixed and parsed again later.
+   *
+   * @param writer the {@link Writer} to quarantine malformed records into
+   * @return an instance of {@link MalformedRecordHandler}
+   */
+  static MalformedRecordHandler quarantine(Writer writer) {
+    return record -> writer.write(record.getRawText());
+  }
+}
@@ -0,0 +1,58 @@
+package io.github.shimies.csv;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable CSV record read along with a {@link Header}, whose fields can be looked up by column
+ * names as well as by indexes. The header is shared by all records read from the same source, so
+ * that each record holds nothing but its fields and a reference to the header.
+ */
+public final class NamedRecord extends AbstractList<String> implements RandomAccess {
+
+  private final Header header;
+  private final List<String> fields;
+
+  /**
+   * Constructs.
+   *
+   * @param header the header of the record
+   * @param fields the fields of the record, which must not be modified afterwards
+   */
+  public NamedRecord(Header header, List<String> fields) {
+    this.header = header;
+    this.fields = fields;
+  }
+
+  /**
+   * Returns the header of the record.
+   *
+   * @return the header
+   */
+  public Header header() {
+    return header;
+  }
+
+  /**
+   * Returns the field of the column of the name.
+   *
+   * @param name the column name
+   * @return the field
+   * @throws IllegalArgumentException if there is no column of the name
+   * @throws IndexOutOfBoundsException if the record is too short to have the column
+   */
+  public String get(String name) {
+    return fields.get(header.requireIndexOf(name));
+  }
+
+  @Override
+  public String get(int index) {
+    return fields.get(index);
+  }
+
+  @Override
+  public int size() {
+    return fields.size();
+  }
+}
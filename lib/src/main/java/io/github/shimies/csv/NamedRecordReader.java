@@ -0,0 +1,40 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+
+/**
+ * A {@link RecordReader} that takes the first record as the {@link Header}, and reads the rest as
+ * {@link NamedRecord} sharing it. Every record must have as many fields as the header, otherwise
+ * {@link ParserException} is thrown.
+ */
+public interface NamedRecordReader extends RecordReader {
+
+  /**
+   * Returns the header, which is empty if the source has no record at all.
+   *
+   * @return the header
+   */
+  Header getHeader();
+
+  /**
+   * Reads the next CSV record from the source.
+   *
+   * @return the next record as a {@link NamedRecord}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  NamedRecord readRecord() throws IOException;
+
+  /**
+   * Returns a {@link NamedRecordReader} that reads the header from the specified record reader, and
+   * then the rest of the records. Widths of records are validated against the header without
+   * their locations.
+   *
+   * @param reader the record reader to read records from
+   * @return an instance of {@link NamedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  static NamedRecordReader of(RecordReader reader) throws IOException {
+    return new NamedRecordReaderImpl(reader);
+  }
+}
@@ -0,0 +1,35 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.List;
+
+/** Default implementation of {@link NamedRecordReader} decorating a {@link RecordReader}. */
+final class NamedRecordReaderImpl implements NamedRecordReader {
+
+  private final RecordReader reader;
+  private final Header header;
+
+  NamedRecordReaderImpl(RecordReader reader) throws IOException {
+    this.reader = reader;
+    this.header = Header.of(reader.hasMoreRecord() ? reader.readRecord() : List.of());
+  }
+
+  @Override
+  public Header getHeader() {
+    return header;
+  }
+
+  @Override
+  public boolean hasMoreRecord() {
+    return reader.hasMoreRecord();
+  }
+
+  @Override
+  public NamedRecord readRecord() throws IOException {
+    List<String> fields = reader.readRecord();
+    if (fields.size() != header.size()) {
+      throw new ParserException("Illegal number of fields found", -1);
+    }
+    return new NamedRecord(header, fields);
+  }
+}
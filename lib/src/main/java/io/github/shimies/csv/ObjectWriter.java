@@ -0,0 +1,40 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+
+/**
+ * A writer of objects serialized by {@link RecordSerializer} into CSV records, which writes a
+ * record into a specific destination sequentially. Classes implementing this interface must be
+ * mutable, thus may not be thread-safe.
+ *
+ * @param <T> the type of objects to write
+ */
+public interface ObjectWriter<T> {
+
+  /**
+   * Writes the header of the serializer as a record.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  void writeHeader() throws IOException;
+
+  /**
+   * Writes the object as a record.
+   *
+   * @param object the object to write
+   * @throws IOException if an I/O error occurs
+   */
+  void writeObject(T object) throws IOException;
+
+  /**
+   * Writes all objects from an iterable collection of objects.
+   *
+   * @param objects the iterable collection of objects
+   * @throws IOException if an I/O error occurs
+   */
+  default void writeAllObjects(Iterable<? extends T> objects) throws IOException {
+    for (T object : objects) {
+      writeObject(object);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+
+/** Default implementation of {@link ObjectWriter} decorating a {@link RecordWriter}. */
+final class ObjectWriterImpl<T> implements ObjectWriter<T> {
+
+  private final RecordWriter writer;
+  private final RecordSerializer<T> serializer;
+
+  ObjectWriterImpl(RecordWriter writer, RecordSerializer<T> serializer) {
+    this.writer = writer;
+    this.serializer = serializer;
+  }
+
+  @Override
+  public void writeHeader() throws IOException {
+    writer.writeRecord(serializer.getHeader().names());
+  }
+
+  @Override
+  public void writeObject(T object) throws IOException {
+    writer.writeRecord(serializer.toRecord(object));
+  }
+}
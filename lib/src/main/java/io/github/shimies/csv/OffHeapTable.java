@@ -0,0 +1,367 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * An immutable table of CSV records held in memory outside the Java heap, so that huge CSVs can
+ * stay resident without burdening the garbage collector.
+ *
+ * <p>Fields are stored encoded in UTF-8 in direct byte buffers, which are allocated in pages as the
+ * table grows. The offsets of fields and records are stored off-heap as well, so that the heap
+ * footprint does not grow with the number of records. Each access to a field decodes it into a new
+ * {@link String}.
+ *
+ * <p>The off-heap memory is released deterministically on {@link #close()}, after which the table
+ * is no longer accessible. Tables can be read concurrently from multiple threads, each read
+ * holding a read lock, so that closing waits for the reads in progress instead of freeing memory
+ * under them. Memory is freed by {@code sun.misc.Unsafe#invokeCleaner} of the {@code
+ * jdk.unsupported} module, the only way to free a direct buffer on Java 17; if it is unavailable,
+ * memory is released only when the buffers get garbage collected after closing.
+ *
+ * <p>Direct buffers count against {@code -XX:MaxDirectMemorySize}, which defaults to the maximum
+ * heap size. Loading a table larger than that fails with {@link OutOfMemoryError} of "Direct
+ * buffer memory", so the limit must be raised to hold tables of tens of gigabytes.
+ */
+public final class OffHeapTable implements AutoCloseable {
+
+  private static final int DEFAULT_PAGE_SIZE = 1 << 30;
+  private static final MethodHandle INVOKE_CLEANER = findInvokeCleaner();
+
+  private final Pages data;
+  private final Pages fieldEnds; // end offset of each field in data, as long
+  private final Pages recordStarts; // index of the first field of each record, as long
+  private long recordCount = 0;
+  private long fieldCount = 0;
+  private long dataSize = 0;
+  private final StampedLock lock = new StampedLock();
+  private volatile boolean isClosed = false;
+
+  private OffHeapTable(int pageSize) {
+    this.data = new Pages(pageSize);
+    this.fieldEnds = new Pages(pageSize);
+    this.recordStarts = new Pages(pageSize);
+  }
+
+  /**
+   * Loads all remaining records from the record reader into a new table.
+   *
+   * @param reader the record reader to read records from
+   * @return a new table holding the records
+   * @throws IOException if an I/O error occurs
+   */
+  public static OffHeapTable load(RecordReader reader) throws IOException {
+    return load(reader, DEFAULT_PAGE_SIZE);
+  }
+
+  /**
+   * Loads a CSV file at the specified path and charset into a new table.
+   *
+   * @param parser the parser to parse the file with
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return a new table holding the records of the file
+   * @throws IOException if an I/O error occurs
+   */
+  public static OffHeapTable load(CsvParser parser, Path path, Charset cs) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return load(parser.newRecordReader(in, cs));
+    }
+  }
+
+  static OffHeapTable load(RecordReader reader, int pageSize) throws IOException {
+    if (pageSize <= 0 || pageSize % Long.BYTES != 0) {
+      throw new IllegalArgumentException("Page size not a positive multiple of 8: " + pageSize);
+    }
+    OffHeapTable table = new OffHeapTable(pageSize);
+    try {
+      while (reader.hasMoreRecord()) {
+        table.append(reader.readRecord());
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      table.close();
+      throw e;
+    }
+    return table;
+  }
+
+  private void append(List<String> record) {
+    recordStarts.putLong(recordCount++ * Long.BYTES, fieldCount);
+    for (String field : record) {
+      byte[] bytes = field.getBytes(StandardCharsets.UTF_8);
+      data.put(dataSize, bytes);
+      dataSize += bytes.length;
+      fieldEnds.putLong(fieldCount++ * Long.BYTES, dataSize);
+    }
+  }
+
+  /**
+   * Returns the number of records in this table.
+   *
+   * @return the number of records
+   */
+  public long getRecordCount() {
+    return recordCount;
+  }
+
+  /**
+   * Returns the number of fields of the record.
+   *
+   * @param recordIndex the index of the record
+   * @return the number of fields
+   * @throws IndexOutOfBoundsException if the record does not exist
+   * @throws IllegalStateException if this table has been closed
+   */
+  public int getFieldCount(long recordIndex) {
+    long stamp = lockOpen();
+    try {
+      return (int) (getRecordEnd(recordIndex) - getRecordStart(recordIndex));
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns a field of the record.
+   *
+   * @param recordIndex the index of the record
+   * @param fieldIndex the index of the field in the record
+   * @return the field
+   * @throws IndexOutOfBoundsException if the record or the field does not exist
+   * @throws IllegalStateException if this table has been closed
+   */
+  public String getField(long recordIndex, int fieldIndex) {
+    long stamp = lockOpen();
+    try {
+      long start = getRecordStart(recordIndex);
+      long end = getRecordEnd(recordIndex);
+      if (fieldIndex < 0 || fieldIndex >= end - start) {
+        throw new IndexOutOfBoundsException("Field index out of range: " + fieldIndex);
+      }
+      return decodeField(start + fieldIndex);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns a record.
+   *
+   * @param recordIndex the index of the record
+   * @return the record as an unmodifiable {@link List} of strings
+   * @throws IndexOutOfBoundsException if the record does not exist
+   * @throws IllegalStateException if this table has been closed
+   */
+  public List<String> getRecord(long recordIndex) {
+    long stamp = lockOpen();
+    try {
+      long start = getRecordStart(recordIndex);
+      long end = getRecordEnd(recordIndex);
+      List<String> record = new ArrayList<>((int) (end - start));
+      for (long i = start; i < end; i++) {
+        record.add(decodeField(i));
+      }
+      return Collections.unmodifiableList(record);
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Returns the number of bytes of off-heap memory allocated for this table.
+   *
+   * @return the number of bytes allocated, or 0 if this table has been closed
+   */
+  public long getAllocatedBytes() {
+    long stamp = lock.readLock();
+    try {
+      long bytes = data.getAllocatedBytes();
+      bytes += fieldEnds.getAllocatedBytes();
+      bytes += recordStarts.getAllocatedBytes();
+      return bytes;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Releases the off-heap memory of this table, waiting for the reads in progress to finish. It has
+   * no effect if already closed.
+   */
+  @Override
+  public void close() {
+    // new reads are rejected from now on, so that the write lock waits only for reads in progress
+    isClosed = true;
+    long stamp = lock.writeLock();
+    try {
+      data.release();
+      fieldEnds.release();
+      recordStarts.release();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Acquires the read lock, which must be released by the caller, unless this table is closed.
+   *
+   * @return the stamp of the read lock
+   */
+  private long lockOpen() {
+    if (!isClosed) {
+      long stamp = lock.readLock();
+      // closing may have begun while waiting for the lock
+      if (!isClosed) {
+        return stamp;
+      }
+      lock.unlockRead(stamp);
+    }
+    throw new IllegalStateException("Table already closed");
+  }
+
+  private long getRecordStart(long recordIndex) {
+    if (recordIndex < 0 || recordIndex >= recordCount) {
+      throw new IndexOutOfBoundsException("Record index out of range: " + recordIndex);
+    }
+    return recordStarts.getLong(recordIndex * Long.BYTES);
+  }
+
+  private long getRecordEnd(long recordIndex) {
+    if (recordIndex + 1 == recordCount) {
+      return fieldCount;
+    }
+    return recordStarts.getLong((recordIndex + 1) * Long.BYTES);
+  }
+
+  private String decodeField(long fieldIndex) {
+    long start = fieldIndex == 0 ? 0 : fieldEnds.getLong((fieldIndex - 1) * Long.BYTES);
+    long end = fieldEnds.getLong(fieldIndex * Long.BYTES);
+    byte[] bytes = new byte[Math.toIntExact(end - start)];
+    data.get(start, bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static MethodHandle findInvokeCleaner() {
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field field = unsafeClass.getDeclaredField("theUnsafe");
+      field.setAccessible(true);
+      MethodType type = MethodType.methodType(void.class, ByteBuffer.class);
+      return MethodHandles.lookup()
+          .findVirtual(unsafeClass, "invokeCleaner", type)
+          .bindTo(field.get(null));
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // memory is then released when the buffers get garbage collected
+      return null;
+    }
+  }
+
+  /**
+   * Growable sequence of bytes addressed by {@code long}, which consists of direct byte buffers of
+   * the same size. The last one starts small and gets reallocated twice as large until full size.
+   */
+  private static final class Pages {
+
+    private static final int INITIAL_SIZE = 4096;
+
+    private final int pageSize;
+    private ByteBuffer[] pages = new ByteBuffer[0];
+    private int pageCount = 0;
+    private long capacity = 0;
+
+    Pages(int pageSize) {
+      this.pageSize = pageSize;
+    }
+
+    long getAllocatedBytes() {
+      return capacity;
+    }
+
+    /** Puts a long at the offset, which must be a multiple of 8 as the page size is. */
+    void putLong(long offset, long value) {
+      ensureCapacity(offset + Long.BYTES);
+      pages[(int) (offset / pageSize)].putLong((int) (offset % pageSize), value);
+    }
+
+    /** Gets a long at the offset, which must be a multiple of 8 as the page size is. */
+    long getLong(long offset) {
+      return pages[(int) (offset / pageSize)].getLong((int) (offset % pageSize));
+    }
+
+    void put(long offset, byte[] bytes) {
+      ensureCapacity(offset + bytes.length);
+      int done = 0;
+      while (done < bytes.length) {
+        long at = offset + done;
+        int position = (int) (at % pageSize);
+        int length = Math.min(bytes.length - done, pageSize - position);
+        pages[(int) (at / pageSize)].put(position, bytes, done, length);
+        done += length;
+      }
+    }
+
+    void get(long offset, byte[] bytes) {
+      int done = 0;
+      while (done < bytes.length) {
+        long at = offset + done;
+        int position = (int) (at % pageSize);
+        int length = Math.min(bytes.length - done, pageSize - position);
+        pages[(int) (at / pageSize)].get(position, bytes, done, length);
+        done += length;
+      }
+    }
+
+    void release() {
+      for (int i = 0; i < pageCount; i++) {
+        release(pages[i]);
+      }
+      pages = new ByteBuffer[0];
+      pageCount = 0;
+      capacity = 0;
+    }
+
+    private void ensureCapacity(long size) {
+      while (capacity < size) {
+        ByteBuffer last = pageCount == 0 ? null : pages[pageCount - 1];
+        if (last != null && last.capacity() < pageSize) {
+          ByteBuffer grown = ByteBuffer.allocateDirect(Math.min(pageSize, last.capacity() * 2));
+          grown.put(0, last, 0, last.capacity());
+          pages[pageCount - 1] = grown;
+          capacity += grown.capacity() - last.capacity();
+          release(last);
+        } else {
+          if (pageCount == pages.length) {
+            pages = Arrays.copyOf(pages, Math.max(8, pages.length * 2));
+          }
+          ByteBuffer page = ByteBuffer.allocateDirect(Math.min(pageSize, INITIAL_SIZE));
+          pages[pageCount++] = page;
+          capacity += page.capacity();
+        }
+      }
+    }
+
+    private static void release(ByteBuffer page) {
+      if (INVOKE_CLEANER != null) {
+        try {
+          INVOKE_CLEANER.invokeExact(page);
+        } catch (Throwable e) {
+          throw new IllegalStateException("Failed to release off-heap memory", e);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Helpers shared by the operators that stream records within a memory budget, such as {@link
+ * CsvSorter} and {@link CsvAggregator}.
+ */
+final class OperatorSupport {
+
+  /** The memory budget of operators unless specified, which is 64 MiB. */
+  static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+  private OperatorSupport() {}
+
+  /** Returns the field of the record in the column, or null if the record has no such column. */
+  static String getField(List<String> record, int column) {
+    return column < record.size() ? record.get(column) : null;
+  }
+
+  /** Returns the field of the record in the column, taking a missing column as an empty field. */
+  static String getFieldOrEmpty(List<String> record, int column) {
+    return column < record.size() ? record.get(column) : "";
+  }
+
+  /** Returns the estimated number of bytes of the heap occupied by the record. */
+  static long estimateHeapSize(List<String> record) {
+    // list with references, and strings with their headers and arrays
+    long size = 64 + 8L * record.size();
+    for (String field : record) {
+      size += 56 + 2L * field.length();
+    }
+    return size;
+  }
+
+  /** Returns the estimated number of chars of the record once formatted. */
+  static long estimateFormattedSize(List<String> record) {
+    // fields with delimiters between them, and the record delimiter
+    long size = Math.max(record.size() - 1, 0) + 2;
+    for (String field : record) {
+      size += field.length();
+    }
+    return size;
+  }
+
+  /**
+   * Rethrows the failure of a task as it is if unchecked, or returns it as an I/O exception. It
+   * should be called only after all the other tasks have been waited for, so that none of them is
+   * still using the resources to be released on the failure.
+   */
+  static IOException asIoException(Throwable cause) {
+    if (cause instanceof IOException) {
+      return (IOException) cause;
+    } else if (cause instanceof UncheckedIOException) {
+      return ((UncheckedIOException) cause).getCause();
+    } else if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    } else if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return new IOException(cause);
+  }
+}
@@ -0,0 +1,110 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Records spilled into temporary files by partition of the hash of their keys, for the operators
+ * that fall back to disk when out of memory. Files are created on demand, and records are written
+ * in RFC 4180, so that any field survives spilling as is.
+ *
+ * <p>The partition of a hash differs by level, so that records spilled together at a level get
+ * split apart when spilled again at the next level.
+ */
+final class PartitionedSpill {
+
+  static final int PARTITION_COUNT = 16;
+
+  /** The level beyond which records should not be spilled any more. */
+  static final int MAX_LEVEL = 8;
+
+  private static final CsvParser SPILL_PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final CsvFormatter SPILL_FORMATTER = CsvFormatters.ofRfc4180();
+
+  private final Path tempDirectory;
+  private final int level;
+  private final Path[] files = new Path[PARTITION_COUNT];
+  private final Writer[] writers = new Writer[PARTITION_COUNT];
+  private final RecordWriter[] recordWriters = new RecordWriter[PARTITION_COUNT];
+
+  /**
+   * Constructs.
+   *
+   * @param tempDirectory the directory to create temporary files in, or {@code null} for the
+   *     default temporary-file directory
+   * @param level the level of partitioning
+   */
+  PartitionedSpill(Path tempDirectory, int level) {
+    this.tempDirectory = tempDirectory;
+    this.level = level;
+  }
+
+  /** Returns the partition of the hash at the level. */
+  static int partitionOf(int hash, int level) {
+    // the finalizer of MurmurHash3
+    int h = hash + level * 0x9e3779b9;
+    h = (h ^ (h >>> 16)) * 0x85ebca6b;
+    h = (h ^ (h >>> 13)) * 0xc2b2ae35;
+    return (h ^ (h >>> 16)) >>> 28;
+  }
+
+  /** Returns a new record reader of records spilled, from the stream opened by {@link #open}. */
+  static RecordReader newRecordReader(InputStream in) throws IOException {
+    return SPILL_PARSER.newRecordReader(in, StandardCharsets.UTF_8);
+  }
+
+  void write(int hash, List<String> record) throws IOException {
+    int p = partitionOf(hash, level);
+    if (recordWriters[p] == null) {
+      files[p] =
+          tempDirectory == null
+              ? Files.createTempFile("csvspill", ".csv")
+              : Files.createTempFile(tempDirectory, "csvspill", ".csv");
+      writers[p] = Files.newBufferedWriter(files[p], StandardCharsets.UTF_8);
+      recordWriters[p] = SPILL_FORMATTER.newRecordWriter(writers[p]);
+    }
+    recordWriters[p].writeRecord(record);
+  }
+
+  boolean isEmpty() {
+    for (Path file : files) {
+      if (file != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Opens the records spilled into the partition, which must be read after closed. */
+  InputStream open(int partition) throws IOException {
+    Path file = files[partition];
+    return file == null ? InputStream.nullInputStream() : Files.newInputStream(file);
+  }
+
+  void close() throws IOException {
+    for (int p = 0; p < PARTITION_COUNT; p++) {
+      if (writers[p] != null) {
+        Writer writer = writers[p];
+        writers[p] = null;
+        writer.close();
+      }
+    }
+  }
+
+  void delete() throws IOException {
+    try {
+      close();
+    } finally {
+      for (Path file : files) {
+        if (file != null) {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package io.github.shimies.csv;
+
+/**
+ * Represents policies of which fields formatters enclose in double quotes. Whatever the policy is,
+ * double quotes in quoted fields are escaped by doubling them.
+ */
+public enum QuotingPolicy {
+
+  /**
+   * Quotes only fields that contain the delimiter, a double quote, CR or LF, and an empty field at
+   * the end of a record unless allowed.
+   */
+  MINIMAL,
+
+  /** Quotes every field. */
+  ALWAYS,
+
+  /**
+   * Quotes every field but numbers, which are typed numbers and strings of decimal numbers such as
+   * {@code -12}, {@code 0.5} and {@code 1e-3}, unless they contain the delimiter.
+   */
+  NON_NUMERIC,
+
+  /**
+   * Quotes no field, and rejects fields that would be quoted by {@link #MINIMAL} as {@link
+   * IllegalArgumentException}, discarding the record being written.
+   */
+  NEVER
+}
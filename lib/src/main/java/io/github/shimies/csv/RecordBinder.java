@@ -0,0 +1,207 @@
+package io.github.shimies.csv;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A binder of CSV records to objects of a Java record class or a bean class.
+ *
+ * <p>Components of a record class are bound to the columns of the same names, or to the columns in
+ * order of components if no header is given, through its canonical constructor. Properties of a
+ * bean class are bound to the columns of the same names through their setters, after being
+ * instantiated through its public no-arg constructor. Properties without the columns are left as
+ * they are, and columns without the properties are ignored.
+ *
+ * <p>Constructors and setters are resolved once into method handles, combined with converters from
+ * fields and accessors of the fields of records, so that nothing is reflected per record, and
+ * primitives are passed from fields without boxing. Fields are converted as follows: primitives,
+ * their wrappers, {@link java.math.BigDecimal} and {@link java.math.BigInteger} are parsed as
+ * decimal numbers, {@code boolean} by {@link Boolean#parseBoolean(String)}, {@code char} from
+ * fields of single characters, {@link java.time.LocalDate}, {@link java.time.LocalTime},
+ * {@link java.time.LocalDateTime} and {@link java.time.Instant} in ISO-8601, and enums by their
+ * constant names. Empty fields are bound as {@code null} to reference types other than {@link
+ * String}. Fields that cannot be converted are reported as runtime exceptions of the converters,
+ * for example {@link NumberFormatException}.
+ *
+ * <p>{@link RecordBinder} is immutable, and can be used to bind records from multiple threads.
+ *
+ * @param <T> the type of objects to bind records to
+ */
+public final class RecordBinder<T> {
+
+  private static final MethodHandle LIST_GET;
+
+  static {
+    try {
+      LIST_GET =
+          MethodHandles.publicLookup()
+              .findVirtual(List.class, "get", MethodType.methodType(Object.class, int.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final MethodHandle constructor;
+  private final MethodHandle[] setters;
+
+  private RecordBinder(MethodHandle constructor, MethodHandle[] setters) {
+    this.constructor = constructor;
+    this.setters = setters;
+  }
+
+  /**
+   * Returns a binder of records to objects of the record class, binding its components to the
+   * columns in order of components.
+   *
+   * @param <T> the type of objects to bind records to
+   * @param type the record class
+   * @return an instance of {@link RecordBinder}
+   * @throws IllegalArgumentException if the type is not a record class, or has a component of
+   *     unsupported type
+   */
+  public static <T> RecordBinder<T> of(Class<T> type) {
+    if (!type.isRecord()) {
+      throw new IllegalArgumentException("Not a record class: " + type.getName());
+    }
+    RecordComponent[] components = type.getRecordComponents();
+    int[] columns = new int[components.length];
+    Arrays.setAll(columns, i -> i);
+    return ofRecord(type, components, columns);
+  }
+
+  /**
+   * Returns a binder of records to objects of the record class or the bean class, binding its
+   * components or properties to the columns of the same names.
+   *
+   * @param <T> the type of objects to bind records to
+   * @param type the record class or the bean class
+   * @param header the header of records to bind
+   * @return an instance of {@link RecordBinder}
+   * @throws IllegalArgumentException if a component of the record class has no column, if the bean
+   *     class has no public no-arg constructor, or if a component or a property bound has
+   *     unsupported type
+   */
+  public static <T> RecordBinder<T> of(Class<T> type, Header header) {
+    if (type.isRecord()) {
+      RecordComponent[] components = type.getRecordComponents();
+      int[] columns = new int[components.length];
+      for (int i = 0; i < components.length; i++) {
+        columns[i] = header.indexOf(components[i].getName());
+        if (columns[i] < 0) {
+          throw new IllegalArgumentException("No column for component: " + components[i]);
+        }
+      }
+      return ofRecord(type, components, columns);
+    }
+    List<MethodHandle> setters = new ArrayList<>();
+    for (Method method : type.getMethods()) {
+      String name = method.getName();
+      if (Modifier.isStatic(method.getModifiers())
+          || method.getParameterCount() != 1
+          || name.length() <= 3
+          || !name.startsWith("set")) {
+        continue;
+      }
+      int column = header.indexOf(Character.toLowerCase(name.charAt(3)) + name.substring(4));
+      if (column >= 0) {
+        MethodHandle field = fieldOf(column, method.getParameterTypes()[0]);
+        MethodHandle setter = MethodHandles.filterArguments(unreflect(method), 1, field);
+        setters.add(setter.asType(MethodType.methodType(void.class, Object.class, List.class)));
+      }
+    }
+    MethodHandle constructor;
+    try {
+      constructor = unreflect(type.getConstructor());
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No public no-arg constructor: " + type.getName(), e);
+    }
+    constructor = MethodHandles.dropArguments(constructor, 0, List.class);
+    return new RecordBinder<>(
+        constructor.asType(MethodType.methodType(Object.class, List.class)),
+        setters.toArray(new MethodHandle[0]));
+  }
+
+  private static <T> RecordBinder<T> ofRecord(
+      Class<T> type, RecordComponent[] components, int[] columns) {
+    Class<?>[] componentTypes = new Class<?>[components.length];
+    MethodHandle[] fields = new MethodHandle[components.length];
+    for (int i = 0; i < components.length; i++) {
+      componentTypes[i] = components[i].getType();
+      fields[i] = fieldOf(columns[i], componentTypes[i]);
+    }
+    MethodHandle constructor;
+    try {
+      constructor = unreflect(type.getDeclaredConstructor(componentTypes));
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No canonical constructor: " + type.getName(), e);
+    }
+    // (List, ..., List)T collapsed into (List)T, passing the record to every accessor of fields
+    constructor = MethodHandles.filterArguments(constructor, 0, fields);
+    constructor =
+        components.length == 0
+            ? MethodHandles.dropArguments(constructor, 0, List.class)
+            : MethodHandles.permuteArguments(
+                constructor,
+                MethodType.methodType(type, List.class),
+                new int[components.length]);
+    return new RecordBinder<>(
+        constructor.asType(MethodType.methodType(Object.class, List.class)),
+        new MethodHandle[0]);
+  }
+
+  /** Returns the method handle of type {@code (List)T} that converts the field of the column. */
+  private static MethodHandle fieldOf(int column, Class<?> type) {
+    MethodHandle field =
+        MethodHandles.insertArguments(LIST_GET, 1, column)
+            .asType(MethodType.methodType(String.class, List.class));
+    return MethodHandles.filterReturnValue(field, FieldConverters.of(type));
+  }
+
+  private static MethodHandle unreflect(Method method) {
+    try {
+      method.trySetAccessible();
+      return MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Inaccessible method: " + method, e);
+    }
+  }
+
+  private static MethodHandle unreflect(Constructor<?> constructor) {
+    try {
+      constructor.trySetAccessible();
+      return MethodHandles.lookup().unreflectConstructor(constructor);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Inaccessible constructor: " + constructor, e);
+    }
+  }
+
+  /**
+   * Binds the record to an object.
+   *
+   * @param record the record to bind
+   * @return the object bound
+   * @throws IndexOutOfBoundsException if the record does not have a column bound
+   */
+  @SuppressWarnings("unchecked")
+  public T bind(List<String> record) {
+    try {
+      Object object = (Object) constructor.invokeExact(record);
+      for (MethodHandle setter : setters) {
+        setter.invokeExact(object, record);
+      }
+      return (T) object;
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Failed to bind record", e);
+    }
+  }
+}
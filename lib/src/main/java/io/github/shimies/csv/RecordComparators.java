@@ -0,0 +1,138 @@
+package io.github.shimies.csv;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Factory for creating comparators of records by key columns. Comparators can be chained with
+ * {@link Comparator#thenComparing(Comparator)} to sort by multiple key columns.
+ *
+ * <p>A column missing in a record, or a blank field of a typed column, is taken as no value, which
+ * comes before any other value. A field of a typed column that cannot be parsed as the type causes
+ * {@link NumberFormatException}.
+ *
+ * <p>The key of each record is extracted by parsing its field, which {@link CsvSorter} does once
+ * per record as it is read, rather than on every comparison. This holds for comparators chained by
+ * {@link Comparator#thenComparing(Comparator)} or reversed by {@link Comparator#reversed()} as
+ * well.
+ */
+public class RecordComparators {
+
+  /**
+   * Returns a comparator of records by the column in lexicographic order of strings.
+   *
+   * @param column the index of the key column
+   * @return a comparator of records
+   */
+  public static Comparator<List<String>> byColumn(int column) {
+    return byColumn(column, Comparator.naturalOrder());
+  }
+
+  /**
+   * Returns a comparator of records by the column in the order of the comparator of strings.
+   *
+   * @param column the index of the key column
+   * @param comparator the comparator of fields in the column
+   * @return a comparator of records
+   */
+  public static Comparator<List<String>> byColumn(
+      int column, Comparator<? super String> comparator) {
+    return new KeyedComparator(
+        record -> OperatorSupport.getField(record, column), Comparator.nullsFirst(comparator));
+  }
+
+  /**
+   * Returns a comparator of records by the column in numerical order of {@code long} values.
+   *
+   * @param column the index of the key column
+   * @return a comparator of records
+   */
+  public static Comparator<List<String>> byLongColumn(int column) {
+    return byTypedColumn(column, Long::valueOf);
+  }
+
+  /**
+   * Returns a comparator of records by the column in numerical order of {@code double} values.
+   *
+   * @param column the index of the key column
+   * @return a comparator of records
+   */
+  public static Comparator<List<String>> byDoubleColumn(int column) {
+    return byTypedColumn(column, Double::valueOf);
+  }
+
+  /**
+   * Returns a comparator of records by the column in numerical order of decimal values.
+   *
+   * @param column the index of the key column
+   * @return a comparator of records
+   */
+  public static Comparator<List<String>> byDecimalColumn(int column) {
+    return byTypedColumn(column, BigDecimal::new);
+  }
+
+  private static <T extends Comparable<? super T>> Comparator<List<String>> byTypedColumn(
+      int column, Function<String, T> parser) {
+    return new KeyedComparator(
+        record -> {
+          String field = OperatorSupport.getField(record, column);
+          return field == null || field.isBlank() ? null : parser.apply(field.strip());
+        },
+        Comparator.nullsFirst(Comparator.<T>naturalOrder()));
+  }
+
+  private RecordComparators() {}
+
+  /**
+   * Comparator of records by keys extracted from them, which can be extracted once per record to
+   * compare the keys instead of the records.
+   */
+  static final class KeyedComparator implements Comparator<List<String>> {
+
+    private final Function<List<String>, ?> keyExtractor;
+    private final Comparator<Object> keyComparator;
+
+    @SuppressWarnings("unchecked")
+    <T> KeyedComparator(
+        Function<List<String>, ? extends T> keyExtractor, Comparator<? super T> keyComparator) {
+      this.keyExtractor = keyExtractor;
+      this.keyComparator = (Comparator<Object>) keyComparator;
+    }
+
+    /** Returns the key of the record, which may be null. */
+    Object keyOf(List<String> record) {
+      return keyExtractor.apply(record);
+    }
+
+    /** Compares the keys extracted by {@link #keyOf(List)}. */
+    int compareKeys(Object a, Object b) {
+      return keyComparator.compare(a, b);
+    }
+
+    @Override
+    public int compare(List<String> a, List<String> b) {
+      return compareKeys(keyOf(a), keyOf(b));
+    }
+
+    @Override
+    public Comparator<List<String>> reversed() {
+      return new KeyedComparator(keyExtractor, keyComparator.reversed());
+    }
+
+    @Override
+    public Comparator<List<String>> thenComparing(Comparator<? super List<String>> other) {
+      if (!(other instanceof KeyedComparator)) {
+        return Comparator.super.thenComparing(other);
+      }
+      KeyedComparator that = (KeyedComparator) other;
+      return new KeyedComparator(
+          record -> new Object[] {keyOf(record), that.keyOf(record)},
+          (Object[] a, Object[] b) -> {
+            int c = compareKeys(a[0], b[0]);
+            return c != 0 ? c : that.compareKeys(a[1], b[1]);
+          });
+    }
+  }
+}
@@ -0,0 +1,115 @@
+package io.github.shimies.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A difference of a record between an old CSV and a new CSV, found by {@link CsvDiffer}.
+ *
+ * <p>A record is added if it is only in the new CSV, removed if it is only in the old CSV, and
+ * changed if both have it with different fields. Fields are compared column by column, where a
+ * column missing in one of the records differs from any field in the other.
+ */
+public final class RecordDiff {
+
+  /** Kind of difference. */
+  public enum Kind {
+    /** The record is only in the new CSV. */
+    ADDED,
+    /** The record is only in the old CSV. */
+    REMOVED,
+    /** The record is in both CSVs with different fields. */
+    CHANGED
+  }
+
+  private static final int[] NO_COLUMNS = new int[0];
+
+  private final Kind kind;
+  private final List<String> oldRecord;
+  private final List<String> newRecord;
+  private final int[] changedColumns;
+
+  private RecordDiff(
+      Kind kind, List<String> oldRecord, List<String> newRecord, int[] changedColumns) {
+    this.kind = kind;
+    this.oldRecord = oldRecord;
+    this.newRecord = newRecord;
+    this.changedColumns = changedColumns;
+  }
+
+  static RecordDiff added(List<String> newRecord) {
+    return new RecordDiff(Kind.ADDED, null, newRecord, NO_COLUMNS);
+  }
+
+  static RecordDiff removed(List<String> oldRecord) {
+    return new RecordDiff(Kind.REMOVED, oldRecord, null, NO_COLUMNS);
+  }
+
+  /** Returns the difference of the records, or {@code null} if they have the same fields. */
+  static RecordDiff changed(List<String> oldRecord, List<String> newRecord) {
+    int oldSize = oldRecord.size();
+    int newSize = newRecord.size();
+    List<Integer> columns = null;
+    for (int i = 0; i < Math.max(oldSize, newSize); i++) {
+      if (i >= oldSize || i >= newSize || !oldRecord.get(i).equals(newRecord.get(i))) {
+        if (columns == null) {
+          columns = new ArrayList<>();
+        }
+        columns.add(i);
+      }
+    }
+    if (columns == null) {
+      return null;
+    }
+    int[] changedColumns = columns.stream().mapToInt(Integer::intValue).toArray();
+    return new RecordDiff(Kind.CHANGED, oldRecord, newRecord, changedColumns);
+  }
+
+  /**
+   * Returns the kind of difference.
+   *
+   * @return the kind of difference
+   */
+  public Kind getKind() {
+    return kind;
+  }
+
+  /**
+   * Returns the record in the old CSV.
+   *
+   * @return the old record, or {@code null} if added
+   */
+  public List<String> getOldRecord() {
+    return oldRecord;
+  }
+
+  /**
+   * Returns the record in the new CSV.
+   *
+   * @return the new record, or {@code null} if removed
+   */
+  public List<String> getNewRecord() {
+    return newRecord;
+  }
+
+  /**
+   * Returns the indexes of the columns whose fields differ, in ascending order.
+   *
+   * @return the indexes of the changed columns, which is empty unless changed
+   */
+  public int[] getChangedColumns() {
+    return changedColumns.clone();
+  }
+
+  @Override
+  public String toString() {
+    switch (kind) {
+      case ADDED:
+        return "+" + newRecord;
+      case REMOVED:
+        return "-" + oldRecord;
+      default:
+        return "~" + oldRecord + " -> " + newRecord;
+    }
+  }
+}
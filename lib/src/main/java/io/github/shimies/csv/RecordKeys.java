@@ -0,0 +1,90 @@
+package io.github.shimies.csv;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keys of records by columns, for the operators that group or match records by keys.
+ *
+ * <p>A key of a single column is the field as is. A key of multiple columns, as well as a record
+ * packed as a whole, is encoded into a single string, where each field is prefixed by its length in
+ * two chars, so that no two sequences of fields share an encoding.
+ */
+final class RecordKeys {
+
+  private RecordKeys() {}
+
+  /**
+   * Returns the key of the record by the columns. A column missing in the record is taken as an
+   * empty field, so that every record has a key.
+   */
+  static String keyOf(List<String> record, int[] columns) {
+    if (columns.length == 1) {
+      return OperatorSupport.getFieldOrEmpty(record, columns[0]);
+    }
+    StringBuilder sb = new StringBuilder();
+    for (int column : columns) {
+      appendPacked(OperatorSupport.getFieldOrEmpty(record, column), sb);
+    }
+    return sb.toString();
+  }
+
+  /** Adds the fields of the key by the number of columns to the list. */
+  static void addFieldsOf(String key, int columnCount, List<String> fields) {
+    if (columnCount == 1) {
+      fields.add(key);
+    } else {
+      unpack(key, fields);
+    }
+  }
+
+  /** Returns the hash of the key, which is well mixed to take any bits of it. */
+  static int hash(String key) {
+    int h = key.hashCode() * 0x9e3779b9;
+    return h ^ (h >>> 16);
+  }
+
+  /**
+   * Returns the 64-bit fingerprint of the key, which is never 0, by FNV-1a over its chars followed
+   * by the finalizer of MurmurHash3.
+   */
+  static long fingerprint(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h = (h ^ key.charAt(i)) * 0x100000001b3L;
+    }
+    h = (h ^ (h >>> 33)) * 0xff51afd7ed558ccdL;
+    h = (h ^ (h >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == 0 ? 1 : h;
+  }
+
+  /** Packs all fields of the record into a single string. */
+  static String pack(List<String> record) {
+    StringBuilder sb = new StringBuilder();
+    for (String field : record) {
+      appendPacked(field, sb);
+    }
+    return sb.toString();
+  }
+
+  /** Unpacks the fields of a record packed into a single string. */
+  static List<String> unpack(String packed) {
+    List<String> fields = new ArrayList<>();
+    unpack(packed, fields);
+    return fields;
+  }
+
+  private static void unpack(String packed, List<String> fields) {
+    int i = 0;
+    while (i < packed.length()) {
+      int length = packed.charAt(i) << 16 | packed.charAt(i + 1);
+      fields.add(packed.substring(i + 2, i + 2 + length));
+      i += 2 + length;
+    }
+  }
+
+  private static void appendPacked(String field, StringBuilder sb) {
+    sb.append((char) (field.length() >>> 16)).append((char) field.length()).append(field);
+  }
+}
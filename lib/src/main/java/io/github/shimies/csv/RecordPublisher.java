@@ -0,0 +1,164 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link Flow.Publisher} of the remaining records of a {@link RecordReader}, which reads records
+ * only as many as requested by the subscriber, so that slow subscribers hold back reading instead
+ * of records piling up in memory.
+ *
+ * <p>Records are read and signaled on the executor, which should allow blocking, as reading may
+ * block on I/O. A run of records is read by a single task, which ends once the demand is met and a
+ * new one is started by the next request. The publisher completes as soon as the last record is
+ * signaled, and passes an error thrown by the reader on to {@link
+ * Flow.Subscriber#onError(Throwable)}.
+ *
+ * <p>Only a single subscriber can subscribe, as the records are read only once. The reader is not
+ * closed by the publisher.
+ */
+public class RecordPublisher implements Flow.Publisher<List<String>> {
+
+  private final RecordReader reader;
+  private final Executor executor;
+  private final AtomicBoolean isSubscribed = new AtomicBoolean();
+
+  /**
+   * Constructs a publisher of the remaining records of the reader.
+   *
+   * @param reader the record reader to read records from
+   * @param executor the executor to read and signal records on
+   */
+  public RecordPublisher(RecordReader reader, Executor executor) {
+    this.reader = Objects.requireNonNull(reader);
+    this.executor = Objects.requireNonNull(executor);
+  }
+
+  /**
+   * Subscribes the subscriber to the records. A subscriber after the first one is signaled {@link
+   * IllegalStateException} as an error.
+   *
+   * @param subscriber the subscriber to signal records to
+   */
+  @Override
+  public void subscribe(Flow.Subscriber<? super List<String>> subscriber) {
+    Objects.requireNonNull(subscriber);
+    if (isSubscribed.getAndSet(true)) {
+      subscriber.onSubscribe(
+          new Flow.Subscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {}
+          });
+      subscriber.onError(new IllegalStateException("Already subscribed"));
+      return;
+    }
+    subscriber.onSubscribe(new Subscription(subscriber));
+  }
+
+  /** Adds the demands, capped at {@link Long#MAX_VALUE}, which is taken as unbounded. */
+  private static long addCapped(long current, long added) {
+    long sum = current + added;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  /**
+   * Subscription that reads records on the executor while there is outstanding demand. The demand
+   * is increased by requests, and decreased by the task reading records only after it has read
+   * them, so that a task is started only by a request that finds no demand, and at most one task
+   * runs at a time.
+   */
+  private final class Subscription implements Flow.Subscription {
+
+    private final Flow.Subscriber<? super List<String>> subscriber;
+    private final AtomicLong demand = new AtomicLong();
+    private volatile boolean isTerminated = false;
+    private volatile Throwable invalidRequest;
+
+    Subscription(Flow.Subscriber<? super List<String>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        // signaled by the task, not to signal it concurrently with records
+        invalidRequest = new IllegalArgumentException("Non-positive request: " + n);
+        n = Long.MAX_VALUE;
+      }
+      long previous = demand.getAndAccumulate(n, RecordPublisher::addCapped);
+      if (previous == 0) {
+        try {
+          executor.execute(this::publish);
+        } catch (RejectedExecutionException e) {
+          terminate(e);
+        }
+      }
+    }
+
+    @Override
+    public void cancel() {
+      isTerminated = true;
+    }
+
+    private void publish() {
+      try {
+        long emitted = 0;
+        while (true) {
+          long requested = demand.get();
+          while (emitted < requested) {
+            if (checkTerminated()) {
+              return;
+            }
+            subscriber.onNext(reader.readRecord());
+            emitted++;
+          }
+          if (checkTerminated()) {
+            return;
+          }
+          if (demand.addAndGet(-emitted) == 0) {
+            return;
+          }
+          emitted = 0;
+        }
+      } catch (IOException | RuntimeException e) {
+        terminate(e);
+      }
+    }
+
+    /**
+     * Checks whether no more record is signaled, signaling an invalid request as an error or the
+     * completion if there is no more record.
+     */
+    private boolean checkTerminated() {
+      if (isTerminated) {
+        return true;
+      }
+      if (invalidRequest != null) {
+        terminate(invalidRequest);
+        return true;
+      }
+      if (!reader.hasMoreRecord()) {
+        isTerminated = true;
+        subscriber.onComplete();
+        return true;
+      }
+      return false;
+    }
+
+    private void terminate(Throwable throwable) {
+      if (!isTerminated) {
+        isTerminated = true;
+        subscriber.onError(throwable);
+      }
+    }
+  }
+}
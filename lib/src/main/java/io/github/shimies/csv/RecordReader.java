@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * A CSV record reader that reads a record from a specific source sequentially. Classes implementing
@@ -39,4 +40,81 @@ public interface RecordReader {
     }
     return Collections.unmodifiableList(records);
   }
+
+  /**
+   * Skips the specified number of records, or all remaining records if fewer. Skipped records are
+   * validated as if they were read.
+   *
+   * <p>The default implementation reads the records and discards them. Implementations may
+   * override this to advance over records by their structure, without creating their fields.
+   *
+   * @param n the number of records to skip
+   * @return the number of records actually skipped
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalArgumentException if the number is negative
+   */
+  default long skipRecords(long n) throws IOException {
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative number of records: " + n);
+    }
+    long skipped = 0;
+    while (skipped < n && hasMoreRecord()) {
+      readRecord();
+      skipped++;
+    }
+    return skipped;
+  }
+
+  /**
+   * Returns a {@link RecordReader} that reads the next record and every record at the specified
+   * interval after it from this reader, skipping the others by {@link #skipRecords(long)}. The
+   * records after each one read are skipped as it is read, so that errors in them are thrown by
+   * reading it.
+   *
+   * @param interval the interval of records to read, where 1 reads every record
+   * @return an instance of {@link RecordReader}
+   * @throws IllegalArgumentException if the interval is not positive
+   */
+  default RecordReader sampleEvery(long interval) {
+    if (interval <= 0) {
+      throw new IllegalArgumentException("Non-positive interval: " + interval);
+    }
+    return new SampledRecordReaderImpl(this, interval);
+  }
+
+  /**
+   * Reads a uniform random sample of the specified number of records from the remaining records,
+   * or all of them if fewer, in no particular order. Records out of the sample are skipped by
+   * {@link #skipRecords(long)} in runs of random lengths, as in reservoir sampling by Algorithm L.
+   *
+   * @param size the number of records to sample
+   * @param random the random number generator to use
+   * @return a {@link List} of the sampled records
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalArgumentException if the size is negative
+   */
+  default List<List<String>> sampleRecords(int size, RandomGenerator random) throws IOException {
+    if (size < 0) {
+      throw new IllegalArgumentException("Negative sample size: " + size);
+    }
+    List<List<String>> reservoir = new ArrayList<>();
+    while (reservoir.size() < size && hasMoreRecord()) {
+      reservoir.add(readRecord());
+    }
+    if (size == 0) {
+      return List.of();
+    }
+    // the weight is the largest of the random keys in the reservoir, of which the next larger one
+    // is as many records ahead as the geometric distribution gives
+    double weight = Math.exp(Math.log(random.nextDouble()) / size);
+    while (hasMoreRecord()) {
+      long skip = (long) Math.floor(Math.log(random.nextDouble()) / Math.log1p(-weight));
+      if (skipRecords(skip) < skip || !hasMoreRecord()) {
+        break;
+      }
+      reservoir.set(random.nextInt(size), readRecord());
+      weight *= Math.exp(Math.log(random.nextDouble()) / size);
+    }
+    return Collections.unmodifiableList(reservoir);
+  }
 }
@@ -0,0 +1,322 @@
+package io.github.shimies.csv;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A serializer of objects of a Java record class or a bean class to CSV records, the writing
+ * counterpart of {@link RecordBinder}.
+ *
+ * <p>Columns are bound to the components of a record class of the same names, or in order of
+ * components if no header is given, through their accessors. Columns are bound to the properties of
+ * a bean class of the same names through their getters, {@code getXxx()} or {@code isXxx()}.
+ *
+ * <p>Accessors and getters are resolved once into method handles, so that nothing is reflected per
+ * object. Columns of {@code int}, {@code short}, {@code byte}, {@code long} and {@code double} are
+ * typed as such, whose values can be taken as primitives without boxing and formatted without
+ * escaping. The other columns are typed as strings, whose values are formatted in the forms {@link
+ * RecordBinder} converts fields from: enums by their constant names, {@code null} as an empty
+ * field, and the others by {@link Object#toString()}.
+ *
+ * <p>{@link RecordSerializer} is immutable, and can be used to serialize objects from multiple
+ * threads.
+ *
+ * @param <T> the type of objects to serialize
+ */
+public final class RecordSerializer<T> {
+
+  /** Type of a column, which tells the accessor to take its values with. */
+  public enum ColumnType {
+    /** Column of {@code int}, {@code short} or {@code byte}. */
+    INT,
+    /** Column of {@code long}. */
+    LONG,
+    /** Column of {@code double}. */
+    DOUBLE,
+    /** Column of any other type, formatted into strings. */
+    STRING
+  }
+
+  private static final MethodHandle FORMAT;
+  private static final MethodHandle FLOAT_TO_STRING;
+  private static final MethodHandle BOOLEAN_TO_STRING;
+  private static final MethodHandle CHAR_TO_STRING;
+
+  static {
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      FORMAT =
+          lookup.findStatic(
+              RecordSerializer.class,
+              "format",
+              MethodType.methodType(String.class, Object.class));
+      FLOAT_TO_STRING =
+          lookup.findStatic(
+              String.class, "valueOf", MethodType.methodType(String.class, float.class));
+      BOOLEAN_TO_STRING =
+          lookup.findStatic(
+              String.class, "valueOf", MethodType.methodType(String.class, boolean.class));
+      CHAR_TO_STRING =
+          lookup.findStatic(
+              String.class, "valueOf", MethodType.methodType(String.class, char.class));
+    } catch (ReflectiveOperationException e) {
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private final Header header;
+  private final ColumnType[] columnTypes;
+  private final MethodHandle[] accessors;
+
+  private RecordSerializer(Header header, List<MethodHandle> getters) {
+    this.header = header;
+    this.columnTypes = new ColumnType[getters.size()];
+    this.accessors = new MethodHandle[getters.size()];
+    for (int i = 0; i < accessors.length; i++) {
+      MethodHandle getter = getters.get(i);
+      Class<?> type = getter.type().returnType();
+      if (type == int.class || type == short.class || type == byte.class) {
+        columnTypes[i] = ColumnType.INT;
+        getter = getter.asType(MethodType.methodType(int.class, Object.class));
+      } else if (type == long.class) {
+        columnTypes[i] = ColumnType.LONG;
+      } else if (type == double.class) {
+        columnTypes[i] = ColumnType.DOUBLE;
+      } else {
+        columnTypes[i] = ColumnType.STRING;
+        getter = MethodHandles.filterReturnValue(getter, toStringOf(type));
+      }
+      accessors[i] = getter.asType(getter.type().changeParameterType(0, Object.class));
+    }
+  }
+
+  /**
+   * Returns a serializer of objects of the record class, binding the columns to its components in
+   * order of components, named after them.
+   *
+   * @param <T> the type of objects to serialize
+   * @param type the record class
+   * @return an instance of {@link RecordSerializer}
+   * @throws IllegalArgumentException if the type is not a record class
+   */
+  public static <T> RecordSerializer<T> of(Class<T> type) {
+    if (!type.isRecord()) {
+      throw new IllegalArgumentException("Not a record class: " + type.getName());
+    }
+    List<String> names = new ArrayList<>();
+    List<MethodHandle> getters = new ArrayList<>();
+    for (RecordComponent component : type.getRecordComponents()) {
+      names.add(component.getName());
+      getters.add(unreflect(component.getAccessor()));
+    }
+    return new RecordSerializer<>(Header.of(names), getters);
+  }
+
+  /**
+   * Returns a serializer of objects of the record class or the bean class, binding the columns of
+   * the header to its components or properties of the same names.
+   *
+   * @param <T> the type of objects to serialize
+   * @param type the record class or the bean class
+   * @param header the header of records to serialize objects to
+   * @return an instance of {@link RecordSerializer}
+   * @throws IllegalArgumentException if a column has no component or property
+   */
+  public static <T> RecordSerializer<T> of(Class<T> type, Header header) {
+    List<MethodHandle> getters = new ArrayList<>();
+    for (String name : header.names()) {
+      Method getter = getterOf(type, name);
+      if (getter == null) {
+        throw new IllegalArgumentException("No component or property for column: " + name);
+      }
+      getters.add(unreflect(getter));
+    }
+    return new RecordSerializer<>(header, getters);
+  }
+
+  private static Method getterOf(Class<?> type, String name) {
+    if (type.isRecord()) {
+      for (RecordComponent component : type.getRecordComponents()) {
+        if (component.getName().equals(name)) {
+          return component.getAccessor();
+        }
+      }
+      return null;
+    }
+    if (name.isEmpty()) {
+      return null;
+    }
+    String capitalized = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    for (String prefix : new String[] {"get", "is"}) {
+      try {
+        Method method = type.getMethod(prefix + capitalized);
+        if (method.getReturnType() != void.class) {
+          return method;
+        }
+      } catch (NoSuchMethodException e) {
+        // try the next prefix
+      }
+    }
+    return null;
+  }
+
+  private static MethodHandle unreflect(Method method) {
+    try {
+      method.trySetAccessible();
+      return MethodHandles.lookup().unreflect(method);
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Inaccessible method: " + method, e);
+    }
+  }
+
+  /** Returns the method handle of type {@code (T)String} that formats values of the type. */
+  private static MethodHandle toStringOf(Class<?> type) {
+    if (type == float.class) {
+      return FLOAT_TO_STRING;
+    } else if (type == boolean.class) {
+      return BOOLEAN_TO_STRING;
+    } else if (type == char.class) {
+      return CHAR_TO_STRING;
+    }
+    return FORMAT.asType(MethodType.methodType(String.class, type));
+  }
+
+  private static String format(Object value) {
+    if (value == null) {
+      return "";
+    } else if (value instanceof Enum) {
+      return ((Enum<?>) value).name();
+    }
+    return value.toString();
+  }
+
+  /**
+   * Returns the header of records to serialize objects to.
+   *
+   * @return the header
+   */
+  public Header getHeader() {
+    return header;
+  }
+
+  /**
+   * Returns the type of the column.
+   *
+   * @param column the index of the column
+   * @return the type of the column
+   */
+  public ColumnType getColumnType(int column) {
+    return columnTypes[column];
+  }
+
+  /**
+   * Returns the value of the column of type {@link ColumnType#INT} of the object.
+   *
+   * @param object the object to serialize
+   * @param column the index of the column
+   * @return the value of the column
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public int getInt(T object, int column) {
+    checkColumnType(column, ColumnType.INT);
+    try {
+      return (int) accessors[column].invokeExact((Object) object);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Returns the value of the column of type {@link ColumnType#LONG} of the object.
+   *
+   * @param object the object to serialize
+   * @param column the index of the column
+   * @return the value of the column
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public long getLong(T object, int column) {
+    checkColumnType(column, ColumnType.LONG);
+    try {
+      return (long) accessors[column].invokeExact((Object) object);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Returns the value of the column of type {@link ColumnType#DOUBLE} of the object.
+   *
+   * @param object the object to serialize
+   * @param column the index of the column
+   * @return the value of the column
+   * @throws IllegalArgumentException if the column is of another type
+   */
+  public double getDouble(T object, int column) {
+    checkColumnType(column, ColumnType.DOUBLE);
+    try {
+      return (double) accessors[column].invokeExact((Object) object);
+    } catch (Throwable e) {
+      throw rethrow(e);
+    }
+  }
+
+  /**
+   * Returns the value of the column of the object formatted into a string, which is the field of
+   * the column. The column may be of any type.
+   *
+   * @param object the object to serialize
+   * @param column the index of the column
+   * @return the field of the column
+   */
+  public String getString(T object, int column) {
+    switch (columnTypes[column]) {
+      case INT:
+        return Integer.toString(getInt(object, column));
+      case LONG:
+        return Long.toString(getLong(object, column));
+      case DOUBLE:
+        return Double.toString(getDouble(object, column));
+      default:
+        try {
+          return (String) accessors[column].invokeExact((Object) object);
+        } catch (Throwable e) {
+          throw rethrow(e);
+        }
+    }
+  }
+
+  /**
+   * Serializes the object to a record.
+   *
+   * @param object the object to serialize
+   * @return the record as an unmodifiable {@link List} of fields
+   */
+  public List<String> toRecord(T object) {
+    List<String> record = new ArrayList<>(accessors.length);
+    for (int i = 0; i < accessors.length; i++) {
+      record.add(getString(object, i));
+    }
+    return Collections.unmodifiableList(record);
+  }
+
+  private void checkColumnType(int column, ColumnType type) {
+    if (columnTypes[column] != type) {
+      throw new IllegalArgumentException("Column of type " + columnTypes[column] + ": " + column);
+    }
+  }
+
+  private static RuntimeException rethrow(Throwable e) {
+    if (e instanceof RuntimeException) {
+      return (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    }
+    return new IllegalStateException("Failed to serialize object", e);
+  }
+}
@@ -0,0 +1,124 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * A {@link Flow.Subscriber} of records that writes them through a {@link RecordWriter} in batches.
+ * It requests a batch of records at a time, and writes them all at once when the batch is full
+ * before requesting the next one, so that no more records than a batch are held in memory.
+ *
+ * <p>The number of records written is given by {@link #getWrittenRecordCount()} on completion. On
+ * an error from the publisher, the records received are written before the error is passed on to
+ * it. An error thrown by the writer fails the subscriber, and cancels the subscription unless the
+ * publisher has already completed or failed. The writer is not closed by the subscriber.
+ */
+public class RecordSubscriber implements Flow.Subscriber<List<String>> {
+
+  private final RecordWriter writer;
+  private final int batchSize;
+  private final CompletableFuture<Long> writtenRecordCount = new CompletableFuture<>();
+  private final List<List<String>> batch;
+  private Flow.Subscription subscription;
+  private long recordCount = 0;
+
+  /**
+   * Constructs a subscriber that writes records through the writer in batches of the size.
+   *
+   * @param writer the record writer to write records through
+   * @param batchSize the number of records to request and write at a time
+   * @throws IllegalArgumentException if the batch size is not positive
+   */
+  public RecordSubscriber(RecordWriter writer, int batchSize) {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("Non-positive batch size: " + batchSize);
+    }
+    this.writer = Objects.requireNonNull(writer);
+    this.batchSize = batchSize;
+    this.batch = new ArrayList<>(batchSize);
+  }
+
+  /**
+   * Returns the future number of records written, which completes once the publisher completes, or
+   * fails with the error from the publisher or the writer.
+   *
+   * @return a {@link CompletableFuture} of the number of records written
+   */
+  public CompletableFuture<Long> getWrittenRecordCount() {
+    return writtenRecordCount.copy();
+  }
+
+  /**
+   * Requests the first batch of records, unless already subscribed to another publisher, in which
+   * case the subscription is cancelled.
+   *
+   * @param subscription the subscription to request records by
+   */
+  @Override
+  public void onSubscribe(Flow.Subscription subscription) {
+    Objects.requireNonNull(subscription);
+    if (this.subscription != null) {
+      subscription.cancel();
+      return;
+    }
+    this.subscription = subscription;
+    subscription.request(batchSize);
+  }
+
+  @Override
+  public void onNext(List<String> record) {
+    Objects.requireNonNull(record);
+    if (writtenRecordCount.isDone()) {
+      return;
+    }
+    batch.add(record);
+    if (batch.size() < batchSize) {
+      return;
+    }
+    if (writeBatch()) {
+      subscription.request(batchSize);
+    } else {
+      // cancelled only here, as it must not be once the publisher has completed or failed
+      subscription.cancel();
+    }
+  }
+
+  @Override
+  public void onError(Throwable throwable) {
+    Objects.requireNonNull(throwable);
+    if (writeBatch()) {
+      writtenRecordCount.completeExceptionally(throwable);
+    }
+  }
+
+  @Override
+  public void onComplete() {
+    if (writeBatch()) {
+      writtenRecordCount.complete(recordCount);
+    }
+  }
+
+  /**
+   * Writes the records of the batch, failing on an error.
+   *
+   * @return true if the records are written
+   */
+  private boolean writeBatch() {
+    if (writtenRecordCount.isDone()) {
+      return false;
+    }
+    try {
+      writer.writeAllRecords(batch);
+      recordCount += batch.size();
+      batch.clear();
+      return true;
+    } catch (IOException | RuntimeException e) {
+      writtenRecordCount.completeExceptionally(e);
+      return false;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * A {@link RecordReader} that can be reset to read records from another source, so that its
+ * buffers are reused across many small CSVs instead of being allocated for each of them. A reader
+ * that has never been reset has no record to read.
+ */
+public interface ReusableRecordReader extends RecordReader {
+
+  /**
+   * Resets this reader to read records from the beginning of the specified reader, as a newly
+   * created one would. Whatever is left unread of the previous source is discarded, which is not
+   * closed by this method.
+   *
+   * @param reader the reader to read records from
+   * @throws IOException if an I/O error occurs
+   */
+  void reset(Reader reader) throws IOException;
+}
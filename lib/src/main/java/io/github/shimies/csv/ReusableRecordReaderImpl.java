@@ -0,0 +1,40 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Default implementation of {@link ReusableRecordReader} decorating a {@link RecordReader} newly
+ * created by the parser for each source.
+ */
+final class ReusableRecordReaderImpl implements ReusableRecordReader {
+
+  private final CsvParser parser;
+  private RecordReader reader;
+
+  ReusableRecordReaderImpl(CsvParser parser) throws IOException {
+    this.parser = parser;
+    this.reader = parser.newRecordReader(Reader.nullReader());
+  }
+
+  @Override
+  public void reset(Reader reader) throws IOException {
+    this.reader = parser.newRecordReader(reader);
+  }
+
+  @Override
+  public boolean hasMoreRecord() {
+    return reader.hasMoreRecord();
+  }
+
+  @Override
+  public List<String> readRecord() throws IOException {
+    return reader.readRecord();
+  }
+
+  @Override
+  public long skipRecords(long n) throws IOException {
+    return reader.skipRecords(n);
+  }
+}
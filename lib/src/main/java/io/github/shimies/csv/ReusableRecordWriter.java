@@ -0,0 +1,21 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A {@link RecordWriter} that can be reset to write records into another destination, so that its
+ * buffers are reused across many small CSVs instead of being allocated for each of them. A writer
+ * that has never been reset discards records written into it.
+ */
+public interface ReusableRecordWriter extends RecordWriter {
+
+  /**
+   * Resets this writer to write records into the specified writer, as a newly created one would.
+   * The previous destination is neither flushed nor closed by this method.
+   *
+   * @param writer the writer to write records into
+   * @throws IOException if an I/O error occurs
+   */
+  void reset(Writer writer) throws IOException;
+}
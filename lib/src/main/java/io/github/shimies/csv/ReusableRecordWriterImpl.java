@@ -0,0 +1,41 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Default implementation of {@link ReusableRecordWriter} decorating a {@link RecordWriter} newly
+ * created by the formatter for each destination.
+ */
+final class ReusableRecordWriterImpl implements ReusableRecordWriter {
+
+  private final CsvFormatter formatter;
+  private RecordWriter writer;
+
+  ReusableRecordWriterImpl(CsvFormatter formatter) throws IOException {
+    this.formatter = formatter;
+    this.writer = formatter.newRecordWriter(Writer.nullWriter());
+  }
+
+  @Override
+  public void reset(Writer writer) throws IOException {
+    this.writer = formatter.newRecordWriter(writer);
+  }
+
+  @Override
+  public void writeRecord(List<String> record) throws IOException {
+    writer.writeRecord(record);
+  }
+
+  @Override
+  public void writeAllRecords(Reader reader, CsvParser parser) throws IOException {
+    writer.writeAllRecords(reader, parser);
+  }
+
+  @Override
+  public void writeAllRecords(Iterable<List<String>> records) throws IOException {
+    writer.writeAllRecords(records);
+  }
+}
@@ -0,0 +1,44 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * {@link RecordReader} decorating a {@link RecordReader} that reads every record at an interval,
+ * skipping the others.
+ */
+final class SampledRecordReaderImpl implements RecordReader {
+
+  private final RecordReader reader;
+  private final long interval;
+
+  SampledRecordReaderImpl(RecordReader reader, long interval) {
+    this.reader = reader;
+    this.interval = interval;
+  }
+
+  @Override
+  public boolean hasMoreRecord() {
+    return reader.hasMoreRecord();
+  }
+
+  @Override
+  public List<String> readRecord() throws IOException {
+    List<String> record = reader.readRecord();
+    reader.skipRecords(interval - 1);
+    return record;
+  }
+
+  @Override
+  public long skipRecords(long n) throws IOException {
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative number of records: " + n);
+    }
+    long skipped = 0;
+    while (skipped < n && reader.hasMoreRecord()) {
+      reader.skipRecords(interval);
+      skipped++;
+    }
+    return skipped;
+  }
+}
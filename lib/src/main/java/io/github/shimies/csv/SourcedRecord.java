@@ -0,0 +1,58 @@
+package io.github.shimies.csv;
+
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable CSV record read along with the file it comes from and the line it begins on, so that
+ * records merged from multiple files can be traced back to their sources.
+ */
+public final class SourcedRecord extends AbstractList<String> implements RandomAccess {
+
+  private final List<String> fields;
+  private final Path source;
+  private final int lineNo;
+
+  /**
+   * Constructs.
+   *
+   * @param fields the fields of the record, which must not be modified afterwards
+   * @param source the file the record comes from
+   * @param lineNo the line number the record begins on, or -1 if unknown
+   */
+  public SourcedRecord(List<String> fields, Path source, int lineNo) {
+    this.fields = fields;
+    this.source = source;
+    this.lineNo = lineNo;
+  }
+
+  /**
+   * Returns the file the record comes from.
+   *
+   * @return the {@link Path} to the file
+   */
+  public Path getSource() {
+    return source;
+  }
+
+  /**
+   * Returns the line number the record begins on in the file.
+   *
+   * @return the line number, or -1 if unknown
+   */
+  public int getLineNumber() {
+    return lineNo;
+  }
+
+  @Override
+  public String get(int index) {
+    return fields.get(index);
+  }
+
+  @Override
+  public int size() {
+    return fields.size();
+  }
+}
@@ -0,0 +1,29 @@
+package io.github.shimies.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A {@link RecordReader} that reads records from multiple files as one merged sequence of {@link
+ * SourcedRecord}, each of which tells the file and the line it comes from. Readers that parse
+ * files in the background must be closed if not read to the end, so as to stop parsing.
+ */
+public interface SourcedRecordReader extends RecordReader, Closeable {
+
+  /**
+   * Reads the next CSV record from the files.
+   *
+   * @return the next record as a {@link SourcedRecord}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  SourcedRecord readRecord() throws IOException;
+
+  /**
+   * Stops reading records, and releases the files and the threads being used.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  void close() throws IOException;
+}
@@ -0,0 +1,82 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Default implementation of {@link SourcedRecordReader} decorating {@link RecordReader}s of the
+ * files, which are read one after another on the calling thread. Line numbers are unknown.
+ */
+final class SourcedRecordReaderImpl implements SourcedRecordReader {
+
+  private final CsvParser parser;
+  private final Charset cs;
+  private final Iterator<Path> paths;
+  private Path source;
+  private InputStream in;
+  private RecordReader reader;
+
+  SourcedRecordReaderImpl(CsvParser parser, List<Path> paths, Charset cs) throws IOException {
+    this.parser = parser;
+    this.cs = cs;
+    this.paths = List.copyOf(paths).iterator();
+    advance();
+  }
+
+  @Override
+  public boolean hasMoreRecord() {
+    return reader != null;
+  }
+
+  @Override
+  public SourcedRecord readRecord() throws IOException {
+    if (reader == null) {
+      throw new NoSuchElementException("No more record");
+    }
+    SourcedRecord record = new SourcedRecord(reader.readRecord(), source, -1);
+    advance();
+    return record;
+  }
+
+  @Override
+  public long skipRecords(long n) throws IOException {
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative number of records: " + n);
+    }
+    long skipped = 0;
+    while (skipped < n && reader != null) {
+      skipped += reader.skipRecords(n - skipped);
+      advance();
+    }
+    return skipped;
+  }
+
+  /** Moves on to the next file that has records unless the current one has more. */
+  private void advance() throws IOException {
+    while (reader == null || !reader.hasMoreRecord()) {
+      close();
+      if (!paths.hasNext()) {
+        return;
+      }
+      source = paths.next();
+      in = Files.newInputStream(source);
+      reader = parser.newRecordReader(in, cs);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader = null;
+    if (in != null) {
+      InputStream opened = in;
+      in = null;
+      opened.close();
+    }
+  }
+}
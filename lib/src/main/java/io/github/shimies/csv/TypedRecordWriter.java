@@ -0,0 +1,79 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+
+/**
+ * A {@link RecordWriter} that also writes a record field by field, taking numbers as primitives so
+ * that callers need not build a {@link java.util.List} and a {@link String} for each of them.
+ *
+ * <p>A record is written by {@link #startRecord()}, followed by a method writing each field in
+ * order, and then {@link #endRecord()}. A record without fields is not written at all, as {@link
+ * #writeRecord(java.util.List)} does not write an empty record. Writing fields outside a record or
+ * starting a record inside another one is reported as {@link IllegalStateException}.
+ */
+public interface TypedRecordWriter extends RecordWriter {
+
+  /**
+   * Starts a record.
+   *
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if a record has already been started
+   */
+  void startRecord() throws IOException;
+
+  /**
+   * Writes an {@code int} field into the record.
+   *
+   * @param value the value of the field
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   */
+  void writeInt(int value) throws IOException;
+
+  /**
+   * Writes a {@code long} field into the record.
+   *
+   * @param value the value of the field
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   */
+  void writeLong(long value) throws IOException;
+
+  /**
+   * Writes a {@code double} field into the record, formatted as by {@link Double#toString(double)}.
+   *
+   * @param value the value of the field
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   */
+  void writeDouble(double value) throws IOException;
+
+  /**
+   * Writes a string field into the record.
+   *
+   * @param value the value of the field
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   */
+  void writeString(String value) throws IOException;
+
+  /**
+   * Writes a field of the characters in the range of the array into the record.
+   *
+   * @param value the array of characters
+   * @param offset the index of the first character of the field
+   * @param length the number of characters of the field
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   * @throws IndexOutOfBoundsException if the range is out of the bounds of the array
+   */
+  void writeCharSequence(char[] value, int offset, int length) throws IOException;
+
+  /**
+   * Ends the record, writing it into the destination.
+   *
+   * @throws IOException if an I/O error occurs
+   * @throws IllegalStateException if no record has been started
+   */
+  void endRecord() throws IOException;
+}
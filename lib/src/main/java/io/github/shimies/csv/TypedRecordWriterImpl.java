@@ -0,0 +1,76 @@
+package io.github.shimies.csv;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Default implementation of {@link TypedRecordWriter} decorating a {@link RecordWriter}, which
+ * collects the fields of each record into a list.
+ */
+final class TypedRecordWriterImpl implements TypedRecordWriter {
+
+  private final RecordWriter writer;
+  private List<String> fields;
+
+  TypedRecordWriterImpl(RecordWriter writer) {
+    this.writer = writer;
+  }
+
+  @Override
+  public void writeRecord(List<String> record) throws IOException {
+    if (fields != null) {
+      throw new IllegalStateException("Record already started");
+    }
+    writer.writeRecord(record);
+  }
+
+  @Override
+  public void startRecord() {
+    if (fields != null) {
+      throw new IllegalStateException("Record already started");
+    }
+    fields = new ArrayList<>();
+  }
+
+  @Override
+  public void writeInt(int value) {
+    writeString(Integer.toString(value));
+  }
+
+  @Override
+  public void writeLong(long value) {
+    writeString(Long.toString(value));
+  }
+
+  @Override
+  public void writeDouble(double value) {
+    writeString(Double.toString(value));
+  }
+
+  @Override
+  public void writeString(String value) {
+    requireRecordStarted().add(value);
+  }
+
+  @Override
+  public void writeCharSequence(char[] value, int offset, int length) {
+    Objects.checkFromIndexSize(offset, length, value.length);
+    requireRecordStarted().add(new String(value, offset, length));
+  }
+
+  @Override
+  public void endRecord() throws IOException {
+    List<String> record = requireRecordStarted();
+    fields = null;
+    writer.writeRecord(record);
+  }
+
+  private List<String> requireRecordStarted() {
+    if (fields == null) {
+      throw new IllegalStateException("No record started");
+    }
+    return fields;
+  }
+}
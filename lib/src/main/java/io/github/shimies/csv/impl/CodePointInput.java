@@ -0,0 +1,428 @@
+package io.github.shimies.csv.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.MalformedInputException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered source of Unicode code points for tokenizers, which also lets runs of characters without
+ * any special meaning in CSVs be consumed in bulk directly from its buffer.
+ *
+ * <p>The bulk operations only consume what is already buffered, and never refill the buffer. They
+ * may thus stop earlier than the end of the run, in which case the rest is read by {@link #read()}.
+ */
+abstract class CodePointInput {
+
+  static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Creates an input that reads characters from the reader.
+   *
+   * @param reader the reader to read characters from
+   * @param delimiter the field delimiter
+   * @return an instance of {@link CodePointInput}
+   */
+  static CodePointInput of(Reader reader, int delimiter) {
+    return new CharInput(reader, delimiter);
+  }
+
+  /**
+   * Creates an input that reads bytes from the input stream and decodes them in the charset. Bytes
+   * in US-ASCII, ISO-8859-1 and UTF-8 are scanned directly, a word at a time, and decoded only
+   * where needed, instead of through a {@link java.nio.charset.CharsetDecoder}.
+   *
+   * @param in the input stream to read bytes from
+   * @param cs the charset to decode bytes in
+   * @param delimiter the field delimiter
+   * @return an instance of {@link CodePointInput}
+   */
+  static CodePointInput of(InputStream in, Charset cs, int delimiter) {
+    if (cs.equals(StandardCharsets.US_ASCII)) {
+      return new SingleByteInput(in, delimiter, true);
+    }
+    if (cs.equals(StandardCharsets.ISO_8859_1)) {
+      return new SingleByteInput(in, delimiter, false);
+    }
+    if (cs.equals(StandardCharsets.UTF_8)) {
+      return new Utf8Input(in, delimiter);
+    }
+    return new CharInput(new InputStreamReader(in, cs.newDecoder()), delimiter);
+  }
+
+  /**
+   * Takes an input that reads characters from the reader out of the pool of the current thread, or
+   * creates one if there is none. The input should be given back by {@link #release()} once used
+   * up, so that its buffer is reused by the next one taken on the thread.
+   *
+   * @param reader the reader to read characters from
+   * @param delimiter the field delimiter
+   * @return an instance of {@link CodePointInput}
+   */
+  static CodePointInput ofPooled(Reader reader, int delimiter) {
+    CharInput input = CharInput.POOL.get();
+    if (input == null) {
+      return new CharInput(reader, delimiter);
+    }
+    CharInput.POOL.set(null); // taken out, so that nested parsing on the thread gets another
+    input.reset(reader, delimiter);
+    return input;
+  }
+
+  /**
+   * Resets this input to read characters from the beginning of the reader, discarding whatever is
+   * buffered.
+   *
+   * @param reader the reader to read characters from
+   * @throws UnsupportedOperationException if this input does not read characters from a reader
+   */
+  void reset(Reader reader) {
+    throw new UnsupportedOperationException("Not an input from a reader");
+  }
+
+  /**
+   * Gives this input taken by {@link #ofPooled(Reader, int)} back to the pool of the current
+   * thread, after which it must not be used.
+   */
+  void release() {}
+
+  /**
+   * Returns the offset of the first byte of the code point last read from the beginning of the
+   * input, or of the end of the input if EOF is reached.
+   *
+   * @param codePoint the code point last read, or -1 if EOF is reached
+   * @return the byte offset
+   * @throws UnsupportedOperationException if this input does not read bytes
+   */
+  long byteOffsetOf(int codePoint) {
+    throw new UnsupportedOperationException("Not an input from bytes");
+  }
+
+  /**
+   * Reads a code point.
+   *
+   * @return the code point, or -1 if EOF is reached
+   * @throws IOException if an I/O error occurs or an illegal character is encountered
+   */
+  abstract int read() throws IOException;
+
+  /**
+   * Appends the buffered run of printable ASCII characters other than the double quote and the
+   * delimiter that follows, and consumes them.
+   *
+   * @param sb the string builder to append the characters to
+   * @return the number of characters consumed
+   */
+  abstract int appendPlain(StringBuilder sb);
+
+  /**
+   * Appends the buffered content of an escaped field that follows, unescaping each pair of double
+   * quotes into one, and consumes it. It stops at the closing double quote, CR, LF, or any other
+   * character that needs special handling, which is left unconsumed.
+   *
+   * @param sb the string builder to append the content to
+   * @return the number of characters consumed, which includes both quotes of each pair
+   */
+  abstract int appendEscaped(StringBuilder sb);
+
+  /**
+   * Consumes the buffered run of plain characters that follows as {@link
+   * #appendPlain(StringBuilder)} does, without appending them anywhere.
+   *
+   * @return the number of characters consumed
+   */
+  abstract int skipPlain();
+
+  /**
+   * Consumes the buffered content of an escaped field that follows as {@link
+   * #appendEscaped(StringBuilder)} does, without appending it anywhere.
+   *
+   * @return the number of characters consumed, which includes both quotes of each pair
+   */
+  abstract int skipEscaped();
+
+  /** {@link CodePointInput} that reads UTF-16 characters from a {@link Reader}. */
+  private static final class CharInput extends CodePointInput {
+
+    private static final StructuralScanner SCANNER = StructuralScanners.getInstance();
+    private static final String ERROR_ILLEGAL_UNICODE_CHAR = "Encounter illegal unicode character";
+    private static final ThreadLocal<CharInput> POOL = new ThreadLocal<>();
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder skipped = new StringBuilder();
+    private Reader reader;
+    private char plainDelimiter;
+    private int position = 0;
+    private int limit = 0;
+
+    CharInput(Reader reader, int delimiter) {
+      reset(reader, delimiter);
+    }
+
+    private void reset(Reader reader, int delimiter) {
+      // non-BMP delimiter consists of surrogates, which are never plain anyway
+      this.plainDelimiter = Character.isBmpCodePoint(delimiter) ? (char) delimiter : '"';
+      reset(reader);
+    }
+
+    @Override
+    void reset(Reader reader) {
+      this.reader = reader;
+      position = 0;
+      limit = 0;
+    }
+
+    @Override
+    void release() {
+      // the reader is dropped so as not to keep its source reachable from the thread
+      reset(Reader.nullReader());
+      POOL.set(this);
+    }
+
+    @Override
+    int read() throws IOException {
+      if (position == limit && !fillBuffer()) {
+        return -1;
+      }
+      char c = buffer[position++];
+      if (Character.isHighSurrogate(c)) {
+        if (position == limit && !fillBuffer()) {
+          throw new IOException(ERROR_ILLEGAL_UNICODE_CHAR);
+        }
+        char low = buffer[position++];
+        if (!Character.isLowSurrogate(low)) {
+          throw new IOException(ERROR_ILLEGAL_UNICODE_CHAR);
+        }
+        return Character.toCodePoint(c, low);
+      }
+      return c;
+    }
+
+    @Override
+    int appendPlain(StringBuilder sb) {
+      int end = SCANNER.skipPlain(buffer, position, limit, plainDelimiter);
+      int n = end - position;
+      sb.append(buffer, position, n);
+      position = end;
+      return n;
+    }
+
+    @Override
+    int appendEscaped(StringBuilder sb) {
+      int end = SCANNER.appendEscaped(buffer, position, limit, sb);
+      int n = end - position;
+      position = end;
+      return n;
+    }
+
+    @Override
+    int skipPlain() {
+      int end = SCANNER.skipPlain(buffer, position, limit, plainDelimiter);
+      int n = end - position;
+      position = end;
+      return n;
+    }
+
+    @Override
+    int skipEscaped() {
+      // copying chars into the reused builder allocates nothing once it has grown
+      skipped.setLength(0);
+      return appendEscaped(skipped);
+    }
+
+    private boolean fillBuffer() throws IOException {
+      int n;
+      do {
+        n = reader.read(buffer, 0, buffer.length);
+      } while (n == 0);
+      position = 0;
+      limit = Math.max(n, 0);
+      return n > 0;
+    }
+  }
+
+  /**
+   * {@link CodePointInput} that reads bytes in a charset compatible with ASCII from an {@link
+   * InputStream}, where runs of ASCII characters are scanned directly without being decoded.
+   */
+  private abstract static class ByteInput extends CodePointInput {
+
+    private final InputStream in;
+    private final SwarByteScanner scanner;
+    protected final byte[] buffer = new byte[BUFFER_SIZE];
+    protected int position = 0;
+    protected int limit = 0;
+    private long discarded = 0;
+
+    ByteInput(InputStream in, int delimiter, boolean isAsciiOnly) {
+      this.in = in;
+      this.scanner = new SwarByteScanner(delimiter, isAsciiOnly);
+    }
+
+    @Override
+    long byteOffsetOf(int codePoint) {
+      long end = discarded + position;
+      return codePoint == -1 ? end : end - lengthOf(codePoint);
+    }
+
+    /** Returns the number of bytes the code point is encoded in. */
+    protected abstract int lengthOf(int codePoint);
+
+    @Override
+    int appendPlain(StringBuilder sb) {
+      int end = scanner.skipPlain(buffer, position, limit);
+      int n = end - position;
+      if (n > 0) {
+        sb.append(new String(buffer, position, n, StandardCharsets.ISO_8859_1));
+        position = end;
+      }
+      return n;
+    }
+
+    @Override
+    int appendEscaped(StringBuilder sb) {
+      int end = scanner.appendEscaped(buffer, position, limit, sb);
+      int n = end - position;
+      position = end;
+      return n;
+    }
+
+    @Override
+    int skipPlain() {
+      int end = scanner.skipPlain(buffer, position, limit);
+      int n = end - position;
+      position = end;
+      return n;
+    }
+
+    @Override
+    int skipEscaped() {
+      int end = scanner.skipEscaped(buffer, position, limit);
+      int n = end - position;
+      position = end;
+      return n;
+    }
+
+    /**
+     * Refills the buffer, keeping the bytes not read yet at its beginning.
+     *
+     * @return true if any byte is read
+     */
+    protected boolean fillBuffer() throws IOException {
+      int remaining = limit - position;
+      discarded += position;
+      System.arraycopy(buffer, position, buffer, 0, remaining);
+      position = 0;
+      limit = remaining;
+      int n;
+      do {
+        n = in.read(buffer, limit, buffer.length - limit);
+      } while (n == 0);
+      limit += Math.max(n, 0);
+      return n > 0;
+    }
+  }
+
+  /**
+   * {@link CodePointInput} that reads bytes in US-ASCII or ISO-8859-1 from an {@link InputStream},
+   * where each byte is a code point by itself.
+   */
+  private static final class SingleByteInput extends ByteInput {
+
+    private final boolean isAsciiOnly;
+
+    SingleByteInput(InputStream in, int delimiter, boolean isAsciiOnly) {
+      super(in, delimiter, isAsciiOnly);
+      this.isAsciiOnly = isAsciiOnly;
+    }
+
+    @Override
+    int read() throws IOException {
+      if (position == limit && !fillBuffer()) {
+        return -1;
+      }
+      byte b = buffer[position++];
+      if (b < 0 && isAsciiOnly) {
+        throw new MalformedInputException(1);
+      }
+      return b & 0xff;
+    }
+
+    @Override
+    protected int lengthOf(int codePoint) {
+      return 1;
+    }
+  }
+
+  /**
+   * {@link CodePointInput} that reads bytes in UTF-8 from an {@link InputStream}. Bulk operations
+   * stop at any byte out of ASCII, and only sequences of such bytes are decoded one code point at a
+   * time, rejecting overlong forms, surrogates and code points out of Unicode as malformed.
+   */
+  private static final class Utf8Input extends ByteInput {
+
+    Utf8Input(InputStream in, int delimiter) {
+      super(in, delimiter, true);
+    }
+
+    @Override
+    int read() throws IOException {
+      if (position == limit && !fillBuffer()) {
+        return -1;
+      }
+      byte b = buffer[position];
+      if (b >= 0) {
+        position++;
+        return b;
+      }
+      return readSequence(b & 0xff);
+    }
+
+    private int readSequence(int lead) throws IOException {
+      int length;
+      int min;
+      if (lead >= 0xc2 && lead <= 0xdf) {
+        length = 2;
+        min = 0x80;
+      } else if (lead >= 0xe0 && lead <= 0xef) {
+        length = 3;
+        min = 0x800;
+      } else if (lead >= 0xf0 && lead <= 0xf4) {
+        length = 4;
+        min = Character.MIN_SUPPLEMENTARY_CODE_POINT;
+      } else {
+        throw new MalformedInputException(1);
+      }
+      // a sequence across the end of the buffer is moved to its beginning to be read at once
+      while (limit - position < length && fillBuffer()) {}
+      int cp = lead & (0x7f >>> length);
+      for (int i = 1; i < length; i++) {
+        if (position + i == limit || (buffer[position + i] & 0xc0) != 0x80) {
+          throw new MalformedInputException(i);
+        }
+        cp = cp << 6 | buffer[position + i] & 0x3f;
+      }
+      if (cp < min
+          || cp > Character.MAX_CODE_POINT
+          || cp >= Character.MIN_SURROGATE && cp <= Character.MAX_SURROGATE) {
+        throw new MalformedInputException(length);
+      }
+      position += length;
+      return cp;
+    }
+
+    @Override
+    protected int lengthOf(int codePoint) {
+      if (codePoint < 0x80) {
+        return 1;
+      }
+      if (codePoint < 0x800) {
+        return 2;
+      }
+      return codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT ? 3 : 4;
+    }
+  }
+}
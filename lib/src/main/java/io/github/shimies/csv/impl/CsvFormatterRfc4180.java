@@ -1,11 +1,22 @@
 package io.github.shimies.csv.impl;
 
 import io.github.shimies.csv.CsvFormatter;
+import io.github.shimies.csv.CsvParser;
+import io.github.shimies.csv.ObjectWriter;
+import io.github.shimies.csv.QuotingPolicy;
+import io.github.shimies.csv.RecordSerializer;
 import io.github.shimies.csv.RecordWriter;
+import io.github.shimies.csv.ReusableRecordWriter;
+import io.github.shimies.csv.TypedRecordWriter;
 import java.io.IOException;
-import java.io.StringReader;
+import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * RFC 4180 implementation of {@link CsvFormatter}.
@@ -18,16 +29,34 @@ import java.util.List;
  * and a record that ends with a comma are not allowed. This implementation writes an escaped empty
  * field, {@code ""}, for such cases. This behavior can be configured to instead allow such an empty
  * field to be written without escaping it.
+ *
+ * <p>Which fields are quoted is decided by {@link QuotingPolicy}, which is {@link
+ * QuotingPolicy#MINIMAL} by default. Columns can also be declared safe, whose fields are known
+ * never to contain characters that must be escaped, so that they are written without being scanned,
+ * even for lone surrogates.
+ *
+ * <p>Record writers and object writers created by this class format each record into a buffer,
+ * where typed numbers are appended as they are without being escaped, and only strings are scanned
+ * for characters that must be escaped.
+ *
+ * <p>Record writers created by this class emit a JDK Flight Recorder event, {@code
+ * io.github.shimies.csv.FormatChunk}, for every chunk of records written.
  */
 public class CsvFormatterRfc4180 implements CsvFormatter {
 
   private static final String DOUBLE_QUOTE = "\"";
   private static final String ESCAPED_EMPTY_FIELD = DOUBLE_QUOTE + DOUBLE_QUOTE;
+  private static final String ERROR_ILLEGAL_UNICODE_CHAR = "Encounter illegal unicode character";
+  // characters that numbers may be formatted with, including "NaN" and "Infinity"
+  private static final String NUMBER_CHARS = "0123456789-.EINafinty";
 
   private final int delimiter;
   private final String fieldDelimiter;
   private final String recordDelimiter;
   private final boolean allowRecordEndWithEmptyField;
+  private final boolean mayNumbersNeedEscape;
+  private final QuotingPolicy quotingPolicy;
+  private final BitSet safeColumns = new BitSet();
 
   /**
    * Constructs.
@@ -38,10 +67,37 @@ public class CsvFormatterRfc4180 implements CsvFormatter {
    */
   public CsvFormatterRfc4180(
       int fieldDelimiter, String recordDelimiter, boolean allowRecordEndWithEmptyField) {
+    this(fieldDelimiter, recordDelimiter, allowRecordEndWithEmptyField, QuotingPolicy.MINIMAL);
+  }
+
+  /**
+   * Constructs with a quoting policy and safe columns.
+   *
+   * @param fieldDelimiter the field delimiter character
+   * @param recordDelimiter the record delimiter string
+   * @param allowRecordEndWithEmptyField whether to allow records ending with an empty field
+   * @param quotingPolicy the policy of which fields to quote
+   * @param safeColumns the indices of columns known to need no escape
+   * @throws IllegalArgumentException if any column index is negative
+   */
+  public CsvFormatterRfc4180(
+      int fieldDelimiter,
+      String recordDelimiter,
+      boolean allowRecordEndWithEmptyField,
+      QuotingPolicy quotingPolicy,
+      int... safeColumns) {
     this.delimiter = fieldDelimiter;
     this.fieldDelimiter = new String(Character.toChars(fieldDelimiter));
     this.recordDelimiter = recordDelimiter;
     this.allowRecordEndWithEmptyField = allowRecordEndWithEmptyField;
+    this.mayNumbersNeedEscape = NUMBER_CHARS.indexOf(delimiter) >= 0;
+    this.quotingPolicy = Objects.requireNonNull(quotingPolicy);
+    for (int column : safeColumns) {
+      if (column < 0) {
+        throw new IllegalArgumentException("Negative column: " + column);
+      }
+      this.safeColumns.set(column);
+    }
   }
 
   /**
@@ -52,138 +108,449 @@ public class CsvFormatterRfc4180 implements CsvFormatter {
    */
   @Override
   public RecordWriter newRecordWriter(Writer writer) {
-    return new RecordWriterImpl(writer);
+    return new RecordWriterImpl(writer, writer.getClass().getName());
+  }
+
+  /**
+   * Creates a {@link ReusableRecordWriter}, which reuses its buffers across all writers it is reset
+   * to. It is also a {@link TypedRecordWriter}.
+   *
+   * @return an instance of {@link ReusableRecordWriter}
+   */
+  @Override
+  public ReusableRecordWriter newReusableRecordWriter() {
+    Writer writer = Writer.nullWriter();
+    return new RecordWriterImpl(writer, writer.getClass().getName());
   }
 
-  /** RFC 4180 implementation of {@link RecordWriter}. This class is not thread-safe. */
-  private class RecordWriterImpl implements RecordWriter {
+  /**
+   * Creates a {@link TypedRecordWriter} for writing CSV records into a {@link Writer}, formatting
+   * fields straight into the buffer of each record.
+   *
+   * @param writer the {@link Writer} to write records into
+   * @return an instance of {@link TypedRecordWriter}
+   */
+  @Override
+  public TypedRecordWriter newTypedRecordWriter(Writer writer) {
+    return new RecordWriterImpl(writer, writer.getClass().getName());
+  }
 
-    private final Writer writer;
+  /**
+   * Creates an {@link ObjectWriter} for writing objects serialized by the serializer into a {@link
+   * Writer}, formatting typed columns straight into the buffer of each record.
+   *
+   * @param <T> the type of objects to write
+   * @param writer the {@link Writer} to write records into
+   * @param serializer the serializer of objects to records
+   * @return an instance of {@link ObjectWriter}
+   */
+  @Override
+  public <T> ObjectWriter<T> newObjectWriter(Writer writer, RecordSerializer<T> serializer) {
+    return new ObjectWriterImpl<>(
+        new RecordWriterImpl(writer, writer.getClass().getName()), serializer);
+  }
 
-    public RecordWriterImpl(Writer writer) {
+  /**
+   * Formats and writes all records to a file at the specified path and charset. The path is
+   * recorded as the destination of flight recorder events.
+   *
+   * @param records the list of records
+   * @param csvPath the {@link Path} to the output CSV file
+   * @param cs the {@link Charset} to use
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void formatToFile(List<List<String>> records, Path csvPath, Charset cs)
+      throws IOException {
+    try (Writer writer = Files.newBufferedWriter(csvPath, cs)) {
+      new RecordWriterImpl(writer, csvPath.toString()).writeAllRecords(records);
+    }
+  }
+
+  /**
+   * RFC 4180 implementation of {@link TypedRecordWriter}, which can be reset. This class is not
+   * thread-safe.
+   */
+  private class RecordWriterImpl implements TypedRecordWriter, ReusableRecordWriter {
+
+    private Writer writer;
+    private String destination;
+    private long offset = 0;
+    private long recordCount = 0;
+    private int chunkRecordCount = 0;
+    private FormatChunkEvent chunkEvent;
+    private final StringBuilder line = new StringBuilder();
+    private char[] chars = new char[64];
+    private boolean isRecordStarted = false;
+    private int fieldCount;
+    private boolean isLastFieldEmpty;
+
+    public RecordWriterImpl(Writer writer, String destination) {
       this.writer = writer;
+      this.destination = destination;
+    }
+
+    @Override
+    public void reset(Writer writer) {
+      endChunk();
+      this.writer = writer;
+      this.destination = writer.getClass().getName();
+      offset = 0;
+      recordCount = 0;
+      isRecordStarted = false;
     }
 
     @Override
     public void writeRecord(List<String> record) throws IOException {
-      int size = record.size();
-      if (size == 0) {
-        return;
-      }
-      int lastIndex = size - 1;
-      List<String> allButLast = record.subList(0, lastIndex);
-      for (String field : allButLast) {
-        writer.write(escapeField(field));
-        writer.write(fieldDelimiter);
-      }
-      writer.write(escapeLastField(record.get(lastIndex)));
-      writer.write(recordDelimiter);
-    }
-
-    private String escapeField(String field) throws IOException {
-      Tokenizer tokenizer = new Tokenizer(field, delimiter);
-      StringBuilder sb = new StringBuilder();
-      boolean mustEscape = false;
-      while (tokenizer.hasNext()) {
-        Token<TokenKind> token = tokenizer.nextToken();
-        String tokenValue = (String) token.getValue();
-        switch (token.getKind()) {
-          case MUST_ESCAPE_DQUOTE:
-            sb.append(tokenValue);
-          // caution: fall through
-          case MUST_ESCAPE_OTHERS:
-            mustEscape = true;
-            break;
-          default:
-            break;
+      startRecord();
+      try {
+        for (String field : record) {
+          writeString(field);
         }
-        sb.append(tokenValue);
-      }
-      if (mustEscape) {
-        sb.append(DOUBLE_QUOTE);
-        sb.insert(0, DOUBLE_QUOTE);
+      } catch (RuntimeException e) {
+        isRecordStarted = false; // the record is discarded as a whole
+        throw e;
       }
-      return sb.toString();
+      endRecord();
     }
 
-    private String escapeLastField(String field) throws IOException {
-      String escapedField = escapeField(field);
-      // it must be escaped if it's last field and empty
-      if (!allowRecordEndWithEmptyField && escapedField.isEmpty()) {
-        escapedField = ESCAPED_EMPTY_FIELD;
+    @Override
+    public void startRecord() {
+      if (isRecordStarted) {
+        throw new IllegalStateException("Record already started");
       }
-      return escapedField;
+      isRecordStarted = true;
+      line.setLength(0);
+      fieldCount = 0;
     }
-  }
 
-  private static class Tokenizer implements Token.Tokenizer<TokenKind> {
+    @Override
+    public void writeInt(int value) throws IOException {
+      if (mayNumbersNeedEscape) {
+        writeNumber(Integer.toString(value));
+      } else {
+        beginNumber().append(value);
+        endNumber();
+      }
+    }
 
-    private static final int CP_LINE_FEED = 0x0a;
-    private static final int CP_CARRIAGE_RETURN = 0x0d;
-    private static final int CP_DOUBLE_QUOTE = 0x22;
+    @Override
+    public void writeLong(long value) throws IOException {
+      if (mayNumbersNeedEscape) {
+        writeNumber(Long.toString(value));
+      } else {
+        beginNumber().append(value);
+        endNumber();
+      }
+    }
 
-    private final CodePointReader reader;
-    private final int delimiter;
-    private int lastCodePoint;
+    @Override
+    public void writeDouble(double value) throws IOException {
+      if (mayNumbersNeedEscape) {
+        writeNumber(Double.toString(value));
+      } else {
+        beginNumber().append(value);
+        endNumber();
+      }
+    }
 
-    public Tokenizer(String field, int delimiter) throws IOException {
-      this.reader = new CodePointReader(new StringReader(field));
-      this.delimiter = delimiter;
-      readCodePoint();
+    @Override
+    public void writeString(String value) throws IOException {
+      int length = value.length();
+      char[] cs = charsOf(length);
+      value.getChars(0, length, cs, 0);
+      appendField(beginField(), cs, 0, length, false);
     }
 
     @Override
-    public boolean hasNext() {
-      return lastCodePoint != -1;
+    public void writeCharSequence(char[] value, int offset, int length) throws IOException {
+      Objects.checkFromIndexSize(offset, length, value.length);
+      appendField(beginField(), value, offset, length, false);
+    }
+
+    private void writeNumber(String value) throws IOException {
+      int length = value.length();
+      char[] cs = charsOf(length);
+      value.getChars(0, length, cs, 0);
+      appendField(beginField(), cs, 0, length, true);
     }
 
     @Override
-    public Token<TokenKind> nextToken() throws IOException {
-      TokenKind type = mapCodePoint(lastCodePoint);
-      Object value;
-      switch (type) {
-        case MUST_ESCAPE_DQUOTE:
-          value = DOUBLE_QUOTE;
-          readCodePoint();
+    public void endRecord() throws IOException {
+      StringBuilder sb = requireRecordStarted();
+      isRecordStarted = false;
+      if (fieldCount == 0) {
+        return;
+      }
+      // it must be escaped if it's last field and empty
+      if (isLastFieldEmpty && !allowRecordEndWithEmptyField) {
+        if (quotingPolicy == QuotingPolicy.NEVER) {
+          throw new IllegalArgumentException("Field must be quoted in column " + (fieldCount - 1));
+        }
+        sb.append(ESCAPED_EMPTY_FIELD);
+      }
+      sb.append(recordDelimiter);
+      beforeRecord();
+      int length = sb.length();
+      char[] cs = charsOf(length);
+      sb.getChars(0, length, cs, 0);
+      writer.write(cs, 0, length);
+      offset += length;
+      afterRecord();
+    }
+
+    private StringBuilder beginField() {
+      StringBuilder sb = requireRecordStarted();
+      if (fieldCount++ > 0) {
+        sb.append(fieldDelimiter);
+      }
+      return sb;
+    }
+
+    /** Begins a field of a number that needs no escape, opening the quote if always quoted. */
+    private StringBuilder beginNumber() {
+      StringBuilder sb = beginField();
+      isLastFieldEmpty = false;
+      if (quotingPolicy == QuotingPolicy.ALWAYS) {
+        sb.append('"');
+      }
+      return sb;
+    }
+
+    private void endNumber() {
+      if (quotingPolicy == QuotingPolicy.ALWAYS) {
+        line.append('"');
+      }
+    }
+
+    /**
+     * Appends the field to the record, quoting it as the policy requires. Double quotes in it are
+     * escaped only if it is scanned for characters that must be escaped, unless in a safe column.
+     */
+    private void appendField(
+        StringBuilder sb, char[] field, int offset, int length, boolean isNumber)
+        throws IOException {
+      int end = offset + length;
+      int column = fieldCount - 1;
+      boolean mustEscape;
+      try {
+        mustEscape = !safeColumns.get(column) && mustEscape(field, offset, end);
+      } catch (IOException e) {
+        isRecordStarted = false; // the record is discarded as a whole
+        throw e;
+      }
+      boolean isQuoted;
+      switch (quotingPolicy) {
+        case ALWAYS:
+          isQuoted = true;
+          break;
+        case NON_NUMERIC:
+          isQuoted = mustEscape || !isNumber && !isNumeric(field, offset, end);
+          break;
+        case NEVER:
+          if (mustEscape) {
+            isRecordStarted = false; // the record is discarded as a whole
+            throw new IllegalArgumentException("Field must be quoted in column " + column);
+          }
+          isQuoted = false;
           break;
         default:
-          value = readWhile(type);
+          isQuoted = mustEscape;
           break;
       }
-      return new Token<>(type, value);
+      isLastFieldEmpty = length == 0 && !isQuoted;
+      if (!isQuoted) {
+        sb.append(field, offset, length);
+        return;
+      }
+      sb.append('"');
+      if (!mustEscape) {
+        sb.append(field, offset, length);
+      } else {
+        for (int i = offset; i < end; i++) {
+          char c = field[i];
+          if (c == '"') {
+            sb.append('"');
+          }
+          sb.append(c);
+        }
+      }
+      sb.append('"');
+    }
+
+    private StringBuilder requireRecordStarted() {
+      if (!isRecordStarted) {
+        throw new IllegalStateException("No record started");
+      }
+      return line;
+    }
+
+    /** Returns the scratch buffer of at least the length. */
+    private char[] charsOf(int length) {
+      if (chars.length < length) {
+        chars = new char[Math.max(length, chars.length * 2)];
+      }
+      return chars;
+    }
+
+    @Override
+    public void writeAllRecords(Reader reader, CsvParser parser) throws IOException {
+      TypedRecordWriter.super.writeAllRecords(reader, parser);
+      endChunk(); // do not leave the last chunk behind
+    }
+
+    @Override
+    public void writeAllRecords(Iterable<List<String>> records) throws IOException {
+      TypedRecordWriter.super.writeAllRecords(records);
+      endChunk(); // do not leave the last chunk behind
+    }
+
+    private void beforeRecord() {
+      if (chunkRecordCount == 0) {
+        beginChunk();
+      }
+    }
+
+    private void afterRecord() {
+      recordCount++;
+      if (++chunkRecordCount == FormatChunkEvent.RECORDS_PER_CHUNK) {
+        endChunk();
+      }
+    }
+
+    private void beginChunk() {
+      FormatChunkEvent event = new FormatChunkEvent();
+      if (event.isEnabled()) {
+        event.destination = destination;
+        event.startOffset = offset;
+        event.firstRecord = recordCount;
+        event.begin();
+        chunkEvent = event;
+      }
     }
 
-    private TokenKind mapCodePoint(int codePoint) {
-      TokenKind type = TokenKind.NO_ESCAPE_NEEDED;
-      if (codePoint < 0) {
-        type = null;
-      } else if (codePoint == CP_DOUBLE_QUOTE) {
-        type = TokenKind.MUST_ESCAPE_DQUOTE;
-      } else if (codePoint == delimiter
-          || codePoint == CP_LINE_FEED
-          || codePoint == CP_CARRIAGE_RETURN) {
-        type = TokenKind.MUST_ESCAPE_OTHERS;
+    private void endChunk() {
+      FormatChunkEvent event = chunkEvent;
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.endOffset = offset;
+          event.recordCount = chunkRecordCount;
+          event.commit();
+        }
+        chunkEvent = null;
       }
-      return type;
+      chunkRecordCount = 0;
     }
+  }
+
+  /**
+   * Implementation of {@link ObjectWriter} that writes the typed columns of each object through the
+   * typed record writer. This class is not thread-safe.
+   */
+  private class ObjectWriterImpl<T> implements ObjectWriter<T> {
 
-    private String readWhile(TokenKind kind) throws IOException {
-      StringBuilder sb = new StringBuilder();
-      do {
-        sb.append(Character.toChars(lastCodePoint));
-        readCodePoint();
-      } while (mapCodePoint(lastCodePoint) == kind);
-      return sb.toString();
+    private final RecordWriterImpl records;
+    private final RecordSerializer<T> serializer;
+    private final int columnCount;
+
+    public ObjectWriterImpl(RecordWriterImpl records, RecordSerializer<T> serializer) {
+      this.records = records;
+      this.serializer = serializer;
+      this.columnCount = serializer.getHeader().size();
     }
 
-    private void readCodePoint() throws IOException {
-      lastCodePoint = reader.readCodePoint();
+    @Override
+    public void writeHeader() throws IOException {
+      records.writeRecord(serializer.getHeader().names());
     }
+
+    @Override
+    public void writeObject(T object) throws IOException {
+      records.startRecord();
+      for (int i = 0; i < columnCount; i++) {
+        switch (serializer.getColumnType(i)) {
+          case INT:
+            records.writeInt(serializer.getInt(object, i));
+            break;
+          case LONG:
+            records.writeLong(serializer.getLong(object, i));
+            break;
+          case DOUBLE:
+            records.writeDouble(serializer.getDouble(object, i));
+            break;
+          default:
+            records.writeString(serializer.getString(object, i));
+            break;
+        }
+      }
+      records.endRecord();
+    }
+
+    @Override
+    public void writeAllObjects(Iterable<? extends T> objects) throws IOException {
+      ObjectWriter.super.writeAllObjects(objects);
+      records.endChunk(); // do not leave the last chunk behind
+    }
+  }
+
+  /**
+   * Returns whether the field contains characters that must be escaped. The whole field is scanned
+   * even after one is found, so that a lone surrogate anywhere in it is rejected.
+   */
+  private boolean mustEscape(char[] field, int start, int end) throws IOException {
+    boolean mustEscape = false;
+    for (int i = start; i < end; i++) {
+      char c = field[i];
+      if (c == '"' || c == '\r' || c == '\n' || c == delimiter) {
+        mustEscape = true;
+      } else if (Character.isSurrogate(c)) {
+        if (!Character.isHighSurrogate(c)
+            || i + 1 == end
+            || !Character.isLowSurrogate(field[i + 1])) {
+          throw new IOException(ERROR_ILLEGAL_UNICODE_CHAR);
+        }
+        // a supplementary delimiter is a pair of surrogates
+        if (Character.toCodePoint(c, field[++i]) == delimiter) {
+          mustEscape = true;
+        }
+      }
+    }
+    return mustEscape;
   }
 
-  private enum TokenKind {
-    NO_ESCAPE_NEEDED,
-    MUST_ESCAPE_DQUOTE,
-    MUST_ESCAPE_OTHERS
+  /** Returns whether the characters are a decimal number, with an optional sign and exponent. */
+  private static boolean isNumeric(char[] cs, int start, int end) {
+    int i = skipSign(cs, start, end);
+    int digitsEnd = skipDigits(cs, i, end);
+    int digitCount = digitsEnd - i;
+    i = digitsEnd;
+    if (i < end && cs[i] == '.') {
+      digitsEnd = skipDigits(cs, i + 1, end);
+      digitCount += digitsEnd - (i + 1);
+      i = digitsEnd;
+    }
+    if (digitCount == 0) {
+      return false;
+    }
+    if (i < end && (cs[i] == 'e' || cs[i] == 'E')) {
+      int exponentStart = skipSign(cs, i + 1, end);
+      i = skipDigits(cs, exponentStart, end);
+      if (i == exponentStart) {
+        return false;
+      }
+    }
+    return i == end;
+  }
+
+  private static int skipSign(char[] cs, int i, int end) {
+    return i < end && (cs[i] == '+' || cs[i] == '-') ? i + 1 : i;
+  }
+
+  private static int skipDigits(char[] cs, int i, int end) {
+    while (i < end && cs[i] >= '0' && cs[i] <= '9') {
+      i++;
+    }
+    return i;
   }
 }
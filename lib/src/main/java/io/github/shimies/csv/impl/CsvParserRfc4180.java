@@ -1,14 +1,32 @@
 package io.github.shimies.csv.impl;
 
+import io.github.shimies.csv.Checkpoint;
+import io.github.shimies.csv.CheckpointableRecordReader;
 import io.github.shimies.csv.CsvParser;
+import io.github.shimies.csv.MalformedRecord;
+import io.github.shimies.csv.MalformedRecordHandler;
+import io.github.shimies.csv.NamedRecordReader;
 import io.github.shimies.csv.ParserException;
 import io.github.shimies.csv.RecordReader;
-import io.github.shimies.csv.TextLocator;
+import io.github.shimies.csv.ReusableRecordReader;
+import io.github.shimies.csv.SourcedRecord;
+import io.github.shimies.csv.SourcedRecordReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * RFC 4180 implementation of {@link CsvParser}.
@@ -32,6 +50,26 @@ import java.util.List;
  * <p>d) {@code allowSpaceEncloseEscaped} allows escaped fields to be surrounded by spaces.
  * Enclosing spaces are not included in a field. Originally, escaped fields must follow the field
  * delimiter without anything else in between.
+ *
+ * <p>Records are recognized by a deterministic finite automaton driven by {@link TransitionTable},
+ * which is generated for each combination of the flags that change the grammar. Runs of characters
+ * without special meaning are consumed in bulk from the input.
+ *
+ * <p>Record readers created with {@link MalformedRecordHandler} recover from structural errors by
+ * skipping the rest of the malformed record up to the next newline, and then continue parsing from
+ * the record that follows. Note that a newline in a malformed escaped field is taken as the end of
+ * the record, as the parser cannot tell where such a field would have ended.
+ *
+ * <p>Record readers created by this class emit JDK Flight Recorder events, so that parsing can be
+ * observed in continuous recordings. {@code io.github.shimies.csv.ParseChunk} covers a chunk of
+ * records along with the number of structural errors found in it, and is committed only if the
+ * chunk takes longer than 1 ms, which keeps it cheap enough to be left enabled in production.
+ * {@code io.github.shimies.csv.ParseError} records each structural error with its location, and is
+ * disabled by default, as lenient readers may find one in every record, so it must be enabled in
+ * the recording settings to be recorded.
+ *
+ * <p>Checkpoints can be taken of files in UTF-8, US-ASCII and ISO-8859-1, whose bytes are scanned
+ * directly, so that the byte offset of the next record is known without decoding anything again.
  */
 public class CsvParserRfc4180 implements CsvParser {
 
@@ -40,6 +78,8 @@ public class CsvParserRfc4180 implements CsvParser {
   private final boolean allowRecordEndWithEmptyField;
   private final boolean allowVariadicFields;
   private final boolean allowSpaceEncloseEscaped;
+  private final byte[] asciiClasses;
+  private final byte[] transitions;
 
   /**
    * Constructs.
@@ -61,6 +101,8 @@ public class CsvParserRfc4180 implements CsvParser {
     this.allowRecordEndWithEmptyField = allowRecordEndWithEmptyField;
     this.allowVariadicFields = allowVariadicFields;
     this.allowSpaceEncloseEscaped = allowSpaceEncloseEscaped;
+    this.asciiClasses = TransitionTable.classesOfAscii(delimiter);
+    this.transitions = TransitionTable.of(allowRecordEndWithEmptyField, allowSpaceEncloseEscaped);
   }
 
   /**
@@ -72,11 +114,501 @@ public class CsvParserRfc4180 implements CsvParser {
    */
   @Override
   public RecordReader newRecordReader(Reader reader) throws IOException {
-    return new RecordReaderImpl(reader);
+    return new StrictRecordReaderImpl(
+        CodePointInput.of(reader, delimiter), reader.getClass().getName());
+  }
+
+  /**
+   * Creates a {@link RecordReader} for reading CSV records from an {@link InputStream}. Bytes in
+   * US-ASCII, ISO-8859-1 and UTF-8 are scanned directly without being decoded through a {@link
+   * Reader}, and only bytes out of ASCII are decoded one by one.
+   *
+   * @param in the {@link InputStream} to read records from
+   * @param cs the {@link Charset} to decode bytes in
+   * @return an instance of {@link RecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public RecordReader newRecordReader(InputStream in, Charset cs) throws IOException {
+    return new StrictRecordReaderImpl(
+        CodePointInput.of(in, cs, delimiter), in.getClass().getName());
+  }
+
+  /**
+   * Creates a {@link ReusableRecordReader}, which reuses its buffers and state across all readers
+   * it is reset to.
+   *
+   * @return an instance of {@link ReusableRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public ReusableRecordReader newReusableRecordReader() throws IOException {
+    Reader reader = Reader.nullReader();
+    return new StrictRecordReaderImpl(
+        CodePointInput.of(reader, delimiter), reader.getClass().getName());
+  }
+
+  /**
+   * Creates a {@link NamedRecordReader} for reading CSV records from a {@link Reader}. Widths of
+   * records are validated against the header as they are parsed, so that errors are reported with
+   * their locations.
+   *
+   * @param reader the {@link Reader} to read records from
+   * @return an instance of {@link NamedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public NamedRecordReader newNamedRecordReader(Reader reader) throws IOException {
+    return NamedRecordReader.of(
+        new StrictRecordReaderImpl(
+            CodePointInput.of(reader, delimiter), reader.getClass().getName(), true));
+  }
+
+  /**
+   * Creates a {@link NamedRecordReader} for reading CSV records from an {@link InputStream}, which
+   * is scanned as described in {@link #newRecordReader(InputStream, Charset)}.
+   *
+   * @param in the {@link InputStream} to read records from
+   * @param cs the {@link Charset} to decode bytes in
+   * @return an instance of {@link NamedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public NamedRecordReader newNamedRecordReader(InputStream in, Charset cs) throws IOException {
+    return NamedRecordReader.of(
+        new StrictRecordReaderImpl(
+            CodePointInput.of(in, cs, delimiter), in.getClass().getName(), true));
+  }
+
+  /**
+   * Creates a {@link RecordReader} for reading CSV records leniently from a {@link Reader}.
+   *
+   * @param reader the {@link Reader} to read records from
+   * @param handler the handler to report malformed records to
+   * @return an instance of {@link RecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public RecordReader newRecordReader(Reader reader, MalformedRecordHandler handler)
+      throws IOException {
+    return new LenientRecordReaderImpl(
+        CodePointInput.of(reader, delimiter), reader.getClass().getName(), handler);
   }
 
-  /** RFC 4180 implementation of {@code RecordReader}. This class is not thread-safe. */
-  private class RecordReaderImpl implements RecordReader {
+  /**
+   * Parses a CSV file at the specified path and charset. The path is recorded as the source of
+   * flight recorder events. The file is read as described in {@link #newRecordReader(InputStream,
+   * Charset)}.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return a list of records parsed from the file
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public List<List<String>> parseFile(Path path, Charset cs) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      CodePointInput input = CodePointInput.of(in, cs, delimiter);
+      return new StrictRecordReaderImpl(input, path.toString()).readAllRecords();
+    }
+  }
+
+  /**
+   * Parses a CSV file at the specified path and charset leniently. The path is recorded as the
+   * source of flight recorder events.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param handler the handler to report malformed records to
+   * @return a list of well-formed records parsed from the file
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public List<List<String>> parseFile(Path path, Charset cs, MalformedRecordHandler handler)
+      throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      CodePointInput input = CodePointInput.of(in, cs, delimiter);
+      return new LenientRecordReaderImpl(input, path.toString(), handler).readAllRecords();
+    }
+  }
+
+  /**
+   * Parses a CSV string. The buffer the string is read through is taken from a pool of the current
+   * thread, which saves allocating it for each of many small strings.
+   *
+   * @param csv the CSV string to parse
+   * @return a list of records parsed from the string
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public List<List<String>> parseString(String csv) throws IOException {
+    Reader reader = new StringReader(csv);
+    CodePointInput input = CodePointInput.ofPooled(reader, delimiter);
+    try {
+      return new StrictRecordReaderImpl(input, reader.getClass().getName()).readAllRecords();
+    } finally {
+      input.release();
+    }
+  }
+
+  /**
+   * Creates a {@link SourcedRecordReader} for reading CSV records from files, which are parsed in
+   * parallel on a work-stealing pool of as many threads as available processors. Small files are
+   * parsed in batches, and large files in UTF-8, US-ASCII and ISO-8859-1 are split at boundaries of
+   * records into parts parsed in parallel. Tasks are parsed ahead of reading only a few more than
+   * the threads at a time.
+   *
+   * <p>Malformed records are reported as {@link ParserException} with their locations in the files
+   * as usual, except that records of malformed files may be split in the middle, in which case
+   * errors may be reported elsewhere.
+   *
+   * @param paths the {@link Path}s to the input CSV files
+   * @param cs the {@link Charset} to use
+   * @param isOrdered whether to read records in order of files and of records in each file
+   * @return an instance of {@link SourcedRecordReader}
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public SourcedRecordReader newSourcedRecordReader(
+      List<Path> paths, Charset cs, boolean isOrdered) throws IOException {
+    ParallelRecordReaderImpl.PartParser parser =
+        new ParallelRecordReaderImpl.PartParser() {
+          @Override
+          public int fieldCountOf(Path path) throws IOException {
+            return allowVariadicFields ? -1 : CsvParserRfc4180.this.fieldCountOf(path, cs, false);
+          }
+
+          @Override
+          public List<SourcedRecord> parse(List<FilePart> parts, int fieldCount)
+              throws IOException {
+            return parseParts(parts, cs, fieldCount);
+          }
+        };
+    return new ParallelRecordReaderImpl(
+        paths, RecordBoundaries.isSplittable(cs), isOrdered, parser);
+  }
+
+  /**
+   * Creates a {@link CheckpointableRecordReader} for reading CSV records from the beginning of a
+   * file in UTF-8, US-ASCII or ISO-8859-1.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return an instance of {@link CheckpointableRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @throws UnsupportedOperationException if the charset is none of the above
+   */
+  @Override
+  public CheckpointableRecordReader newCheckpointableRecordReader(Path path, Charset cs)
+      throws IOException {
+    return newCheckpointableRecordReader(path, cs, new Checkpoint(0, 1, 0, -1));
+  }
+
+  /**
+   * Creates a {@link CheckpointableRecordReader} for reading CSV records from a file in UTF-8,
+   * US-ASCII or ISO-8859-1, seeking to the byte offset of the checkpoint.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param checkpoint the checkpoint to resume from
+   * @return an instance of {@link CheckpointableRecordReader}
+   * @throws IOException if an I/O error occurs
+   * @throws UnsupportedOperationException if the charset is none of the above
+   * @throws IllegalArgumentException if the checkpoint is beyond the end of the file
+   */
+  @Override
+  public CheckpointableRecordReader newCheckpointableRecordReader(
+      Path path, Charset cs, Checkpoint checkpoint) throws IOException {
+    if (!RecordBoundaries.isSplittable(cs)) {
+      throw new UnsupportedOperationException("Checkpoints are not supported in " + cs);
+    }
+    SeekableByteChannel channel = Files.newByteChannel(path);
+    try {
+      if (checkpoint.getByteOffset() > channel.size()) {
+        throw new IllegalArgumentException("Checkpoint beyond the end of file: " + checkpoint);
+      }
+      channel.position(checkpoint.getByteOffset());
+      InputStream in = Channels.newInputStream(channel);
+      return new CheckpointableRecordReaderImpl(in, cs, path.toString(), checkpoint);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  private List<SourcedRecord> parseParts(List<FilePart> parts, Charset cs, int fieldCount)
+      throws IOException {
+    List<SourcedRecord> records = new ArrayList<>();
+    for (FilePart part : parts) {
+      try (InputStream in = part.newInputStream()) {
+        StrictRecordReaderImpl reader =
+            new StrictRecordReaderImpl(
+                CodePointInput.of(in, cs, delimiter),
+                part.path().toString(),
+                false,
+                part.lineNo(),
+                part.isFirst() ? -1 : fieldCount);
+        while (reader.hasMoreRecord()) {
+          List<String> fields = reader.readRecord();
+          records.add(new SourcedRecord(fields, part.path(), reader.getRecordLineNumber()));
+        }
+      }
+    }
+    return records;
+  }
+
+  /**
+   * Counts records of a CSV file without creating their fields. Large files in UTF-8, US-ASCII and
+   * ISO-8859-1 are split at boundaries of records into parts validated in parallel, and the first
+   * malformed record in the file is thrown.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @return the number of records in the file
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public long countRecords(Path path, Charset cs) throws IOException {
+    return validate(path, cs, null, false);
+  }
+
+  /**
+   * Validates records of a CSV file without creating their fields, which is split into parts
+   * validated in parallel as described in {@link #countRecords(Path, Charset)}. As boundaries of
+   * records found after a malformed record cannot be trusted, the rest of the file from the first
+   * part with malformed records is validated again sequentially, reporting malformed records to the
+   * handler in order on the calling thread.
+   *
+   * @param path the {@link Path} to the input CSV file
+   * @param cs the {@link Charset} to use
+   * @param handler the handler to report malformed records to
+   * @return the number of well-formed records in the file
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public long validate(Path path, Charset cs, MalformedRecordHandler handler)
+      throws IOException {
+    return validate(path, cs, Objects.requireNonNull(handler), true);
+  }
+
+  private long validate(Path path, Charset cs, MalformedRecordHandler handler, boolean isLenient)
+      throws IOException {
+    long size = Files.size(path);
+    if (!RecordBoundaries.isSplittable(cs) || size <= ParallelRecordReaderImpl.PART_SIZE) {
+      return validatePart(new FilePart(path, 0, size, 1), cs, -1, handler);
+    }
+    ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    try {
+      List<FilePart> parts =
+          RecordBoundaries.split(path, size, ParallelRecordReaderImpl.PART_SIZE, pool);
+      int fieldCount = allowVariadicFields ? -1 : fieldCountOf(path, cs, isLenient);
+      List<List<MalformedRecord>> malformedRecords = new ArrayList<>();
+      List<Callable<Long>> tasks = new ArrayList<>();
+      for (FilePart part : parts) {
+        List<MalformedRecord> partMalformedRecords = new ArrayList<>();
+        MalformedRecordHandler partHandler = isLenient ? partMalformedRecords::add : null;
+        int partFieldCount = part.isFirst() ? -1 : fieldCount;
+        malformedRecords.add(partMalformedRecords);
+        tasks.add(() -> validatePart(part, cs, partFieldCount, partHandler));
+      }
+      List<Long> recordCounts = RecordBoundaries.invokeAll(pool, tasks);
+      long recordCount = 0;
+      for (int i = 0; i < parts.size(); i++) {
+        if (!malformedRecords.get(i).isEmpty()) {
+          // boundaries after a malformed record may be wrong, so the rest is validated at once
+          FilePart part = parts.get(i);
+          FilePart rest = new FilePart(path, part.start(), size, part.lineNo());
+          return recordCount + validatePart(rest, cs, part.isFirst() ? -1 : fieldCount, handler);
+        }
+        recordCount += recordCounts.get(i);
+      }
+      return recordCount;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  /** Validates records of the part, reporting malformed ones to the handler if not null. */
+  private long validatePart(
+      FilePart part, Charset cs, int fieldCount, MalformedRecordHandler handler)
+      throws IOException {
+    long recordCount = 0;
+    try (InputStream in = part.newInputStream()) {
+      CodePointInput input = CodePointInput.of(in, cs, delimiter);
+      String source = part.path().toString();
+      if (handler == null) {
+        StrictRecordReaderImpl reader =
+            new StrictRecordReaderImpl(input, source, false, part.lineNo(), fieldCount);
+        while (reader.hasMoreRecord()) {
+          reader.validateRecord();
+          recordCount++;
+        }
+      } else {
+        CapturingRecordReaderImpl reader =
+            new CapturingRecordReaderImpl(input, source, part.lineNo(), fieldCount);
+        while (reader.hasMoreRecord()) {
+          try {
+            reader.validateRecord();
+            recordCount++;
+          } catch (MalformedRecordException e) {
+            handler.handle(reader.recover(e));
+          }
+        }
+      }
+    }
+    return recordCount;
+  }
+
+  /** Returns the width of the first well-formed record of the file, or -1 if none. */
+  private int fieldCountOf(Path path, Charset cs, boolean isLenient) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      RecordReader reader =
+          isLenient
+              ? new LenientRecordReaderImpl(
+                  CodePointInput.of(in, cs, delimiter), path.toString(), record -> {})
+              : newRecordReader(in, cs);
+      return reader.hasMoreRecord() ? reader.readRecord().size() : -1;
+    }
+  }
+
+  /**
+   * Lenient implementation of {@code RecordReader} that reads ahead a well-formed record, so that
+   * {@link #hasMoreRecord()} can tell if there is one even when only malformed records remain. This
+   * class is not thread-safe.
+   */
+  private class LenientRecordReaderImpl implements RecordReader {
+
+    private final CapturingRecordReaderImpl reader;
+    private final MalformedRecordHandler handler;
+    private List<String> nextRecord;
+
+    public LenientRecordReaderImpl(
+        CodePointInput input, String source, MalformedRecordHandler handler) throws IOException {
+      this.reader = new CapturingRecordReaderImpl(input, source);
+      this.handler = handler;
+      readAhead();
+    }
+
+    @Override
+    public boolean hasMoreRecord() {
+      return nextRecord != null;
+    }
+
+    @Override
+    public List<String> readRecord() throws IOException {
+      List<String> record = nextRecord;
+      if (record == null) {
+        throw new NoSuchElementException("No more record");
+      }
+      readAhead();
+      return record;
+    }
+
+    @Override
+    public long skipRecords(long n) throws IOException {
+      if (n < 0) {
+        throw new IllegalArgumentException("Negative number of records: " + n);
+      }
+      if (n == 0 || nextRecord == null) {
+        return 0;
+      }
+      // the record read ahead is the first skipped, and the rest are only validated
+      long skipped = 1;
+      while (skipped < n && skipAhead()) {
+        skipped++;
+      }
+      readAhead();
+      return skipped;
+    }
+
+    private void readAhead() throws IOException {
+      nextRecord = null;
+      while (reader.hasMoreRecord()) {
+        try {
+          nextRecord = reader.readRecord();
+          return;
+        } catch (MalformedRecordException e) {
+          handler.handle(reader.recover(e));
+        }
+      }
+    }
+
+    /** Validates records up to a well-formed one, and returns true if found. */
+    private boolean skipAhead() throws IOException {
+      while (reader.hasMoreRecord()) {
+        try {
+          reader.validateRecord();
+          return true;
+        } catch (MalformedRecordException e) {
+          handler.handle(reader.recover(e));
+        }
+      }
+      return false;
+    }
+  }
+
+  /**
+   * {@link CheckpointableRecordReader} of a file, which reads records from the checkpoint it begins
+   * at, and takes checkpoints relative to it. This class is not thread-safe.
+   */
+  private final class CheckpointableRecordReaderImpl implements CheckpointableRecordReader {
+
+    private final InputStream in;
+    private final Checkpoint start;
+    private final StrictRecordReaderImpl reader;
+
+    public CheckpointableRecordReaderImpl(
+        InputStream in, Charset cs, String source, Checkpoint start) throws IOException {
+      this.in = in;
+      this.start = start;
+      this.reader =
+          new StrictRecordReaderImpl(
+              CodePointInput.of(in, cs, delimiter),
+              source,
+              false,
+              start.getLineNumber(),
+              start.getFieldCount());
+    }
+
+    @Override
+    public boolean hasMoreRecord() {
+      return reader.hasMoreRecord();
+    }
+
+    @Override
+    public List<String> readRecord() throws IOException {
+      return reader.readRecord();
+    }
+
+    @Override
+    public long skipRecords(long n) throws IOException {
+      return reader.skipRecords(n);
+    }
+
+    @Override
+    public Checkpoint checkpoint() {
+      return reader.checkpoint(start);
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+  }
+
+  /**
+   * RFC 4180 implementation of {@code RecordReader}, which runs the automaton given by {@link
+   * TransitionTable} over code points read ahead one at a time. This class is not thread-safe.
+   *
+   * <p>Locations are reported as the original tokenizer-based implementation did: a code point at
+   * an index is located on the line of the preceding newline only after the code point that
+   * immediately follows the newline.
+   *
+   * <p>The kernel is specialized by sealed subclasses for strict and lenient reading, so that the
+   * strict one carries nothing for malformed records in its paths for each code point.
+   */
+  private abstract sealed class RecordReaderImpl implements RecordReader
+      permits StrictRecordReaderImpl, CapturingRecordReaderImpl {
 
     private static final String ERROR_ILLEGAL_NUMBER_OF_FIELDS = "Illegal number of fields found";
     private static final String ERROR_EMPTY_FIELD_FOLLOWED_BY_EOR =
@@ -88,82 +620,314 @@ public class CsvParserRfc4180 implements CsvParser {
     private static final String ERROR_ILLEGAL_CHAR_AFTER_ESCAPED_FIELD =
         "Escaped field followed by illegal character";
 
-    private final Tokenizer tokenizer;
-    private Token<TokenKind> token;
-    private int fieldCount = -1;
+    private String source;
+    private final CodePointInput input;
+    private final StringBuilder field = new StringBuilder();
+    private int lastCodePoint;
+    private long index = 0;
+    private long offset = 0;
+    private int newlineCount;
+    private long lastNewlineEnd;
+    private long previousNewlineEnd = -2;
+    private boolean isRecordTerminated;
+    private final boolean isWidthFixed;
+    private int fieldCount;
+    private int recordLineNo = -1;
+    private long recordCount = 0;
+    private int chunkRecordCount = 0;
+    private int chunkErrorCount = 0;
+    private ParseChunkEvent chunkEvent;
+
+    // the width is fixed by the first record, which is the header for named record readers,
+    // unless given; input that begins on a later line is located as if a newline preceded it
+    protected RecordReaderImpl(
+        CodePointInput input, String source, boolean isWidthFixed, int lineNo, int fieldCount)
+        throws IOException {
+      this.source = source;
+      this.input = input;
+      this.isWidthFixed = isWidthFixed || !allowVariadicFields;
+      this.newlineCount = lineNo - 1;
+      this.lastNewlineEnd = lineNo > 1 ? -1 : -2;
+      this.fieldCount = fieldCount;
+      this.lastCodePoint = input.read();
+    }
+
+    /**
+     * Resets this reader to read records from the beginning of the reader, as a newly created one
+     * would, reusing the buffers. The input must have been created from a reader.
+     *
+     * @param reader the reader to read records from
+     * @throws IOException if an I/O error occurs
+     */
+    public void reset(Reader reader) throws IOException {
+      endChunk();
+      input.reset(reader);
+      source = reader.getClass().getName();
+      index = 0;
+      offset = 0;
+      newlineCount = 0;
+      lastNewlineEnd = -2;
+      previousNewlineEnd = -2;
+      isRecordTerminated = false;
+      fieldCount = -1;
+      recordLineNo = -1;
+      recordCount = 0;
+      lastCodePoint = input.read();
+    }
+
+    /**
+     * Takes a checkpoint at the next record, adding its location in the input to the checkpoint the
+     * input begins at. The input must have been created from bytes.
+     *
+     * @param start the checkpoint the input begins at
+     * @return the checkpoint
+     * @throws IllegalStateException if the last record failed to be read partway through
+     */
+    public Checkpoint checkpoint(Checkpoint start) {
+      if (!isRecordTerminated && recordLineNo != -1) {
+        throw new IllegalStateException("Record partially read");
+      }
+      return new Checkpoint(
+          start.getByteOffset() + input.byteOffsetOf(lastCodePoint),
+          newlineCount + 1,
+          start.getRecordCount() + recordCount,
+          fieldCount);
+    }
 
-    public RecordReaderImpl(Reader reader) throws IOException {
-      this.tokenizer = new Tokenizer(reader, delimiter);
-      this.token = tokenizer.nextToken();
+    /**
+     * Returns the line number the last record read begins on.
+     *
+     * @return the line number, or -1 if no record has been read
+     */
+    public int getRecordLineNumber() {
+      return recordLineNo;
     }
 
     @Override
     public boolean hasMoreRecord() {
-      return token.getKind() != TokenKind.EOF;
+      return lastCodePoint != -1;
     }
 
     @Override
     public List<String> readRecord() throws IOException {
-      List<String> fields = parseRecord();
-      if (!allowVariadicFields) {
+      List<String> fields = new ArrayList<>();
+      readRecord(fields);
+      return Collections.unmodifiableList(fields);
+    }
+
+    /**
+     * Reads the next record only to validate it, without creating its fields.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public void validateRecord() throws IOException {
+      readRecord(null);
+    }
+
+    @Override
+    public long skipRecords(long n) throws IOException {
+      if (n < 0) {
+        throw new IllegalArgumentException("Negative number of records: " + n);
+      }
+      long skipped = 0;
+      while (skipped < n && hasMoreRecord()) {
+        readRecord(null);
+        skipped++;
+      }
+      return skipped;
+    }
+
+    private void readRecord(List<String> fields) throws IOException {
+      if (chunkRecordCount == 0 && chunkErrorCount == 0) {
+        beginChunk();
+      }
+      beginRecord();
+      recordLineNo = newlineCount + 1;
+      isRecordTerminated = false;
+      int width = parseRecord(fields);
+      if (isWidthFixed) {
         if (fieldCount == -1) {
-          fieldCount = fields.size();
-        } else if (fieldCount != fields.size()) {
-          // -1 as token is always one step ahead, meaning that it is already
-          // on the next line here at the end of record
-          int errorLineNo = tokenizer.getLineNumber() - 1;
-          throw new ParserException(ERROR_ILLEGAL_NUMBER_OF_FIELDS, errorLineNo);
+          fieldCount = width;
+        } else if (fieldCount != width) {
+          int errorLineNo = getLineNumberAhead() - 1;
+          throw newParserException(ERROR_ILLEGAL_NUMBER_OF_FIELDS, errorLineNo, -1);
         }
       }
-      return Collections.unmodifiableList(fields);
+      recordCount++;
+      if (++chunkRecordCount == ParseChunkEvent.RECORDS_PER_CHUNK || !hasMoreRecord()) {
+        endChunk();
+      }
     }
 
-    private List<String> parseRecord() throws IOException {
-      List<String> fields = new ArrayList<>();
-      fields.add(parseField());
-      while (true) {
-        switch (token.getKind()) {
-          case NEWLINE:
-            token = tokenizer.nextToken();
-          // caution: fall though
-          case EOF:
-            break;
-          case DELIM:
-            token = tokenizer.nextToken();
-          // caution: fall though
-          default:
-            fields.add(parseField());
-            continue;
+    private void beginChunk() {
+      ParseChunkEvent event = new ParseChunkEvent();
+      if (event.isEnabled()) {
+        event.source = source;
+        event.startOffset = offset;
+        event.startLine = getLineNumberAhead();
+        event.firstRecord = recordCount;
+        event.begin();
+        chunkEvent = event;
+      }
+    }
+
+    private void endChunk() {
+      ParseChunkEvent event = chunkEvent;
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.endOffset = offset;
+          event.endLine = getLineNumberAhead();
+          event.recordCount = chunkRecordCount;
+          event.errorCount = chunkErrorCount;
+          event.commit();
+        }
+        chunkEvent = null;
+      }
+      chunkRecordCount = 0;
+      chunkErrorCount = 0;
+    }
+
+    private ParserException newParserException(String message) {
+      return newParserException(message, getLineNumberAt(index), getCharacterNumberAt(index));
+    }
+
+    private ParserException newParserException(String message, int lineNo, int characterNo) {
+      chunkErrorCount++;
+      ParseErrorEvent.emit(source, message, lineNo, characterNo);
+      return newParserExceptionOf(message, lineNo, characterNo);
+    }
+
+    /** Returns whether the raw text of records is captured, for which fields must be read. */
+    protected abstract boolean isCapturing();
+
+    /** Called at the start of each record. */
+    protected abstract void beginRecord();
+
+    /** Called for each code point consumed one by one. */
+    protected abstract void captureCodePoint(int codePoint);
+
+    /** Called for the characters appended to the string builder as they are in the input. */
+    protected abstract void capturePlain(StringBuilder sb, int start);
+
+    /** Called for the content of an escaped field appended to the string builder, unescaped. */
+    protected abstract void captureEscaped(StringBuilder sb, int start);
+
+    /** Creates an exception of the error, which is then thrown. */
+    protected abstract ParserException newParserExceptionOf(
+        String message, int lineNo, int characterNo);
+
+    /**
+     * Skips the rest of the record being read up to and including the next newline, unless it has
+     * been terminated already.
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    protected void skipRecord() throws IOException {
+      while (!isRecordTerminated) {
+        int cls = classOf(lastCodePoint);
+        if (cls == TransitionTable.C_CR || cls == TransitionTable.C_LF) {
+          consumeNewline(cls);
+          isRecordTerminated = true;
+        } else if (cls == TransitionTable.C_EOF) {
+          isRecordTerminated = true;
+        } else {
+          consume();
         }
-        break;
       }
-      return fields;
+      if (!hasMoreRecord()) {
+        endChunk();
+      }
     }
 
-    private String parseField() throws IOException {
+    /**
+     * Parses the record into the fields, or only validates it if the fields are null, and returns
+     * the number of fields.
+     */
+    private int parseRecord(List<String> fields) throws IOException {
+      StringBuilder sb = field;
+      sb.setLength(0);
+      boolean isSkipping = fields == null && !isCapturing();
+      int width = 0;
       boolean isEscapedField = false;
-      StringBuilder sb = new StringBuilder();
+      int state = TransitionTable.S_FIELD_START;
       while (true) {
-        switch (token.getKind()) {
-          case QUOTE:
-            sb.delete(0, sb.length());
-            token = tokenizer.nextToken();
-            parseEscapedField(sb);
+        int cp = lastCodePoint;
+        int cls = classOf(cp);
+        int transition = transitions[state << TransitionTable.CLASS_BITS | cls];
+        state = transition & TransitionTable.STATE_MASK;
+        switch (transition >>> TransitionTable.ACTION_SHIFT) {
+          case TransitionTable.A_SKIP:
+            consume();
+            break;
+          case TransitionTable.A_APPEND:
+            if (!isSkipping) {
+              sb.appendCodePoint(cp);
+            }
+            consume();
+            break;
+          case TransitionTable.A_APPEND_PLAIN:
+            if (isSkipping) {
+              consumeBuffered(input.skipPlain());
+            } else {
+              appendPlain(sb);
+            }
+            break;
+          case TransitionTable.A_APPEND_ESCAPED:
+            if (isSkipping) {
+              consumeBuffered(input.skipEscaped());
+            } else {
+              appendEscaped(sb);
+            }
+            break;
+          case TransitionTable.A_APPEND_NEWLINE:
+            String newline = consumeNewline(cls);
+            if (!isSkipping) {
+              sb.append(newline);
+            }
+            break;
+          case TransitionTable.A_OPEN_QUOTE:
+            sb.setLength(0);
             isEscapedField = true;
+            consume();
             break;
-          case BLANK:
-            if (allowSpaceEncloseEscaped) {
-              sb.append((String) token.getValue());
-              token = tokenizer.nextToken();
-              continue;
+          case TransitionTable.A_END_FIELD:
+            if (fields != null) {
+              fields.add(toField(sb, isEscapedField));
             }
-          // caution: fall though otherwise
-          default:
-            parseNonEscapedField(sb);
+            width++;
+            sb.setLength(0);
+            isEscapedField = false;
+            consume();
             break;
+          case TransitionTable.A_END_RECORD:
+            if (fields != null) {
+              fields.add(toField(sb, isEscapedField));
+            }
+            terminateRecord(cls);
+            return width + 1;
+          case TransitionTable.A_ERROR_EMPTY_FIELD:
+            terminateRecord(cls);
+            throw newParserException(ERROR_EMPTY_FIELD_FOLLOWED_BY_EOR);
+          case TransitionTable.A_ERROR_QUOTE_IN_NON_ESCAPED:
+            consume();
+            throw newParserException(ERROR_DQUOTE_IN_NONESCAPED_FIELD);
+          case TransitionTable.A_ERROR_EOF_IN_ESCAPED:
+            isRecordTerminated = true;
+            throw newParserException(ERROR_EOF_REACHED_IN_ESCAPED_FIELD);
+          case TransitionTable.A_ERROR_AFTER_ESCAPED:
+            // the location is after the whole run of illegal characters
+            do {
+              consume();
+            } while (cls != TransitionTable.C_QUOTE && classOf(lastCodePoint) == cls);
+            throw newParserException(ERROR_ILLEGAL_CHAR_AFTER_ESCAPED_FIELD);
+          default:
+            throw new IllegalStateException("Unknown action: " + transition);
         }
-        break;
       }
+    }
+
+    private String toField(StringBuilder sb, boolean isEscapedField) {
       String field = sb.toString();
       if (stripFields && !isEscapedField) {
         field = field.strip();
@@ -171,217 +935,221 @@ public class CsvParserRfc4180 implements CsvParser {
       return field;
     }
 
-    private void parseNonEscapedField(StringBuilder sb) throws IOException {
-      while (true) {
-        switch (token.getKind()) {
-          case NEWLINE:
-          case EOF:
-            if (!allowRecordEndWithEmptyField && sb.isEmpty()) {
-              throw new ParserException(ERROR_EMPTY_FIELD_FOLLOWED_BY_EOR, tokenizer);
-            }
-          // caution: fall though otherwise
-          case DELIM:
-            return;
-          case WORD:
-          case BLANK:
-            sb.append((String) token.getValue());
-            token = tokenizer.nextToken();
-            break;
-          case QUOTE:
-            throw new ParserException(ERROR_DQUOTE_IN_NONESCAPED_FIELD, tokenizer);
-        }
+    private int classOf(int codePoint) {
+      if (codePoint >= 0 && codePoint < asciiClasses.length) {
+        return asciiClasses[codePoint];
       }
+      return TransitionTable.classOf(codePoint, delimiter);
     }
 
-    private void parseEscapedField(StringBuilder sb) throws IOException {
-      while (true) {
-        switch (token.getKind()) {
-          case EOF:
-            throw new ParserException(ERROR_EOF_REACHED_IN_ESCAPED_FIELD, tokenizer);
-          case QUOTE:
-            token = tokenizer.nextToken();
-            if (token.getKind() != TokenKind.QUOTE) {
-              // other end of quote pair is found
-              parseEscapedFieldEnd();
-              return;
-            }
-          // caution: fall though otherwise
-          default:
-            sb.append((String) token.getValue());
-            token = tokenizer.nextToken();
-            break;
-        }
+    private void terminateRecord(int cls) throws IOException {
+      if (cls != TransitionTable.C_EOF) {
+        consumeNewline(cls);
       }
+      isRecordTerminated = true;
     }
 
-    private void parseEscapedFieldEnd() throws IOException {
-      switch (token.getKind()) {
-        case NEWLINE:
-        case DELIM:
-        case EOF:
-          return;
-        case BLANK:
-          if (allowSpaceEncloseEscaped) {
-            // allow spaces but discard
-            token = tokenizer.nextToken();
-            parseEscapedFieldEnd();
-            return;
-          }
-        // caution: fall though otherwise
-        default:
-          throw new ParserException(ERROR_ILLEGAL_CHAR_AFTER_ESCAPED_FIELD, tokenizer);
+    /** Consumes the last code point, and reads the next one ahead. */
+    private void consume() throws IOException {
+      int cp = lastCodePoint;
+      captureCodePoint(cp);
+      index++;
+      offset += Character.charCount(cp);
+      lastCodePoint = input.read();
+    }
+
+    /** Consumes the newline starting with the last code point of the class, and returns it. */
+    private String consumeNewline(int cls) throws IOException {
+      consume();
+      String newline = "\n";
+      if (cls == TransitionTable.C_CR) {
+        newline = "\r";
+        if (classOf(lastCodePoint) == TransitionTable.C_LF) {
+          consume();
+          newline = "\r\n";
+        }
       }
+      newlineCount++;
+      previousNewlineEnd = lastNewlineEnd;
+      lastNewlineEnd = index - 1;
+      return newline;
+    }
+
+    /** Appends the last code point and the buffered run of plain characters that follows. */
+    private void appendPlain(StringBuilder sb) throws IOException {
+      int start = sb.length();
+      sb.appendCodePoint(lastCodePoint);
+      int n = input.appendPlain(sb);
+      capturePlain(sb, start);
+      consumeBuffered(n);
+    }
+
+    /** Appends the last code point and the buffered escaped content that follows. */
+    private void appendEscaped(StringBuilder sb) throws IOException {
+      int start = sb.length();
+      sb.appendCodePoint(lastCodePoint);
+      int n = input.appendEscaped(sb);
+      captureEscaped(sb, start);
+      consumeBuffered(n);
+    }
+
+    /** Consumes the last code point and the characters consumed in bulk from the input after it. */
+    private void consumeBuffered(int n) throws IOException {
+      index += 1 + n;
+      offset += Character.charCount(lastCodePoint) + n;
+      lastCodePoint = input.read();
+    }
+
+    /**
+     * Returns the line number at the index after the code point read ahead, as the original
+     * implementation located records with a token read ahead.
+     */
+    private int getLineNumberAhead() {
+      return getLineNumberAt(lastCodePoint == -1 ? index : index + 1);
+    }
+
+    private int getLineNumberAt(long at) {
+      return newlineCount - (isLastNewlinePending(at) ? 1 : 0) + 1;
+    }
+
+    private int getCharacterNumberAt(long at) {
+      long lineStart = (isLastNewlinePending(at) ? previousNewlineEnd : lastNewlineEnd) + 2;
+      return (int) (at - lineStart);
+    }
+
+    private boolean isLastNewlinePending(long at) {
+      return lastNewlineEnd == at - 1;
     }
   }
 
-  private static class Tokenizer implements Token.Tokenizer<TokenKind>, TextLocator {
+  /**
+   * {@code RecordReader} that throws {@link ParserException} on the first malformed record, which
+   * can be reset if created from a reader.
+   */
+  private final class StrictRecordReaderImpl extends RecordReaderImpl
+      implements ReusableRecordReader {
 
-    private static final int CP_LINE_FEED = 0x0a;
-    private static final int CP_CARRIAGE_RETURN = 0x0d;
-    private static final int CP_DOUBLE_QUOTE = 0x22;
+    public StrictRecordReaderImpl(CodePointInput input, String source) throws IOException {
+      this(input, source, false);
+    }
 
-    private final CodePointReader reader;
-    private final int delimiter;
-    private int lastCodePoint;
-    private boolean isNewlineJustRead = false;
-    private int lineNo = 0;
-    private int characterNo = 0;
+    public StrictRecordReaderImpl(CodePointInput input, String source, boolean isWidthFixed)
+        throws IOException {
+      this(input, source, isWidthFixed, 1, -1);
+    }
 
-    public Tokenizer(Reader reader, int delimiter) throws IOException {
-      this.reader = new CodePointReader(reader);
-      this.delimiter = delimiter;
-      lastCodePoint =
-          this.reader.readCodePoint(); // do not update location for accurate location reporting
+    public StrictRecordReaderImpl(
+        CodePointInput input, String source, boolean isWidthFixed, int lineNo, int fieldCount)
+        throws IOException {
+      super(input, source, isWidthFixed, lineNo, fieldCount);
     }
 
     @Override
-    public boolean hasNext() {
-      return lastCodePoint != -1;
+    protected boolean isCapturing() {
+      return false;
     }
 
     @Override
-    public Token<TokenKind> nextToken() throws IOException {
-      TokenKind type = null;
-      Object value = null;
-      CharacterClass ctype;
-      switch ((ctype = mapCodePoint(lastCodePoint))) {
-        case LETTER:
-          type = TokenKind.WORD;
-          value = readWhile(ctype);
-          break;
-        case SPACE:
-          type = TokenKind.BLANK;
-          value = readWhile(ctype);
-          break;
-        case CR:
-        case LF:
-          type = TokenKind.NEWLINE;
-          value = readNewline(ctype);
-          break;
-        case DELIM:
-          type = TokenKind.DELIM;
-          value = readCharacter();
-          break;
-        case QUOTE:
-          type = TokenKind.QUOTE;
-          value = readCharacter();
-          break;
-        case EOF:
-          type = TokenKind.EOF;
-          break;
-      }
-      return new Token<>(type, value);
+    protected void beginRecord() {}
+
+    @Override
+    protected void captureCodePoint(int codePoint) {}
+
+    @Override
+    protected void capturePlain(StringBuilder sb, int start) {}
+
+    @Override
+    protected void captureEscaped(StringBuilder sb, int start) {}
+
+    @Override
+    protected ParserException newParserExceptionOf(String message, int lineNo, int characterNo) {
+      return new ParserException(message, lineNo, characterNo);
+    }
+  }
+
+  /**
+   * {@code RecordReader} that captures the raw text of each record, and throws {@link
+   * MalformedRecordException} so that it can recover from malformed records.
+   */
+  private final class CapturingRecordReaderImpl extends RecordReaderImpl {
+
+    private final StringBuilder rawText = new StringBuilder();
+
+    public CapturingRecordReaderImpl(CodePointInput input, String source) throws IOException {
+      this(input, source, 1, -1);
+    }
+
+    public CapturingRecordReaderImpl(
+        CodePointInput input, String source, int lineNo, int fieldCount) throws IOException {
+      super(input, source, false, lineNo, fieldCount);
+    }
+
+    /**
+     * Skips the rest of the malformed record that caused the exception, so that the next record
+     * can be read.
+     *
+     * @param e the exception thrown while reading the malformed record
+     * @return the malformed record
+     * @throws IOException if an I/O error occurs
+     */
+    public MalformedRecord recover(MalformedRecordException e) throws IOException {
+      skipRecord();
+      String raw = rawText.toString();
+      return new MalformedRecord(e.getLineNumber(), e.getCharacterNumber(), e.getReason(), raw);
     }
 
     @Override
-    public int getLineNumber() {
-      return lineNo + 1;
+    protected boolean isCapturing() {
+      return true;
     }
 
     @Override
-    public int getCharacterNumber() {
-      return characterNo;
-    }
-
-    private CharacterClass mapCodePoint(int codePoint) {
-      CharacterClass type = CharacterClass.LETTER;
-      if (codePoint < 0) {
-        type = CharacterClass.EOF;
-      } else if (codePoint == delimiter) {
-        type = CharacterClass.DELIM;
-      } else if (codePoint == CP_LINE_FEED) {
-        type = CharacterClass.LF;
-      } else if (codePoint == CP_CARRIAGE_RETURN) {
-        type = CharacterClass.CR;
-      } else if (codePoint == CP_DOUBLE_QUOTE) {
-        type = CharacterClass.QUOTE;
-      } else if (Character.isWhitespace(codePoint)) {
-        type = CharacterClass.SPACE;
-      }
-      return type;
-    }
-
-    private String readWhile(CharacterClass ccls) throws IOException {
-      StringBuilder sb = new StringBuilder();
-      do {
-        sb.append(Character.toChars(lastCodePoint));
-        readCodePoint();
-      } while (mapCodePoint(lastCodePoint) == ccls);
-      return sb.toString();
-    }
-
-    private String readNewline(CharacterClass hint) throws IOException {
-      StringBuilder sb = new StringBuilder();
-      sb.append(Character.toChars(lastCodePoint));
-      readCodePoint();
-      if (hint == CharacterClass.CR) {
-        if (mapCodePoint(lastCodePoint) == CharacterClass.LF) {
-          sb.append(Character.toChars(lastCodePoint));
-          readCodePoint();
-        }
-      }
-      isNewlineJustRead = true;
-      return sb.toString();
+    protected void beginRecord() {
+      rawText.setLength(0);
     }
 
-    private String readCharacter() throws IOException {
-      String c = new String(Character.toChars(lastCodePoint));
-      readCodePoint();
-      return c;
+    @Override
+    protected void captureCodePoint(int codePoint) {
+      rawText.appendCodePoint(codePoint);
     }
 
-    private void readCodePoint() throws IOException {
-      lastCodePoint = reader.readCodePoint();
-      updateTextLocation();
+    @Override
+    protected void capturePlain(StringBuilder sb, int start) {
+      rawText.append(sb, start, sb.length());
     }
 
-    private void updateTextLocation() {
-      if (!isNewlineJustRead) {
-        characterNo++;
-      } else {
-        isNewlineJustRead = false;
-        lineNo++;
-        characterNo = 0;
-      }
+    @Override
+    protected void captureEscaped(StringBuilder sb, int start) {
+      // every double quote in the content has been unescaped from a pair
+      rawText.append(sb.substring(start).replace("\"", "\"\""));
     }
-  }
 
-  private enum TokenKind {
-    WORD,
-    BLANK,
-    NEWLINE,
-    DELIM,
-    QUOTE,
-    EOF
+    @Override
+    protected ParserException newParserExceptionOf(String message, int lineNo, int characterNo) {
+      return new MalformedRecordException(message, lineNo, characterNo);
+    }
   }
 
-  private enum CharacterClass {
-    DELIM,
-    QUOTE,
-    CR,
-    LF,
-    LETTER,
-    SPACE,
-    EOF
+  /**
+   * {@link ParserException} thrown while reading leniently. It is always caught to be reported to
+   * {@link MalformedRecordHandler}, hence its stack trace is never filled for efficiency.
+   */
+  private static class MalformedRecordException extends ParserException {
+
+    private final String reason;
+
+    public MalformedRecordException(String reason, int lineNo, int characterNo) {
+      super(reason, lineNo, characterNo);
+      this.reason = reason;
+    }
+
+    public String getReason() {
+      return reason;
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      return this;
+    }
   }
 }
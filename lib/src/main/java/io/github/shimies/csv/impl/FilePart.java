@@ -0,0 +1,79 @@
+package io.github.shimies.csv.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * Range of bytes of a file that begins with a record and ends with a record, so that it can be
+ * parsed independently of the other parts of the file.
+ *
+ * @param path the file
+ * @param start the offset of the first byte of the part
+ * @param end the offset next to the last byte of the part
+ * @param lineNo the line number the part begins on
+ */
+record FilePart(Path path, long start, long end, int lineNo) {
+
+  /**
+   * Returns whether the part is the beginning of the file.
+   *
+   * @return true if the part begins the file
+   */
+  boolean isFirst() {
+    return start == 0;
+  }
+
+  /**
+   * Opens an input stream that reads the bytes of the part.
+   *
+   * @return an instance of {@link InputStream}
+   * @throws IOException if an I/O error occurs
+   */
+  InputStream newInputStream() throws IOException {
+    return new PartInputStream(FileChannel.open(path), start, end);
+  }
+
+  /** {@link InputStream} that reads a range of bytes of a file channel by positional reads. */
+  private static final class PartInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private final long end;
+    private long position;
+
+    PartInputStream(FileChannel channel, long start, long end) {
+      this.channel = channel;
+      this.position = start;
+      this.end = end;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == 1 ? b[0] & 0xff : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      int n = (int) Math.min(len, end - position);
+      if (n <= 0) {
+        return -1;
+      }
+      n = channel.read(ByteBuffer.wrap(b, off, n), position);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      channel.close();
+    }
+  }
+}
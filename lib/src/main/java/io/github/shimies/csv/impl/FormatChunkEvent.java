@@ -0,0 +1,51 @@
+package io.github.shimies.csv.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event that covers a chunk of consecutive records written by a single {@link
+ * io.github.shimies.csv.RecordWriter}.
+ *
+ * <p>As with {@link ParseChunkEvent}, an event is emitted at most once per {@link
+ * #RECORDS_PER_CHUNK} records and only if writing the chunk takes longer than the threshold.
+ * Writing a record may block on the underlying {@link java.io.Writer}, hence the duration also
+ * includes the time spent in flushing its buffer. The last chunk that has fewer records is emitted
+ * only when the records are written by one of the {@code writeAllRecords} methods, since {@link
+ * io.github.shimies.csv.RecordWriter} cannot tell which record is the last one otherwise.
+ */
+@Name("io.github.shimies.csv.FormatChunk")
+@Label("CSV Format Chunk")
+@Category({"libcsv", "Formatter"})
+@Description("Chunk of consecutive CSV records written to a destination")
+@StackTrace(false)
+@Threshold("1 ms")
+final class FormatChunkEvent extends Event {
+
+  /** Maximum number of records covered by a single event. */
+  static final int RECORDS_PER_CHUNK = 1024;
+
+  @Label("Destination")
+  @Description("File path of the destination, or class name of the writer if unknown")
+  String destination;
+
+  @Label("Start Offset")
+  @Description("Number of characters written to the destination before the chunk")
+  long startOffset;
+
+  @Label("End Offset")
+  @Description("Number of characters written to the destination after the chunk")
+  long endOffset;
+
+  @Label("First Record")
+  @Description("Zero-based index of the first record in the chunk")
+  long firstRecord;
+
+  @Label("Record Count")
+  int recordCount;
+}
@@ -0,0 +1,223 @@
+package io.github.shimies.csv.impl;
+
+import io.github.shimies.csv.SourcedRecord;
+import io.github.shimies.csv.SourcedRecordReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * {@link SourcedRecordReader} that parses files in parallel on a work-stealing pool of its own.
+ *
+ * <p>Files are planned into tasks of about {@link #PART_SIZE} bytes each, in order of files: small
+ * files are batched into a task, and large files are split at boundaries of records into parts of
+ * a task each if possible. The width of the first record of a split file, which the parts after
+ * the first are validated against, is read once by a task of its own. Tasks are parsed into
+ * records ahead of reading, up to twice as many as the parallelism at a time, so that memory stays
+ * bounded however many files there are. Records are read from the tasks in order of planning if
+ * ordered, otherwise in order of completion.
+ *
+ * <p>The pool is shut down once all records are read, or the reader is closed. This class is not
+ * thread-safe.
+ */
+final class ParallelRecordReaderImpl implements SourcedRecordReader {
+
+  static final long PART_SIZE = 1 << 20;
+
+  /** Parser of the parts of a task into records. */
+  interface PartParser {
+
+    /**
+     * Returns the number of fields every record of the file must have, as told by its first record.
+     *
+     * @param path the file
+     * @return the number of fields, or -1 if not fixed
+     * @throws IOException if an I/O error occurs
+     */
+    int fieldCountOf(Path path) throws IOException;
+
+    /**
+     * Parses the parts in order into records. Parts other than the beginning of a file are
+     * validated against the field count, all of which are of the same file.
+     *
+     * @param parts the parts to parse
+     * @param fieldCount the number of fields every record must have, or -1 if not fixed
+     * @return the records parsed
+     * @throws IOException if an I/O error occurs
+     */
+    List<SourcedRecord> parse(List<FilePart> parts, int fieldCount) throws IOException;
+  }
+
+  private final Iterator<Path> paths;
+  private final boolean isSplittable;
+  private final PartParser parser;
+  private final ForkJoinPool pool;
+  private final int maxPendingCount;
+  private final Deque<Callable<List<SourcedRecord>>> plannedTasks = new ArrayDeque<>();
+  private final Deque<Future<List<SourcedRecord>>> orderedTasks;
+  private final ExecutorCompletionService<List<SourcedRecord>> unorderedTasks;
+  private int pendingCount = 0;
+  private List<SourcedRecord> records = List.of();
+  private int recordIndex = 0;
+
+  ParallelRecordReaderImpl(
+      List<Path> paths, boolean isSplittable, boolean isOrdered, PartParser parser)
+      throws IOException {
+    this.paths = List.copyOf(paths).iterator();
+    this.isSplittable = isSplittable;
+    this.parser = parser;
+    int parallelism = Runtime.getRuntime().availableProcessors();
+    this.pool = new ForkJoinPool(parallelism);
+    this.maxPendingCount = 2 * parallelism;
+    this.orderedTasks = isOrdered ? new ArrayDeque<>() : null;
+    this.unorderedTasks = isOrdered ? null : new ExecutorCompletionService<>(pool);
+    advance();
+  }
+
+  @Override
+  public boolean hasMoreRecord() {
+    return records != null;
+  }
+
+  @Override
+  public SourcedRecord readRecord() throws IOException {
+    if (records == null) {
+      throw new NoSuchElementException("No more record");
+    }
+    SourcedRecord record = records.get(recordIndex++);
+    advance();
+    return record;
+  }
+
+  @Override
+  public long skipRecords(long n) throws IOException {
+    if (n < 0) {
+      throw new IllegalArgumentException("Negative number of records: " + n);
+    }
+    long skipped = 0;
+    while (skipped < n && records != null) {
+      int count = (int) Math.min(n - skipped, records.size() - recordIndex);
+      recordIndex += count;
+      skipped += count;
+      advance();
+    }
+    return skipped;
+  }
+
+  @Override
+  public void close() {
+    records = null;
+    pool.shutdownNow();
+  }
+
+  /** Moves on to the records of the next task unless the current one has more. */
+  private void advance() throws IOException {
+    try {
+      while (recordIndex == records.size()) {
+        submit();
+        if (pendingCount == 0) {
+          close();
+          return;
+        }
+        records = take();
+        recordIndex = 0;
+      }
+    } catch (IOException | RuntimeException | Error e) {
+      close();
+      throw e;
+    }
+  }
+
+  private void submit() throws IOException {
+    while (pendingCount < maxPendingCount && (!plannedTasks.isEmpty() || plan())) {
+      Callable<List<SourcedRecord>> task = RecordBoundaries.unchecked(plannedTasks.poll());
+      if (orderedTasks != null) {
+        orderedTasks.add(pool.submit(task));
+      } else {
+        unorderedTasks.submit(task);
+      }
+      pendingCount++;
+    }
+  }
+
+  private List<SourcedRecord> take() throws IOException {
+    try {
+      Future<List<SourcedRecord>> task =
+          orderedTasks != null ? orderedTasks.poll() : unorderedTasks.take();
+      pendingCount--;
+      return task.get();
+    } catch (ExecutionException e) {
+      throw RecordBoundaries.asIoException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while parsing files");
+    }
+  }
+
+  /**
+   * Plans files into tasks, up to the first large file or the batch of small files as large as a
+   * part.
+   *
+   * @return true if any task is planned
+   */
+  private boolean plan() throws IOException {
+    List<FilePart> batch = new ArrayList<>();
+    long batchSize = 0;
+    while (batchSize < PART_SIZE && paths.hasNext()) {
+      Path path = paths.next();
+      long size = Files.size(path);
+      if (isSplittable && size > PART_SIZE) {
+        if (!batch.isEmpty()) {
+          plannedTasks.add(newTask(batch, null));
+        }
+        List<FilePart> parts = RecordBoundaries.split(path, size, PART_SIZE, pool);
+        Future<Integer> fieldCount =
+            parts.size() > 1
+                ? pool.submit(RecordBoundaries.unchecked(() -> parser.fieldCountOf(path)))
+                : null;
+        for (FilePart part : parts) {
+          plannedTasks.add(newTask(List.of(part), part.isFirst() ? null : fieldCount));
+        }
+        return true;
+      }
+      batch.add(new FilePart(path, 0, size, 1));
+      batchSize += size;
+    }
+    if (!batch.isEmpty()) {
+      plannedTasks.add(newTask(batch, null));
+    }
+    return !plannedTasks.isEmpty();
+  }
+
+  /**
+   * Returns the task of parsing the parts, validated against the field count that the future
+   * computes unless it is null.
+   */
+  private Callable<List<SourcedRecord>> newTask(List<FilePart> parts, Future<Integer> fieldCount) {
+    return () -> {
+      if (fieldCount == null) {
+        return parser.parse(parts, -1);
+      }
+      try {
+        return parser.parse(parts, fieldCount.get());
+      } catch (ExecutionException e) {
+        throw RecordBoundaries.asIoException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while parsing files");
+      }
+    };
+  }
+}
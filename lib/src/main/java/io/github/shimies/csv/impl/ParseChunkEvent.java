@@ -0,0 +1,59 @@
+package io.github.shimies.csv.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * JDK Flight Recorder event that covers a chunk of consecutive records read by a single {@link
+ * io.github.shimies.csv.RecordReader}.
+ *
+ * <p>An event is emitted at most once per {@link #RECORDS_PER_CHUNK} records, and only if reading
+ * the chunk takes longer than the threshold, so that the overhead stays negligible even when the
+ * event is enabled in continuous recordings. Structural errors found in the chunk are counted
+ * rather than recorded one by one, as lenient readers may find one in every record.
+ */
+@Name("io.github.shimies.csv.ParseChunk")
+@Label("CSV Parse Chunk")
+@Category({"libcsv", "Parser"})
+@Description("Chunk of consecutive CSV records parsed from a source")
+@StackTrace(false)
+@Threshold("1 ms")
+final class ParseChunkEvent extends Event {
+
+  /** Maximum number of records covered by a single event. */
+  static final int RECORDS_PER_CHUNK = 1024;
+
+  @Label("Source")
+  @Description("File path of the source, or class name of the reader if unknown")
+  String source;
+
+  @Label("Start Offset")
+  @Description("Number of characters read from the source before the chunk")
+  long startOffset;
+
+  @Label("End Offset")
+  @Description("Number of characters read from the source after the chunk")
+  long endOffset;
+
+  @Label("Start Line")
+  int startLine;
+
+  @Label("End Line")
+  int endLine;
+
+  @Label("First Record")
+  @Description("Zero-based index of the first record in the chunk")
+  long firstRecord;
+
+  @Label("Record Count")
+  int recordCount;
+
+  @Label("Error Count")
+  @Description("Number of structural errors found in the chunk")
+  int errorCount;
+}
@@ -0,0 +1,57 @@
+package io.github.shimies.csv.impl;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JDK Flight Recorder event that records a structural error found while parsing a CSV.
+ *
+ * <p>The event is disabled by default, as reading malformed CSVs leniently may emit one for every
+ * record, whereas {@link ParseChunkEvent} counts errors of each chunk. Enable it in the recording
+ * settings to locate each error.
+ */
+@Name("io.github.shimies.csv.ParseError")
+@Label("CSV Parse Error")
+@Category({"libcsv", "Parser"})
+@Description("Structural error found while parsing a CSV")
+@StackTrace(false)
+@Enabled(false)
+final class ParseErrorEvent extends Event {
+
+  @Label("Source")
+  @Description("File path of the source, or class name of the reader if unknown")
+  String source;
+
+  @Label("Line Number")
+  int lineNumber;
+
+  @Label("Character Number")
+  int characterNumber;
+
+  @Label("Reason")
+  String reason;
+
+  /**
+   * Emits an event if the event is enabled.
+   *
+   * @param source the source being parsed
+   * @param reason the reason of the error without location information
+   * @param lineNo the line number where the error occurred
+   * @param characterNo the character number where the error occurred, or -1 if unknown
+   */
+  static void emit(String source, String reason, int lineNo, int characterNo) {
+    ParseErrorEvent event = new ParseErrorEvent();
+    if (event.shouldCommit()) {
+      event.source = source;
+      event.lineNumber = lineNo;
+      event.characterNumber = characterNo;
+      event.reason = reason;
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,263 @@
+package io.github.shimies.csv.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Finder of boundaries of records in the middle of files, which splits files into parts that can be
+ * parsed in parallel.
+ *
+ * <p>A newline ends a record unless it is in an escaped field, that is, unless an odd number of
+ * double quotes precede it, as every double quote in well-formed CSVs either opens or closes an
+ * escaped field or is one of an escaped pair. Files are first scanned in parallel in chunks of the
+ * part size, counting double quotes and newlines of each chunk, from which whether the beginning of
+ * each chunk is escaped and its line number follow. Each part then begins at the first boundary of
+ * records from the beginning of its chunk.
+ *
+ * <p>Bytes are scanned as they are, which only works in charsets where the bytes of a double quote,
+ * CR and LF never appear as part of other characters. Parts of malformed files may begin in the
+ * middle of records, whose errors are still reported by parsing the parts, but possibly elsewhere.
+ */
+final class RecordBoundaries {
+
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /**
+   * Returns whether files in the charset can be split at boundaries of records found in bytes.
+   *
+   * @param cs the charset of files
+   * @return true if files can be split
+   */
+  static boolean isSplittable(Charset cs) {
+    return cs.equals(StandardCharsets.UTF_8)
+        || cs.equals(StandardCharsets.US_ASCII)
+        || cs.equals(StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * Splits the file into parts of about the part size, each of which begins at a boundary of
+   * records. Chunks are scanned in parallel by the executor.
+   *
+   * @param path the file
+   * @param size the size of the file
+   * @param partSize the size of parts
+   * @param executor the executor to scan chunks with
+   * @return the parts in order, which cover the whole file
+   * @throws IOException if an I/O error occurs
+   */
+  static List<FilePart> split(Path path, long size, long partSize, ExecutorService executor)
+      throws IOException {
+    int chunkCount = (int) Math.max((size + partSize - 1) / partSize, 1);
+    List<Callable<long[]>> counts = new ArrayList<>();
+    for (int i = 0; i < chunkCount; i++) {
+      long start = i * partSize;
+      counts.add(() -> count(path, start, Math.min(start + partSize, size), size));
+    }
+    List<long[]> chunkCounts = invokeAll(executor, counts);
+
+    List<Callable<long[]>> boundaries = new ArrayList<>();
+    long quoteCount = 0;
+    long newlineCount = 0;
+    for (int i = 1; i < chunkCount; i++) {
+      quoteCount += chunkCounts.get(i - 1)[0];
+      newlineCount += chunkCounts.get(i - 1)[1];
+      long start = i * partSize;
+      boolean isEscaped = (quoteCount & 1) != 0;
+      long lineNo = newlineCount + 1;
+      boundaries.add(
+          () -> {
+            long[] boundary = findBoundary(path, start, size, isEscaped);
+            return new long[] {boundary[0], lineNo + boundary[1]};
+          });
+    }
+    List<long[]> starts = invokeAll(executor, boundaries);
+
+    List<FilePart> parts = new ArrayList<>();
+    long start = 0;
+    int lineNo = 1;
+    for (long[] next : starts) {
+      if (next[0] > start) {
+        parts.add(new FilePart(path, start, next[0], lineNo));
+        start = next[0];
+        lineNo = (int) next[1];
+      }
+    }
+    parts.add(new FilePart(path, start, size, lineNo));
+    return parts;
+  }
+
+  /**
+   * Counts double quotes and newlines in the range of the file. CRLF is counted at LF, so that it
+   * is counted once even across ranges.
+   *
+   * @return the number of double quotes and the number of newlines
+   */
+  private static long[] count(Path path, long start, long end, long size) throws IOException {
+    long quoteCount = 0;
+    long newlineCount = 0;
+    try (FileChannel channel = FileChannel.open(path)) {
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      byte[] bytes = buffer.array();
+      boolean isCrPending = false;
+      long position = start;
+      while (position < end) {
+        int n = read(channel, buffer, position, end);
+        for (int i = 0; i < n; i++) {
+          byte b = bytes[i];
+          if (isCrPending && b != '\n') {
+            newlineCount++;
+          }
+          isCrPending = b == '\r';
+          if (b == '\n') {
+            newlineCount++;
+          } else if (b == '"') {
+            quoteCount++;
+          }
+        }
+        position += n;
+      }
+      if (isCrPending && (end == size || byteAt(channel, end) != '\n')) {
+        newlineCount++;
+      }
+    }
+    return new long[] {quoteCount, newlineCount};
+  }
+
+  /**
+   * Finds the first boundary of records at or after the offset, counting newlines up to it.
+   *
+   * @return the offset of the boundary, or the size if none, and the number of newlines before it
+   */
+  private static long[] findBoundary(Path path, long start, long size, boolean isEscaped)
+      throws IOException {
+    try (FileChannel channel = FileChannel.open(path)) {
+      int previous = byteAt(channel, start - 1);
+      if (!isEscaped
+          && (previous == '\n' || previous == '\r' && byteAt(channel, start) != '\n')) {
+        return new long[] {start, 0};
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+      byte[] bytes = buffer.array();
+      long newlineCount = 0;
+      boolean isCrPending = false;
+      long position = start;
+      while (position < size) {
+        int n = read(channel, buffer, position, size);
+        for (int i = 0; i < n; i++) {
+          byte b = bytes[i];
+          if (isCrPending) {
+            isCrPending = false;
+            // CR is a newline by itself unless followed by LF, at which CRLF is counted
+            if (b != '\n') {
+              newlineCount++;
+              if (!isEscaped) {
+                return new long[] {position + i, newlineCount};
+              }
+            }
+          }
+          if (b == '"') {
+            isEscaped = !isEscaped;
+          } else if (b == '\r') {
+            isCrPending = true;
+          } else if (b == '\n') {
+            newlineCount++;
+            if (!isEscaped) {
+              return new long[] {position + i + 1, newlineCount};
+            }
+          }
+        }
+        position += n;
+      }
+      return new long[] {size, newlineCount};
+    }
+  }
+
+  private static int read(FileChannel channel, ByteBuffer buffer, long position, long end)
+      throws IOException {
+    buffer.clear();
+    buffer.limit((int) Math.min(buffer.capacity(), end - position));
+    int n = channel.read(buffer, position);
+    if (n < 0) {
+      throw new IOException("File truncated while being split");
+    }
+    return n;
+  }
+
+  private static int byteAt(FileChannel channel, long position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(1);
+    return channel.read(buffer, position) == 1 ? buffer.get(0) : -1;
+  }
+
+  /**
+   * Runs the tasks by the executor, and returns their results in order, or throws the first
+   * failure after all the tasks finish.
+   */
+  static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+      throws IOException {
+    List<Callable<T>> uncheckedTasks = new ArrayList<>();
+    for (Callable<T> task : tasks) {
+      uncheckedTasks.add(unchecked(task));
+    }
+    List<Future<T>> futures;
+    try {
+      futures = executor.invokeAll(uncheckedTasks);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while splitting files");
+    }
+    List<T> results = new ArrayList<>();
+    for (Future<T> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (ExecutionException e) {
+        throw asIoException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while splitting files");
+      }
+    }
+    return results;
+  }
+
+  /**
+   * Returns the task that throws I/O exceptions as unchecked, which {@link
+   * java.util.concurrent.ForkJoinPool} would otherwise wrap into runtime exceptions of its own.
+   */
+  static <T> Callable<T> unchecked(Callable<T> task) {
+    return () -> {
+      try {
+        return task.call();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    };
+  }
+
+  /** Rethrows the failure of a task as it is if unchecked, or returns it as an I/O exception. */
+  static IOException asIoException(Throwable e) {
+    if (e instanceof IOException) {
+      return (IOException) e;
+    } else if (e instanceof UncheckedIOException) {
+      return ((UncheckedIOException) e).getCause();
+    } else if (e instanceof RuntimeException) {
+      throw (RuntimeException) e;
+    } else if (e instanceof Error) {
+      throw (Error) e;
+    }
+    return new IOException(e);
+  }
+
+  private RecordBoundaries() {}
+}
@@ -0,0 +1,48 @@
+package io.github.shimies.csv.impl;
+
+/** {@link StructuralScanner} that examines one character at a time. */
+final class ScalarStructuralScanner implements StructuralScanner {
+
+  private static final char CH_LINE_FEED = '\n';
+  private static final char CH_CARRIAGE_RETURN = '\r';
+  private static final char CH_DOUBLE_QUOTE = '"';
+  private static final char CH_FIRST_PLAIN = '!';
+  private static final char CH_LAST_PLAIN = '~';
+
+  @Override
+  public int skipPlain(char[] buffer, int from, int to, char delimiter) {
+    int i = from;
+    while (i < to) {
+      char c = buffer[i];
+      if (c < CH_FIRST_PLAIN || c > CH_LAST_PLAIN || c == CH_DOUBLE_QUOTE || c == delimiter) {
+        break;
+      }
+      i++;
+    }
+    return i;
+  }
+
+  @Override
+  public int appendEscaped(char[] buffer, int from, int to, StringBuilder sb) {
+    int start = from;
+    int i = from;
+    while (i < to) {
+      char c = buffer[i];
+      if (c == CH_DOUBLE_QUOTE) {
+        if (i + 1 == to || buffer[i + 1] != CH_DOUBLE_QUOTE) {
+          break;
+        }
+        sb.append(buffer, start, i + 1 - start); // keep only one of the pair
+        i += 2;
+        start = i;
+        continue;
+      }
+      if (c == CH_CARRIAGE_RETURN || c == CH_LINE_FEED || Character.isSurrogate(c)) {
+        break;
+      }
+      i++;
+    }
+    sb.append(buffer, start, i - start);
+    return i;
+  }
+}
@@ -0,0 +1,39 @@
+package io.github.shimies.csv.impl;
+
+/**
+ * Scanner that finds structural characters of CSVs in a buffer of UTF-16 code units, so that runs
+ * of characters without any special meaning can be consumed in bulk instead of one by one.
+ *
+ * <p>Implementations must be stateless and thread-safe. The one in use is obtained by {@link
+ * StructuralScanners#getInstance()}.
+ */
+interface StructuralScanner {
+
+  /**
+   * Returns the index of the first character that may not be a plain letter of a non-escaped
+   * field. All characters before the index are printable ASCII characters other than the double
+   * quote and the delimiter.
+   *
+   * @param buffer the buffer to scan
+   * @param from the index to start scanning from, inclusive
+   * @param to the index to stop scanning at, exclusive
+   * @param delimiter the field delimiter, or a double quote if it is not in the BMP
+   * @return the index of the first character that may not be plain, or {@code to} if there is none
+   */
+  int skipPlain(char[] buffer, int from, int to, char delimiter);
+
+  /**
+   * Appends the content of an escaped field to the string builder, unescaping each pair of double
+   * quotes into one, until a character that needs special handling is found. That is, the closing
+   * double quote, CR, LF or a surrogate, all of which are left for the caller. Implementations may
+   * also stop at a double quote whose pair is yet to be examined, such as one at the end of the
+   * range.
+   *
+   * @param buffer the buffer to scan
+   * @param from the index to start scanning from, inclusive, which must be inside an escaped field
+   * @param to the index to stop scanning at, exclusive
+   * @param sb the string builder to append the content to
+   * @return the index of the first character that needs special handling, or {@code to} if none
+   */
+  int appendEscaped(char[] buffer, int from, int to, StringBuilder sb);
+}
@@ -0,0 +1,23 @@
+package io.github.shimies.csv.impl;
+
+/**
+ * Provides the {@link StructuralScanner} best suited for the running JVM.
+ *
+ * <p>This is the version for Java 17. A multi-release jar replaces this class with the one that
+ * provides a scanner using the Vector API on Java 21 or later.
+ */
+final class StructuralScanners {
+
+  private static final StructuralScanner INSTANCE = new ScalarStructuralScanner();
+
+  /**
+   * Returns the scanner to use.
+   *
+   * @return an instance of {@link StructuralScanner}
+   */
+  static StructuralScanner getInstance() {
+    return INSTANCE;
+  }
+
+  private StructuralScanners() {}
+}
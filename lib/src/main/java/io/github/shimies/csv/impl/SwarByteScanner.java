@@ -0,0 +1,162 @@
+package io.github.shimies.csv.impl;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Scanner that finds structural characters of CSVs in a buffer of bytes in a single-byte charset
+ * compatible with ASCII, so that runs of characters without any special meaning can be consumed in
+ * bulk instead of one by one.
+ *
+ * <p>Bytes are examined eight at a time as a {@code long} word read through a {@link VarHandle}
+ * (SIMD within a register). A word is tested for bytes of interest by the well-known bit tricks
+ * that set the most significant bit of each byte equal to or less than a value, of which the lowest
+ * one is always exact.
+ */
+final class SwarByteScanner {
+
+  private static final VarHandle LONG_VIEW =
+      MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGHS = 0x8080808080808080L;
+  private static final long LINE_FEEDS = ONES * '\n';
+  private static final long CARRIAGE_RETURNS = ONES * '\r';
+  private static final long DOUBLE_QUOTES = ONES * '"';
+  private static final long FIRST_PLAINS = ONES * '!';
+  private static final long DELETES = ONES * 0x7f;
+  private static final byte B_DOUBLE_QUOTE = '"';
+
+  private final long delimiters;
+  private final long nonAsciiMask;
+
+  /**
+   * Constructs.
+   *
+   * @param delimiter the field delimiter
+   * @param isAsciiOnly whether bytes with the most significant bit set must be stopped at
+   */
+  SwarByteScanner(int delimiter, boolean isAsciiOnly) {
+    // a delimiter out of ASCII is never plain anyway
+    this.delimiters = delimiter < 0x80 ? ONES * delimiter : DOUBLE_QUOTES;
+    this.nonAsciiMask = isAsciiOnly ? HIGHS : 0;
+  }
+
+  /**
+   * Returns the index of the first byte that may not be a plain letter of a non-escaped field. All
+   * bytes before the index are printable ASCII characters other than the double quote and the
+   * delimiter.
+   *
+   * @param buffer the buffer to scan
+   * @param from the index to start scanning from, inclusive
+   * @param to the index to stop scanning at, exclusive
+   * @return the index of the first byte that may not be plain, or {@code to} if there is none
+   */
+  int skipPlain(byte[] buffer, int from, int to) {
+    int i = from;
+    for (; i + Long.BYTES <= to; i += Long.BYTES) {
+      long word = (long) LONG_VIEW.get(buffer, i);
+      long special =
+          (word & HIGHS)
+              | hasLess(word, FIRST_PLAINS)
+              | hasZero(word ^ DELETES)
+              | hasZero(word ^ DOUBLE_QUOTES)
+              | hasZero(word ^ delimiters);
+      if (special != 0) {
+        return i + (Long.numberOfTrailingZeros(special) >>> 3);
+      }
+    }
+    for (; i < to; i++) {
+      int b = buffer[i] & 0xff;
+      if (b < '!' || b > '~' || b == B_DOUBLE_QUOTE || b == (delimiters & 0xff)) {
+        break;
+      }
+    }
+    return i;
+  }
+
+  /**
+   * Appends the content of an escaped field to the string builder, unescaping each pair of double
+   * quotes into one, until the closing double quote, CR, LF, or a byte out of ASCII if not allowed
+   * is found. It may also stop at a double quote at the end of the range, whose pair is unknown.
+   *
+   * @param buffer the buffer to scan
+   * @param from the index to start scanning from, inclusive, which must be inside an escaped field
+   * @param to the index to stop scanning at, exclusive
+   * @param sb the string builder to append the content to
+   * @return the index of the first byte that needs special handling, or {@code to} if none
+   */
+  int appendEscaped(byte[] buffer, int from, int to, StringBuilder sb) {
+    int start = from;
+    int i = from;
+    while (true) {
+      i = findEscapedSpecial(buffer, i, to);
+      if (i + 1 >= to || buffer[i] != B_DOUBLE_QUOTE || buffer[i + 1] != B_DOUBLE_QUOTE) {
+        break;
+      }
+      append(buffer, start, i + 1, sb); // keep only one of the pair
+      i += 2;
+      start = i;
+    }
+    append(buffer, start, i, sb);
+    return i;
+  }
+
+  /**
+   * Skips the content of an escaped field as {@link #appendEscaped(byte[], int, int,
+   * StringBuilder)} does, without appending it anywhere.
+   *
+   * @param buffer the buffer to scan
+   * @param from the index to start scanning from, inclusive, which must be inside an escaped field
+   * @param to the index to stop scanning at, exclusive
+   * @return the index of the first byte that needs special handling, or {@code to} if none
+   */
+  int skipEscaped(byte[] buffer, int from, int to) {
+    int i = findEscapedSpecial(buffer, from, to);
+    while (i + 1 < to && buffer[i] == B_DOUBLE_QUOTE && buffer[i + 1] == B_DOUBLE_QUOTE) {
+      i = findEscapedSpecial(buffer, i + 2, to);
+    }
+    return i;
+  }
+
+  private int findEscapedSpecial(byte[] buffer, int from, int to) {
+    int i = from;
+    for (; i + Long.BYTES <= to; i += Long.BYTES) {
+      long word = (long) LONG_VIEW.get(buffer, i);
+      long special =
+          (word & nonAsciiMask)
+              | hasZero(word ^ DOUBLE_QUOTES)
+              | hasZero(word ^ CARRIAGE_RETURNS)
+              | hasZero(word ^ LINE_FEEDS);
+      if (special != 0) {
+        return i + (Long.numberOfTrailingZeros(special) >>> 3);
+      }
+    }
+    for (; i < to; i++) {
+      byte b = buffer[i];
+      if (b == B_DOUBLE_QUOTE || b == '\r' || b == '\n' || (b < 0 && nonAsciiMask != 0)) {
+        break;
+      }
+    }
+    return i;
+  }
+
+  private static void append(byte[] buffer, int from, int to, StringBuilder sb) {
+    if (from < to) {
+      // appending a Latin-1 string is a plain copy of bytes thanks to compact strings
+      sb.append(new String(buffer, from, to - from, StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  /** Sets the most significant bit of the lowest zero byte, and possibly of higher bytes. */
+  private static long hasZero(long word) {
+    return (word - ONES) & ~word & HIGHS;
+  }
+
+  /** Sets the most significant bit of the lowest byte less than the bound, and possibly others. */
+  private static long hasLess(long word, long bounds) {
+    return (word - bounds) & ~word & HIGHS;
+  }
+}
@@ -0,0 +1,201 @@
+package io.github.shimies.csv.impl;
+
+/**
+ * Transition table of the deterministic finite automaton that recognizes a record of RFC 4180
+ * CSVs, as extended by the flags of {@link CsvParserRfc4180}.
+ *
+ * <p>Each code point is mapped to one of a few character classes, through a lookup table for ASCII
+ * code points. The table then gives, for each pair of the current state and the character class, a
+ * byte in which the lowest {@value #ACTION_SHIFT} bits are the next state and the rest is the
+ * action to take on the code point. A record ends with {@link #A_END_RECORD} or one of the error
+ * actions.
+ */
+final class TransitionTable {
+
+  static final int C_DELIM = 0;
+  static final int C_QUOTE = 1;
+  static final int C_CR = 2;
+  static final int C_LF = 3;
+  static final int C_SPACE = 4;
+  static final int C_LETTER = 5;
+  static final int C_EOF = 6;
+  static final int CLASS_BITS = 3;
+
+  /** At the start of a field. */
+  static final int S_FIELD_START = 0;
+
+  /** In whitespaces that may precede an escaped field. */
+  static final int S_LEADING_BLANK = 1;
+
+  /** In a non-escaped field. */
+  static final int S_NON_ESCAPED = 2;
+
+  /** In an escaped field. */
+  static final int S_ESCAPED = 3;
+
+  /** After a double quote in an escaped field, which may be either closing or paired. */
+  static final int S_QUOTE_IN_ESCAPED = 4;
+
+  /** In whitespaces that follow an escaped field. */
+  static final int S_ESCAPED_END = 5;
+
+  static final int STATE_COUNT = 6;
+  static final int STATE_MASK = 0x7;
+  static final int ACTION_SHIFT = 3;
+
+  /** Consumes the code point. */
+  static final int A_SKIP = 0;
+
+  /** Appends the code point to the field. */
+  static final int A_APPEND = 1;
+
+  /** Appends the code point and the run of plain characters that follows to the field. */
+  static final int A_APPEND_PLAIN = 2;
+
+  /** Appends the code point and the escaped content that follows to the field. */
+  static final int A_APPEND_ESCAPED = 3;
+
+  /** Appends the newline that starts with the code point to the field. */
+  static final int A_APPEND_NEWLINE = 4;
+
+  /** Consumes the opening double quote, discarding whitespaces appended to the field so far. */
+  static final int A_OPEN_QUOTE = 5;
+
+  /** Consumes the field delimiter to end the field. */
+  static final int A_END_FIELD = 6;
+
+  /** Consumes the newline that starts with the code point, if not EOF, to end the record. */
+  static final int A_END_RECORD = 7;
+
+  /** Fails as the last field is empty. */
+  static final int A_ERROR_EMPTY_FIELD = 8;
+
+  /** Fails as a double quote is found in a non-escaped field. */
+  static final int A_ERROR_QUOTE_IN_NON_ESCAPED = 9;
+
+  /** Fails as EOF is reached in an escaped field. */
+  static final int A_ERROR_EOF_IN_ESCAPED = 10;
+
+  /** Fails as an escaped field is followed by something other than a delimiter. */
+  static final int A_ERROR_AFTER_ESCAPED = 11;
+
+  private static final byte[][] TABLES = new byte[4][];
+
+  static {
+    for (int i = 0; i < TABLES.length; i++) {
+      TABLES[i] = generate((i & 1) != 0, (i & 2) != 0);
+    }
+  }
+
+  private TransitionTable() {}
+
+  /**
+   * Returns the transition table for the combination of flags. The other flags of {@link
+   * CsvParserRfc4180} apply to fields and records as a whole, and do not change the automaton.
+   *
+   * @param allowRecordEndWithEmptyField whether to allow records ending with an empty field
+   * @param allowSpaceEncloseEscaped whether to allow spaces around escaped fields
+   * @return the shared transition table, which must not be modified
+   */
+  static byte[] of(boolean allowRecordEndWithEmptyField, boolean allowSpaceEncloseEscaped) {
+    return TABLES[(allowRecordEndWithEmptyField ? 1 : 0) | (allowSpaceEncloseEscaped ? 2 : 0)];
+  }
+
+  /**
+   * Creates the character classes of ASCII code points, indexed by the code point.
+   *
+   * @param delimiter the field delimiter, which takes precedence over any other class
+   * @return the character classes of ASCII code points
+   */
+  static byte[] classesOfAscii(int delimiter) {
+    byte[] classes = new byte[0x80];
+    for (int cp = 0; cp < classes.length; cp++) {
+      classes[cp] = (byte) classOf(cp, delimiter);
+    }
+    return classes;
+  }
+
+  /**
+   * Returns the character class of the code point.
+   *
+   * @param codePoint the code point, or -1 for EOF
+   * @param delimiter the field delimiter
+   * @return the character class
+   */
+  static int classOf(int codePoint, int delimiter) {
+    if (codePoint < 0) {
+      return C_EOF;
+    } else if (codePoint == delimiter) {
+      return C_DELIM;
+    } else if (codePoint == '\n') {
+      return C_LF;
+    } else if (codePoint == '\r') {
+      return C_CR;
+    } else if (codePoint == '"') {
+      return C_QUOTE;
+    } else if (Character.isWhitespace(codePoint)) {
+      return C_SPACE;
+    }
+    return C_LETTER;
+  }
+
+  private static byte[] generate(
+      boolean allowRecordEndWithEmptyField, boolean allowSpaceEncloseEscaped) {
+    byte[] table = new byte[STATE_COUNT << CLASS_BITS];
+    int endWithEmptyField = allowRecordEndWithEmptyField ? A_END_RECORD : A_ERROR_EMPTY_FIELD;
+
+    setEndOfField(table, S_FIELD_START, endWithEmptyField);
+    set(table, S_FIELD_START, C_QUOTE, A_OPEN_QUOTE, S_ESCAPED);
+    set(
+        table,
+        S_FIELD_START,
+        C_SPACE,
+        A_APPEND,
+        allowSpaceEncloseEscaped ? S_LEADING_BLANK : S_NON_ESCAPED);
+    set(table, S_FIELD_START, C_LETTER, A_APPEND_PLAIN, S_NON_ESCAPED);
+
+    setEndOfField(table, S_LEADING_BLANK, A_END_RECORD);
+    set(table, S_LEADING_BLANK, C_QUOTE, A_OPEN_QUOTE, S_ESCAPED);
+    set(table, S_LEADING_BLANK, C_SPACE, A_APPEND, S_LEADING_BLANK);
+    set(table, S_LEADING_BLANK, C_LETTER, A_APPEND_PLAIN, S_NON_ESCAPED);
+
+    setEndOfField(table, S_NON_ESCAPED, A_END_RECORD);
+    set(table, S_NON_ESCAPED, C_QUOTE, A_ERROR_QUOTE_IN_NON_ESCAPED, S_NON_ESCAPED);
+    set(table, S_NON_ESCAPED, C_SPACE, A_APPEND, S_NON_ESCAPED);
+    set(table, S_NON_ESCAPED, C_LETTER, A_APPEND_PLAIN, S_NON_ESCAPED);
+
+    set(table, S_ESCAPED, C_DELIM, A_APPEND_ESCAPED, S_ESCAPED);
+    set(table, S_ESCAPED, C_QUOTE, A_SKIP, S_QUOTE_IN_ESCAPED);
+    set(table, S_ESCAPED, C_CR, A_APPEND_NEWLINE, S_ESCAPED);
+    set(table, S_ESCAPED, C_LF, A_APPEND_NEWLINE, S_ESCAPED);
+    set(table, S_ESCAPED, C_SPACE, A_APPEND_ESCAPED, S_ESCAPED);
+    set(table, S_ESCAPED, C_LETTER, A_APPEND_ESCAPED, S_ESCAPED);
+    set(table, S_ESCAPED, C_EOF, A_ERROR_EOF_IN_ESCAPED, S_ESCAPED);
+
+    // a double quote in an escaped field is closing unless paired with the next one
+    for (int state : new int[] {S_QUOTE_IN_ESCAPED, S_ESCAPED_END}) {
+      setEndOfField(table, state, A_END_RECORD);
+      set(table, state, C_QUOTE, A_ERROR_AFTER_ESCAPED, state);
+      set(
+          table,
+          state,
+          C_SPACE,
+          allowSpaceEncloseEscaped ? A_SKIP : A_ERROR_AFTER_ESCAPED,
+          S_ESCAPED_END);
+      set(table, state, C_LETTER, A_ERROR_AFTER_ESCAPED, state);
+    }
+    set(table, S_QUOTE_IN_ESCAPED, C_QUOTE, A_APPEND, S_ESCAPED);
+    return table;
+  }
+
+  private static void setEndOfField(byte[] table, int state, int endOfRecordAction) {
+    set(table, state, C_DELIM, A_END_FIELD, S_FIELD_START);
+    set(table, state, C_CR, endOfRecordAction, S_FIELD_START);
+    set(table, state, C_LF, endOfRecordAction, S_FIELD_START);
+    set(table, state, C_EOF, endOfRecordAction, S_FIELD_START);
+  }
+
+  private static void set(byte[] table, int state, int characterClass, int action, int next) {
+    table[state << CLASS_BITS | characterClass] = (byte) (action << ACTION_SHIFT | next);
+  }
+}
@@ -0,0 +1,35 @@
+package io.github.shimies.csv.impl;
+
+/**
+ * Provides the {@link StructuralScanner} best suited for the running JVM.
+ *
+ * <p>This is the version for Java 21 or later. It provides {@link VectorStructuralScanner} if the
+ * incubating Vector API is available, that is, the JVM is run with {@code --add-modules
+ * jdk.incubator.vector}, and {@link ScalarStructuralScanner} otherwise.
+ */
+final class StructuralScanners {
+
+  private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+  private static final StructuralScanner INSTANCE = createInstance();
+
+  /**
+   * Returns the scanner to use.
+   *
+   * @return an instance of {@link StructuralScanner}
+   */
+  static StructuralScanner getInstance() {
+    return INSTANCE;
+  }
+
+  private static StructuralScanner createInstance() {
+    // do not touch the Vector API unless its module is resolved, or loading classes fails
+    if (ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()
+        && VectorStructuralScanner.isSupported()) {
+      return new VectorStructuralScanner();
+    }
+    return new ScalarStructuralScanner();
+  }
+
+  private StructuralScanners() {}
+}
@@ -0,0 +1,135 @@
+package io.github.shimies.csv.impl;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link StructuralScanner} that examines a block of characters at a time using the Vector API.
+ *
+ * <p>Escaped fields are scanned in the same way as simdjson and simdcsv do. Each block of 64
+ * characters is turned into bitmasks of double quotes and other special characters, and the
+ * region inside the escaped field is computed as the prefix-XOR of the double quote mask. Thus
+ * pairs of double quotes do not stop the scanning, and the closing double quote is found in a
+ * handful of bit operations.
+ */
+final class VectorStructuralScanner implements StructuralScanner {
+
+  private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+  private static final int LANES = SPECIES.length();
+  private static final int BLOCK_SIZE = Long.SIZE;
+
+  private static final short CH_LINE_FEED = '\n';
+  private static final short CH_CARRIAGE_RETURN = '\r';
+  private static final short CH_DOUBLE_QUOTE = '"';
+  private static final short CH_FIRST_PLAIN = '!';
+  private static final short CH_LAST_PLAIN = '~';
+  private static final short SURROGATE_MASK = (short) 0xf800;
+  private static final short SURROGATE_BITS = (short) 0xd800;
+
+  private final StructuralScanner fallback = new ScalarStructuralScanner();
+
+  /**
+   * Returns true if the preferred vector shape can be used to build bitmasks of blocks.
+   *
+   * @return true if supported
+   */
+  static boolean isSupported() {
+    return LANES > 1 && BLOCK_SIZE % LANES == 0;
+  }
+
+  @Override
+  public int skipPlain(char[] buffer, int from, int to, char delimiter) {
+    int i = from;
+    int bound = from + SPECIES.loopBound(to - from);
+    short delim = (short) delimiter;
+    for (; i < bound; i += LANES) {
+      ShortVector v = ShortVector.fromCharArray(SPECIES, buffer, i);
+      // characters above 0x7fff are negative as short, hence less than the first plain one
+      VectorMask<Short> special =
+          v.lt(CH_FIRST_PLAIN)
+              .or(v.compare(VectorOperators.GT, CH_LAST_PLAIN))
+              .or(v.eq(CH_DOUBLE_QUOTE))
+              .or(v.eq(delim));
+      if (special.anyTrue()) {
+        return i + special.firstTrue();
+      }
+    }
+    return fallback.skipPlain(buffer, i, to, delimiter);
+  }
+
+  @Override
+  public int appendEscaped(char[] buffer, int from, int to, StringBuilder sb) {
+    int i = from;
+    while (to - i >= BLOCK_SIZE) {
+      long quotes = 0;
+      long specials = 0;
+      for (int k = 0; k < BLOCK_SIZE; k += LANES) {
+        ShortVector v = ShortVector.fromCharArray(SPECIES, buffer, i + k);
+        quotes |= v.eq(CH_DOUBLE_QUOTE).toLong() << k;
+        VectorMask<Short> special =
+            v.eq(CH_CARRIAGE_RETURN)
+                .or(v.eq(CH_LINE_FEED))
+                .or(v.and(SURROGATE_MASK).eq(SURROGATE_BITS));
+        specials |= special.toLong() << k;
+      }
+      if ((quotes | specials) == 0) {
+        sb.append(buffer, i, BLOCK_SIZE);
+        i += BLOCK_SIZE;
+        continue;
+      }
+      int stop = findStop(quotes, specials);
+      appendUnescaped(buffer, i, stop, quotes, sb);
+      if (stop < BLOCK_SIZE) {
+        return i + stop;
+      }
+      i += BLOCK_SIZE;
+    }
+    return fallback.appendEscaped(buffer, i, to, sb);
+  }
+
+  /**
+   * Returns the index in a block where scanning must stop, given that the block starts inside an
+   * escaped field.
+   */
+  private static int findStop(long quotes, long specials) {
+    // bit i is set if the character at i leaves the region inside the escaped field
+    long outside = prefixXor(quotes);
+    long outsideNonQuotes = ~quotes & outside;
+    int stop = BLOCK_SIZE;
+    if (outsideNonQuotes != 0) {
+      // the character just before the first one outside is the closing double quote
+      stop = Long.numberOfTrailingZeros(outsideNonQuotes) - 1;
+    } else if (outside < 0) {
+      // the last double quote may be paired with the first character of the next block
+      stop = BLOCK_SIZE - 1;
+    }
+    return Math.min(stop, Long.numberOfTrailingZeros(specials));
+  }
+
+  /** Appends the first characters in a block, keeping only one double quote of each pair. */
+  private static void appendUnescaped(
+      char[] buffer, int blockStart, int length, long quotes, StringBuilder sb) {
+    long pairs = length == BLOCK_SIZE ? quotes : quotes & ((1L << length) - 1);
+    int start = blockStart;
+    while (pairs != 0) {
+      int first = blockStart + Long.numberOfTrailingZeros(pairs);
+      sb.append(buffer, start, first + 1 - start);
+      start = first + 2;
+      pairs &= pairs - 1;
+      pairs &= pairs - 1;
+    }
+    sb.append(buffer, start, blockStart + length - start);
+  }
+
+  private static long prefixXor(long bits) {
+    bits ^= bits << 1;
+    bits ^= bits << 2;
+    bits ^= bits << 4;
+    bits ^= bits << 8;
+    bits ^= bits << 16;
+    bits ^= bits << 32;
+    return bits;
+  }
+}
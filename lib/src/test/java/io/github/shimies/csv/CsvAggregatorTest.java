@@ -0,0 +1,205 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** Test suite for {@link CsvAggregator}. */
+public class CsvAggregatorTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void aggregatesAreComputedForEachGroup() throws IOException {
+    var csv = "a,1,x\r\nb,2.5,x\r\na,3,y\r\nb,,x\r\na,-4,x\r\nc\r\n";
+    var aggregator =
+        new CsvAggregator(
+            new int[] {0},
+            List.of(
+                Aggregation.count(),
+                Aggregation.sum(1),
+                Aggregation.min(1),
+                Aggregation.max(1),
+                Aggregation.avg(1),
+                Aggregation.countDistinct(2)),
+            1 << 20,
+            1,
+            tempDir);
+
+    var actual = aggregate(aggregator, csv);
+    assertThat(actual)
+        .containsExactly(
+            List.of("a", "3", "0", "-4", "3", "0.0", "2"),
+            List.of("b", "2", "2.5", "2.5", "2.5", "2.5", "1"),
+            List.of("c", "1", "", "", "", "", "0"));
+  }
+
+  @Test
+  void recordsAreGroupedByMultipleKeyColumns() throws IOException {
+    var csv = "a,b,1\r\na,b,2\r\nab,,3\r\na,,4\r\na\r\n";
+    var aggregator =
+        new CsvAggregator(new int[] {0, 1}, List.of(Aggregation.sum(2)), 1 << 20, 1, tempDir);
+
+    var actual = aggregate(aggregator, csv);
+    assertThat(actual)
+        .containsExactly(List.of("a", "b", "3"), List.of("ab", "", "3"), List.of("a", "", "4"));
+  }
+
+  @Test
+  void allRecordsAreAggregatedAsSingleGroupWithoutKeyColumns() throws IOException {
+    var csv = "x,9223372036854775807\r\ny,1\r\nz,1.5\r\n";
+    var aggregator =
+        new CsvAggregator(
+            new int[0], List.of(Aggregation.count(), Aggregation.max(1)), 1 << 20, 2, tempDir);
+
+    var actual = aggregate(aggregator, csv);
+    assertThat(actual).containsExactly(List.of("3", "9223372036854775807"));
+  }
+
+  @Test
+  void sumFallsBackToDoubleOnOverflow() throws IOException {
+    var csv = "a,9223372036854775807\r\na,1\r\n";
+    var aggregator = new CsvAggregator(new int[] {0}, List.of(Aggregation.sum(1)));
+
+    var actual = aggregate(aggregator, csv);
+    assertThat(actual).containsExactly(List.of("a", "9.223372036854776E18"));
+  }
+
+  @ParameterizedTest
+  @CsvSource({"1048576, 1", "1048576, 4", "4096, 1", "4096, 3", "1, 2"})
+  void resultsAreIndependentOfMemoryBudgetAndParallelism(long memoryBudget, int parallelism)
+      throws IOException {
+    var random = new Random(42);
+    var records = new ArrayList<List<String>>();
+    var expectedCounts = new HashMap<String, Long>();
+    var expectedSums = new HashMap<String, Long>();
+    var expectedValues = new HashMap<String, Set<String>>();
+    for (int i = 0; i < 20000; i++) {
+      var key = "key\r\n" + random.nextInt(2000);
+      var value = random.nextInt(1000);
+      records.add(List.of(key, Integer.toString(value), "v" + value % 10));
+      expectedCounts.merge(key, 1L, Long::sum);
+      expectedSums.merge(key, (long) value, Long::sum);
+      expectedValues.computeIfAbsent(key, k -> new HashSet<>()).add("v" + value % 10);
+    }
+    var csv = CsvFormatters.ofRfc4180().formatToString(records);
+    var aggregator =
+        new CsvAggregator(
+            new int[] {0},
+            List.of(Aggregation.count(), Aggregation.sum(1), Aggregation.countDistinct(2)),
+            memoryBudget,
+            parallelism,
+            tempDir);
+
+    var actual = aggregate(aggregator, csv);
+    actual.sort(Comparator.comparing(result -> result.get(0)));
+    var expected = new ArrayList<List<String>>();
+    for (Map.Entry<String, Long> entry : expectedCounts.entrySet()) {
+      var key = entry.getKey();
+      expected.add(
+          List.of(
+              key,
+              entry.getValue().toString(),
+              expectedSums.get(key).toString(),
+              Integer.toString(expectedValues.get(key).size())));
+    }
+    expected.sort(Comparator.comparing(result -> result.get(0)));
+    assertThat(actual).isEqualTo(expected);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @ParameterizedTest
+  @CsvSource({"1048576, 1", "4096, 1", "4096, 3"})
+  void distinctValuesAreCountedBeyondMemoryBudget(long memoryBudget, int parallelism)
+      throws IOException {
+    var records = new ArrayList<List<String>>();
+    for (int i = 0; i < 20000; i++) {
+      records.add(List.of("key" + i % 3, "v" + i % 5000));
+    }
+    var csv = CsvFormatters.ofRfc4180().formatToString(records);
+    var aggregator =
+        new CsvAggregator(
+            new int[] {0},
+            List.of(Aggregation.count(), Aggregation.countDistinct(1)),
+            memoryBudget,
+            parallelism,
+            tempDir);
+
+    var actual = aggregate(aggregator, csv);
+    actual.sort(Comparator.comparing(result -> result.get(0)));
+    assertThat(actual)
+        .containsExactly(
+            List.of("key0", "6667", "5000"),
+            List.of("key1", "6667", "5000"),
+            List.of("key2", "6666", "5000"));
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void unparsableValueIsReported() {
+    var aggregator =
+        new CsvAggregator(new int[] {0}, List.of(Aggregation.sum(1)), 1 << 20, 2, tempDir);
+
+    assertThatThrownBy(() -> aggregate(aggregator, "a,1\r\na,x\r\n"))
+        .isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void unparsableValueInParallelLeavesNoSpillBehind() throws IOException {
+    var records = new ArrayList<List<String>>();
+    for (int i = 0; i < 20000; i++) {
+      records.add(List.of("key" + i, i == 100 ? "x" : Integer.toString(i)));
+    }
+    var csv = CsvFormatters.ofRfc4180().formatToString(records);
+    var aggregator =
+        new CsvAggregator(new int[] {0}, List.of(Aggregation.sum(1)), 4096, 4, tempDir);
+
+    assertThatThrownBy(() -> aggregate(aggregator, csv))
+        .isInstanceOf(NumberFormatException.class);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    var aggregations = List.of(Aggregation.count());
+
+    assertThatThrownBy(() -> new CsvAggregator(new int[] {-1}, aggregations))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvAggregator(new int[] {0}, List.of()))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvAggregator(new int[] {0}, aggregations, 0, 1, null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvAggregator(new int[] {0}, aggregations, 1, 0, null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> Aggregation.sum(-1)).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<List<String>> aggregate(CsvAggregator aggregator, String csv)
+      throws IOException {
+    return aggregator.aggregate(PARSER.newRecordReader(new StringReader(csv)));
+  }
+}
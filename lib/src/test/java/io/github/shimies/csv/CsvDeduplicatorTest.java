@@ -0,0 +1,90 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** Test suite for {@link CsvDeduplicator}. */
+public class CsvDeduplicatorTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+
+  @TempDir Path tempDir;
+
+  @Test
+  void firstRecordOfEachKeyIsKeptInOrder() throws IOException {
+    var deduplicator = new CsvDeduplicator(new int[] {0, 1});
+    var results = new ArrayList<List<String>>();
+
+    var dropCount =
+        deduplicator.deduplicate(
+            PARSER.newRecordReader(new StringReader("a,b,1\r\nab,,2\r\na,b,3\r\nab\r\nb,a,4\r\n")),
+            results::add);
+    assertThat(dropCount).isEqualTo(2);
+    assertThat(results)
+        .containsExactly(List.of("a", "b", "1"), List.of("ab", "", "2"), List.of("b", "a", "4"));
+  }
+
+  @Test
+  void wholeRecordsAreTakenAsKeysWithoutKeyColumns() throws IOException {
+    var deduplicator = new CsvDeduplicator(new int[0], true, 1 << 20, tempDir);
+    var results = new ArrayList<List<String>>();
+
+    var dropCount =
+        deduplicator.deduplicate(
+            PARSER.newRecordReader(new StringReader("a,b\r\na,b,\"\"\r\nab\r\na,b\r\n")),
+            results::add);
+    assertThat(dropCount).isEqualTo(1);
+    assertThat(results).containsExactly(List.of("a", "b"), List.of("a", "b", ""), List.of("ab"));
+  }
+
+  @ParameterizedTest
+  @CsvSource({"false, 1048576", "true, 1048576", "false, 65536", "true, 65536", "false, 1024"})
+  void resultsAreIndependentOfModeAndMemoryBudget(boolean isExact, long memoryBudget)
+      throws IOException {
+    var random = new Random(42);
+    var records = new ArrayList<List<String>>();
+    var expected = new LinkedHashMap<String, List<String>>();
+    for (int i = 0; i < 20000; i++) {
+      var key = "k\r\n" + random.nextInt(5000);
+      var record = List.of(key, Integer.toString(i));
+      records.add(record);
+      expected.putIfAbsent(key, record);
+    }
+    var csv = CsvFormatters.ofRfc4180().formatToString(records);
+    var deduplicator = new CsvDeduplicator(new int[] {0}, isExact, memoryBudget, tempDir);
+    var results = new ArrayList<List<String>>();
+
+    var dropCount =
+        deduplicator.deduplicate(PARSER.newRecordReader(new StringReader(csv)), results::add);
+    assertThat(dropCount).isEqualTo(records.size() - expected.size());
+    if (memoryBudget >= 1 << 20) {
+      assertThat(results).containsExactlyElementsOf(expected.values());
+    } else {
+      assertThat(results).containsExactlyInAnyOrderElementsOf(expected.values());
+    }
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    assertThatThrownBy(() -> new CsvDeduplicator(new int[] {-1}))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvDeduplicator(new int[] {0}, false, 0, null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
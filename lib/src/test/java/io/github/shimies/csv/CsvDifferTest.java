@@ -0,0 +1,159 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/** Test suite for {@link CsvDiffer}. */
+public class CsvDifferTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final String OLD = "1,a,x\r\n2,b,y\r\n3,c,z\r\n";
+  private static final String NEW = "1,a,x\r\n3,C,z,w\r\n4,d,v\r\n";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void sortedCsvsAreMergedInOrderOfKeys() throws IOException {
+    var differ = new CsvDiffer(new int[] {0}, true, 1 << 20, 1, tempDir);
+
+    var actual = diff(differ, OLD, NEW);
+    assertThat(actual)
+        .extracting(RecordDiff::toString)
+        .containsExactly("-[2, b, y]", "~[3, c, z] -> [3, C, z, w]", "+[4, d, v]");
+    assertThat(actual.get(1).getChangedColumns()).containsExactly(1, 3);
+  }
+
+  @Test
+  void recordsAreComparedByPositionWithoutKeyColumns() throws IOException {
+    var differ = new CsvDiffer(new int[0]);
+
+    var actual = diff(differ, OLD, NEW + "5\r\n");
+    assertThat(actual)
+        .extracting(RecordDiff::getKind)
+        .containsExactly(RecordDiff.Kind.CHANGED, RecordDiff.Kind.CHANGED, RecordDiff.Kind.ADDED);
+    assertThat(actual.get(1).getChangedColumns()).containsExactly(0, 1, 2);
+  }
+
+  @Test
+  void duplicateKeysAndKeysOutOfOrderAreReported() {
+    var sortedDiffer = new CsvDiffer(new int[] {0}, true, 1 << 20, 1, tempDir);
+    var differ = new CsvDiffer(new int[] {0});
+
+    assertThatThrownBy(() -> diff(sortedDiffer, "2\r\n1\r\n", ""))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> diff(sortedDiffer, "", "1\r\n1\r\n"))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> diff(differ, "1\r\n1\r\n", ""))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> diff(differ, "1\r\n", "1\r\n1\r\n"))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void keysDuplicatedOnlyInNewCsvAreReportedAsAddedUnlessSorted() throws IOException {
+    var differ = new CsvDiffer(new int[] {0});
+
+    var actual = diff(differ, "1,a\r\n", "1,a\r\n2,b\r\n2,c\r\n");
+    assertThat(actual)
+        .extracting(RecordDiff::toString)
+        .containsExactlyInAnyOrder("+[2, b]", "+[2, c]");
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+    "true, 1048576, 1",
+    "false, 1048576, 1",
+    "false, 65536, 1",
+    "false, 65536, 3",
+    "false, 16384, 2",
+    "false, 65536, 64"
+  })
+  void resultsAreIndependentOfOrderMemoryBudgetAndParallelism(
+      boolean isSorted, long memoryBudget, int parallelism) throws IOException {
+    var random = new Random(42);
+    var oldRecords = new TreeMap<String, List<String>>();
+    var newRecords = new TreeMap<String, List<String>>();
+    for (int i = 0; i < 5000; i++) {
+      var key = String.format("k\r\n%05d", i);
+      if (random.nextInt(10) > 0) {
+        oldRecords.put(key, List.of(key, "v" + random.nextInt(3)));
+      }
+      if (random.nextInt(10) > 0) {
+        newRecords.put(key, List.of(key, "v" + random.nextInt(3)));
+      }
+    }
+    var expected = new HashSet<String>();
+    oldRecords.forEach(
+        (key, record) -> {
+          var newRecord = newRecords.get(key);
+          if (newRecord == null) {
+            expected.add("-" + record);
+          } else if (!newRecord.equals(record)) {
+            expected.add("~" + record + " -> " + newRecord);
+          }
+        });
+    newRecords.forEach(
+        (key, record) -> {
+          if (!oldRecords.containsKey(key)) {
+            expected.add("+" + record);
+          }
+        });
+    var oldList = new ArrayList<>(oldRecords.values());
+    if (!isSorted) {
+      Collections.shuffle(oldList, random);
+    }
+    var formatter = CsvFormatters.ofRfc4180();
+    var differ = new CsvDiffer(new int[] {0}, isSorted, memoryBudget, parallelism, tempDir);
+
+    var actual =
+        diff(
+            differ,
+            formatter.formatToString(oldList),
+            formatter.formatToString(new ArrayList<>(newRecords.values())));
+    Set<String> actualStrings = new HashSet<>();
+    actual.forEach(diff -> actualStrings.add(diff.toString()));
+    assertThat(actual).hasSameSizeAs(expected);
+    assertThat(actualStrings).isEqualTo(expected);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    assertThatThrownBy(() -> new CsvDiffer(new int[] {-1}))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvDiffer(new int[] {0}, false, 0, 1, null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvDiffer(new int[] {0}, false, 1, 0, null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static List<RecordDiff> diff(CsvDiffer differ, String oldCsv, String newCsv)
+      throws IOException {
+    var results = new ArrayList<RecordDiff>();
+    var count =
+        differ.diff(
+            PARSER.newRecordReader(new StringReader(oldCsv)),
+            PARSER.newRecordReader(new StringReader(newCsv)),
+            results::add);
+    assertThat(count).isEqualTo(results.size());
+    return results;
+  }
+}
@@ -3,10 +3,13 @@ package io.github.shimies.csv;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /** Test suite for {@link CsvFormatter}. */
 public class CsvFormatterTest {
@@ -49,4 +52,80 @@ public class CsvFormatterTest {
     assertThat(sink).hasContent("1,2\r\nHello,World\r\n");
     Files.delete(sink);
   }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void eachRecordIsFormattedFieldByFieldUsingTypedRecordWriter(boolean isDefault)
+      throws IOException {
+    var formatter = CsvFormatters.ofRfc4180();
+    var sink = new StringWriter();
+    var writer =
+        isDefault
+            ? ((CsvFormatter) formatter::newRecordWriter).newTypedRecordWriter(sink)
+            : formatter.newTypedRecordWriter(sink);
+
+    writer.startRecord();
+    writer.writeInt(-12);
+    writer.writeLong(Long.MIN_VALUE);
+    writer.writeDouble(0.1);
+    writer.writeString("a,\"b\"");
+    writer.writeCharSequence("xx\ny".toCharArray(), 1, 3);
+    writer.endRecord();
+    writer.startRecord();
+    writer.writeString("c");
+    writer.writeString("");
+    writer.endRecord();
+    writer.startRecord();
+    writer.endRecord();
+
+    assertThat(sink)
+        .hasToString("-12,-9223372036854775808,0.1,\"a,\"\"b\"\"\",\"x\ny\"\r\nc,\"\"\r\n");
+  }
+
+  @Test
+  void numbersAreEscapedIfTheyContainDelimiter() throws IOException {
+    var formatter = CsvFormatters.ofRfc4180('.', Newline.LF, true);
+    var sink = new StringWriter();
+    var writer = formatter.newTypedRecordWriter(sink);
+
+    writer.startRecord();
+    writer.writeInt(1);
+    writer.writeDouble(2.5);
+    writer.writeString("");
+    writer.endRecord();
+
+    assertThat(sink).hasToString("1.\"2.5\".\n");
+  }
+
+  @Test
+  void fieldsOutsideRecordAreRejected() throws IOException {
+    var writer = CsvFormatters.ofRfc4180().newTypedRecordWriter(new StringWriter());
+
+    assertThatThrownBy(() -> writer.writeInt(1)).isInstanceOf(IllegalStateException.class);
+    writer.startRecord();
+    assertThatThrownBy(writer::startRecord).isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(() -> writer.writeRecord(List.of("a")))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void reusableRecordWriterWritesIntoEachDestination(boolean isDefault) throws IOException {
+    var formatter = CsvFormatters.ofRfc4180();
+    var writer =
+        isDefault
+            ? ((CsvFormatter) formatter::newRecordWriter).newReusableRecordWriter()
+            : formatter.newReusableRecordWriter();
+    var first = new StringWriter();
+    var second = new StringWriter();
+
+    writer.writeRecord(List.of("discarded"));
+    writer.reset(first);
+    writer.writeRecord(List.of("a", "b,c"));
+    writer.reset(second);
+    writer.writeAllRecords(List.of(List.of("x"), List.of("")));
+
+    assertThat(first).hasToString("a,\"b,c\"\r\n");
+    assertThat(second).hasToString("x\r\n\"\"\r\n");
+  }
 }
@@ -3,8 +3,12 @@ package io.github.shimies.csv;
 import static org.assertj.core.api.Assertions.*;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.util.List;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /** Test suite for {@link CsvFormatters}. */
 public class CsvFormattersTest {
@@ -28,4 +32,89 @@ public class CsvFormattersTest {
 
     assertThat(actual).isEqualTo("foo|bar|\nbaz|qux|\n");
   }
+
+  @ParameterizedTest
+  @CsvSource(
+      delimiter = '|',
+      value = {
+        "MINIMAL|x,-1.5,\"a,b\",\"\"\r\n",
+        "ALWAYS|\"x\",\"-1.5\",\"a,b\",\"\"\r\n",
+        "NON_NUMERIC|\"x\",-1.5,\"a,b\",\"\"\r\n"
+      })
+  void fieldsAreQuotedByPolicy(QuotingPolicy policy, String expected) throws IOException {
+    var formatter = CsvFormatters.ofRfc4180(',', Newline.CRLF, false, policy);
+
+    var actual = formatter.formatToString(List.of(List.of("x", "-1.5", "a,b", "")));
+
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test
+  void typedNumbersAreNotQuotedByNonNumericPolicy() throws IOException {
+    var sink = new StringWriter();
+    var formatter = CsvFormatters.ofRfc4180(',', Newline.LF, false, QuotingPolicy.NON_NUMERIC);
+    var writer = formatter.newTypedRecordWriter(sink);
+
+    writer.startRecord();
+    writer.writeInt(7);
+    writer.writeDouble(2.5);
+    writer.writeString("1e3");
+    writer.writeString("1e");
+    writer.endRecord();
+
+    assertThat(sink).hasToString("7,2.5,1e3,\"1e\"\n");
+  }
+
+  @Test
+  void fieldThatMustBeQuotedIsRejectedByNeverPolicy() throws IOException {
+    var sink = new StringWriter();
+    var formatter = CsvFormatters.ofRfc4180(',', Newline.LF, true, QuotingPolicy.NEVER);
+    var writer = formatter.newRecordWriter(sink);
+
+    writer.writeRecord(List.of("a", ""));
+    assertThatThrownBy(() -> writer.writeRecord(List.of("b", "c\"d")))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("column 1");
+    writer.writeRecord(List.of("e", "f"));
+
+    assertThat(sink).hasToString("a,\ne,f\n");
+  }
+
+  @Test
+  void fieldsInSafeColumnsAreNotScanned() throws IOException {
+    var formatter = CsvFormatters.ofRfc4180(',', Newline.LF, false, QuotingPolicy.MINIMAL, 1);
+
+    var actual = formatter.formatToString(List.of(List.of("a,b", "c"), List.of("d", "e")));
+
+    assertThat(actual).isEqualTo("\"a,b\",c\nd,e\n");
+    assertThatThrownBy(
+            () -> CsvFormatters.ofRfc4180(',', Newline.LF, false, QuotingPolicy.ALWAYS, -1))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"a\uD800b", "\uDC00", "\"\uD800"})
+  void fieldWithLoneSurrogateIsRejected(String field) throws IOException {
+    var sink = new StringWriter();
+    var writer = CsvFormatters.ofRfc4180().newRecordWriter(sink);
+
+    assertThatThrownBy(() -> writer.writeRecord(List.of(field, "c")))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Encounter illegal unicode character");
+    writer.writeRecord(List.of("d", "\uD83D\uDE00"));
+
+    assertThat(sink).hasToString("d,\uD83D\uDE00\r\n");
+  }
+
+  @Test
+  void loneSurrogateInSafeColumnIsWrittenAsIs() throws IOException {
+    var formatter = CsvFormatters.ofRfc4180(',', Newline.LF, false, QuotingPolicy.MINIMAL, 1);
+
+    var actual = formatter.formatToString(List.of(List.of("a", "\uD800b")));
+
+    assertThat(actual).isEqualTo("a,\uD800b\n");
+    assertThatThrownBy(() -> formatter.formatToString(List.of(List.of("\uD800", "b"))))
+        .isInstanceOf(IOException.class)
+        .hasMessage("Encounter illegal unicode character");
+  }
 }
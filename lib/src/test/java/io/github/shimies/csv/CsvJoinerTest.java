@@ -0,0 +1,173 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import io.github.shimies.csv.CsvJoiner.JoinType;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Test suite for {@link CsvJoiner}. */
+public class CsvJoinerTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final CsvFormatter FORMATTER = CsvFormatters.ofRfc4180();
+  private static final String LEFT = "t1,a,100\r\nt2,b,200\r\nt3,a,300\r\nt4,z,400\r\n";
+  private static final String RIGHT = "a,Alice\r\nb,Bob\r\na,Anne\r\nc,Carol\r\n";
+
+  @TempDir Path tempDir;
+
+  @Test
+  void innerJoinResultsInMatchesInOrderOfLeftRecords() throws IOException {
+    var joiner = newJoiner(JoinType.INNER, new int[] {1}, new int[] {0}, 1 << 20);
+
+    var actual = join(joiner, LEFT, RIGHT);
+    assertThat(actual)
+        .containsExactly(
+            List.of("t1", "a", "100", "a", "Alice"),
+            List.of("t1", "a", "100", "a", "Anne"),
+            List.of("t2", "b", "200", "b", "Bob"),
+            List.of("t3", "a", "300", "a", "Alice"),
+            List.of("t3", "a", "300", "a", "Anne"));
+  }
+
+  @Test
+  void leftJoinPadsLeftRecordsWithoutMatch() throws IOException {
+    var joiner = newJoiner(JoinType.LEFT, new int[] {1}, new int[] {0}, 1 << 20);
+
+    var actual = join(joiner, LEFT, RIGHT);
+    assertThat(actual).hasSize(6).contains(List.of("t4", "z", "400", "", ""));
+  }
+
+  @Test
+  void antiJoinResultsInLeftRecordsWithoutMatch() throws IOException {
+    var joiner = newJoiner(JoinType.ANTI, new int[] {1}, new int[] {0}, 1 << 20);
+
+    var actual = join(joiner, LEFT, RIGHT);
+    assertThat(actual).containsExactly(List.of("t4", "z", "400"));
+  }
+
+  @Test
+  void recordsAreMatchedByMultipleKeyColumns() throws IOException {
+    var joiner = newJoiner(JoinType.INNER, new int[] {0, 1}, new int[] {1, 0}, 1 << 20);
+
+    var actual = join(joiner, "a,b,1\r\nab,,2\r\na\r\n", "b,a,x\r\n,ab,y\r\n,a,z\r\n");
+    assertThat(actual)
+        .containsExactly(
+            List.of("a", "b", "1", "b", "a", "x"),
+            List.of("ab", "", "2", "", "ab", "y"),
+            List.of("a", "", "a", "z"));
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void resultsAreIndependentOfBuildSideAndMemoryBudget(JoinType joinType, long memoryBudget)
+      throws IOException {
+    var random = new Random(42);
+    var leftRecords = new ArrayList<List<String>>();
+    for (int i = 0; i < 3000; i++) {
+      leftRecords.add(List.of("l" + i, "k\r\n" + random.nextInt(1500)));
+    }
+    var rightRecords = new ArrayList<List<String>>();
+    for (int i = 0; i < 1000; i++) {
+      rightRecords.add(List.of("r" + i, "k\r\n" + random.nextInt(1500), "x"));
+    }
+    var leftPath = tempDir.resolve("left.csv");
+    var rightPath = tempDir.resolve("right.csv");
+    var outputPath = tempDir.resolve("output.csv");
+    FORMATTER.formatToFile(leftRecords, leftPath, StandardCharsets.UTF_8);
+    FORMATTER.formatToFile(rightRecords, rightPath, StandardCharsets.UTF_8);
+    var expected = joinByNestedLoops(joinType, leftRecords, rightRecords);
+    var joiner = newJoiner(joinType, new int[] {1}, new int[] {1}, memoryBudget);
+
+    var actual =
+        join(joiner, FORMATTER.formatToString(leftRecords), FORMATTER.formatToString(rightRecords));
+    assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    joiner.join(leftPath, rightPath, outputPath, StandardCharsets.UTF_8);
+    assertThat(PARSER.parseFile(outputPath, StandardCharsets.UTF_8))
+        .containsExactlyInAnyOrderElementsOf(expected);
+    var expectedSwapped = joinByNestedLoops(joinType, rightRecords, leftRecords);
+    joiner.join(rightPath, leftPath, outputPath, StandardCharsets.UTF_8);
+    assertThat(PARSER.parseFile(outputPath, StandardCharsets.UTF_8))
+        .containsExactlyInAnyOrderElementsOf(expectedSwapped);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).containsExactlyInAnyOrder(leftPath, rightPath, outputPath);
+    }
+  }
+
+  static Stream<Arguments> resultsAreIndependentOfBuildSideAndMemoryBudget() {
+    return Stream.of(JoinType.values())
+        .flatMap(
+            joinType ->
+                Stream.of(
+                    Arguments.of(joinType, 1L << 20),
+                    Arguments.of(joinType, 4096L),
+                    Arguments.of(joinType, 1L)));
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    assertThatThrownBy(() -> newJoiner(JoinType.INNER, new int[] {0}, new int[] {0, 1}, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> newJoiner(JoinType.INNER, new int[0], new int[0], 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> newJoiner(JoinType.INNER, new int[] {-1}, new int[] {0}, 1))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> newJoiner(JoinType.INNER, new int[] {0}, new int[] {0}, 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private CsvJoiner newJoiner(
+      JoinType joinType, int[] leftKeyColumns, int[] rightKeyColumns, long memoryBudget) {
+    return new CsvJoiner(
+        PARSER, FORMATTER, joinType, leftKeyColumns, rightKeyColumns, memoryBudget, tempDir);
+  }
+
+  private static List<List<String>> join(CsvJoiner joiner, String left, String right)
+      throws IOException {
+    var results = new ArrayList<List<String>>();
+    joiner.join(
+        PARSER.newRecordReader(new StringReader(left)),
+        PARSER.newRecordReader(new StringReader(right)),
+        results::add);
+    return results;
+  }
+
+  /** Joins the records by the second columns. */
+  private static List<List<String>> joinByNestedLoops(
+      JoinType joinType, List<List<String>> left, List<List<String>> right) {
+    var results = new ArrayList<List<String>>();
+    for (var l : left) {
+      var hasMatch = false;
+      for (var r : right) {
+        if (l.get(1).equals(r.get(1))) {
+          hasMatch = true;
+          if (joinType != JoinType.ANTI) {
+            var joined = new ArrayList<>(l);
+            joined.addAll(r);
+            results.add(joined);
+          }
+        }
+      }
+      if (!hasMatch && joinType == JoinType.LEFT) {
+        var joined = new ArrayList<>(l);
+        right.get(0).forEach(field -> joined.add(""));
+        results.add(joined);
+      } else if (!hasMatch && joinType == JoinType.ANTI) {
+        results.add(l);
+      }
+    }
+    return results;
+  }
+}
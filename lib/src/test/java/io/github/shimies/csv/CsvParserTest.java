@@ -2,16 +2,32 @@ package io.github.shimies.csv;
 
 import static org.assertj.core.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Random;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /** Test suite for {@link CsvParsers}. */
 public class CsvParserTest {
 
+  @TempDir Path tempDir;
+
   @Test
   void allRecordsInFileCanBeParsedAtOnce() throws IOException {
     var parser = CsvParsers.ofStrictRfc4180(false);
@@ -51,4 +67,371 @@ public class CsvParserTest {
 
     assertThat(records).containsExactly(List.of("1", "2"), List.of("Hello", "World"));
   }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"US-ASCII", "ISO-8859-1", "UTF-8", "UTF-16"})
+  void recordsAreParsedFromInputStreamInEachCharset(String charsetName) throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var cs = Charset.forName(charsetName);
+    var csv =
+        "id,name\r\n1,\"long enough to fill a word, \"\"quoted\"\"\"\r\n2,plain_text_field\r\n";
+
+    var records = parser.newRecordReader(new ByteArrayInputStream(csv.getBytes(cs)), cs);
+
+    assertThat(records.readAllRecords())
+        .containsExactly(
+            List.of("id", "name"),
+            List.of("1", "long enough to fill a word, \"quoted\""),
+            List.of("2", "plain_text_field"));
+  }
+
+  @Test
+  void nonAsciiByteInUsAsciiInputStreamIsReported() {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var in = new ByteArrayInputStream(new byte[] {'a', ',', (byte) 0xe9});
+
+    assertThatThrownBy(() -> parser.newRecordReader(in, StandardCharsets.US_ASCII).readAllRecords())
+        .isInstanceOf(CharacterCodingException.class);
+  }
+
+  @Test
+  void charactersAcrossBuffersAreDecodedFromUtf8InputStream() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var field = "caf\u00e9 \u65e5\u672c \ud83d\ude00";
+
+    for (int i = 8180; i < 8200; i++) {
+      var csv = "a".repeat(i) + "," + field + "\r\n\"" + field + "\"\"\"," + field + "\r\n";
+      var in = new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+
+      assertThat(parser.newRecordReader(in, StandardCharsets.UTF_8).readAllRecords())
+          .containsExactly(List.of("a".repeat(i), field), List.of(field + "\"", field));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"c0 80", "e0 80 80", "ed a0 80", "f4 90 80 80", "f8", "80", "e3 81"})
+  void malformedSequenceInUtf8InputStreamIsReported(String hex) {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var bytes = HexFormat.ofDelimiter(" ").parseHex("61 2c " + hex);
+    var in = new ByteArrayInputStream(bytes);
+
+    assertThatThrownBy(() -> parser.newRecordReader(in, StandardCharsets.UTF_8).readAllRecords())
+        .isInstanceOf(CharacterCodingException.class);
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void reusableRecordReaderReadsEachSourceFromBeginning(boolean isDefault) throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var reader =
+        isDefault
+            ? ((CsvParser) parser::newRecordReader).newReusableRecordReader()
+            : parser.newReusableRecordReader();
+
+    assertThat(reader.hasMoreRecord()).isFalse();
+    reader.reset(new StringReader("a,b\r\nc,d\"\r\n"));
+    assertThat(reader.readRecord()).containsExactly("a", "b");
+    reader.reset(new StringReader("x\r\n\"y\"z\r\n"));
+    assertThat(reader.readRecord()).containsExactly("x");
+    assertThatThrownBy(reader::readRecord)
+        .isInstanceOf(ParserException.class)
+        .hasMessage("Escaped field followed by illegal character [L2,C3]");
+    reader.reset(new StringReader("1,2,3\r\n"));
+    assertThat(reader.readAllRecords()).containsExactly(List.of("1", "2", "3"));
+  }
+
+  @Test
+  void recordsAreSkippedAsValidated() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var reader = parser.newRecordReader(new StringReader("a,b\r\n\"c\r\n\",d\r\ne,f\r\ng,h\"\r\n"));
+
+    assertThat(reader.skipRecords(2)).isEqualTo(2);
+    assertThat(reader.readRecord()).containsExactly("e", "f");
+    assertThatThrownBy(() -> reader.skipRecords(1))
+        .isInstanceOf(ParserException.class)
+        .hasMessage("Double quotation found in non-escaped field [L5,C3]");
+  }
+
+  @Test
+  void malformedRecordsAreReportedWhileSkippedLeniently() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var collector = new MalformedRecordCollector(10);
+    var reader =
+        parser.newRecordReader(new StringReader("a,b\r\nc\r\nd,e\r\nf,g\"\r\nh,i\r\n"), collector);
+
+    assertThat(reader.skipRecords(2)).isEqualTo(2);
+    assertThat(reader.readRecord()).containsExactly("h", "i");
+    assertThat(reader.skipRecords(1)).isEqualTo(0);
+    assertThat(collector.getMalformedRecords())
+        .extracting(MalformedRecord::getLineNumber)
+        .containsExactly(2, 4);
+  }
+
+  @Test
+  void everyRecordAtIntervalIsSampled() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var reader = parser.newRecordReader(new StringReader("0\n1\n2\n3\n4\n5\n6\n7\n8\n9\n"));
+
+    assertThat(reader.sampleEvery(3).readAllRecords())
+        .containsExactly(List.of("0"), List.of("3"), List.of("6"), List.of("9"));
+  }
+
+  @Test
+  void randomSampleOfRecordsIsTaken() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var csv = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      csv.append(i).append("\r\n");
+    }
+
+    var sample =
+        parser.newRecordReader(new StringReader(csv.toString())).sampleRecords(10, new Random(1));
+    var all =
+        parser.newRecordReader(new StringReader("0\r\n1\r\n")).sampleRecords(10, new Random(1));
+
+    assertThat(sample).hasSize(10).doesNotHaveDuplicates();
+    assertThat(sample).allSatisfy(r -> assertThat(Integer.parseInt(r.get(0))).isBetween(0, 9999));
+    assertThat(all).containsExactlyInAnyOrder(List.of("0"), List.of("1"));
+  }
+
+  @Test
+  void malformedRecordsAreSkippedAndReportedIfParsedLeniently() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var collector = new MalformedRecordCollector(1);
+
+    var records = parser.parseString("a,b\r\nc,\"d\"x\r\ne,f\r\ng\r\nh,i\r\n", collector);
+
+    assertThat(records).containsExactly(List.of("a", "b"), List.of("e", "f"), List.of("h", "i"));
+    assertThat(collector.getMalformedRecordCount()).isEqualTo(2);
+    assertThat(collector.getMalformedRecords())
+        .singleElement()
+        .satisfies(
+            r -> {
+              assertThat(r.getLineNumber()).isEqualTo(2);
+              assertThat(r.getCharacterNumber()).isEqualTo(5);
+              assertThat(r.getReason()).isEqualTo("Escaped field followed by illegal character");
+              assertThat(r.getRawText()).isEqualTo("c,\"d\"x\r\n");
+            });
+  }
+
+  @Test
+  void malformedRecordsCanBeQuarantinedIntoWriter() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var quarantine = new StringWriter();
+
+    var records =
+        parser.parseString(
+            "a,b\nc,d\"\n\"e\",f\ng\n\"h,i", MalformedRecordHandler.quarantine(quarantine));
+
+    assertThat(records).containsExactly(List.of("a", "b"), List.of("e", "f"));
+    assertThat(quarantine).hasToString("c,d\"\ng\n\"h,i");
+  }
+
+  @Test
+  void recordsAreReadByColumnNamesOfHeader() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+
+    var reader = parser.newNamedRecordReader(new StringReader("id,name,id\r\n1,Alice,x\r\n"));
+
+    assertThat(reader.getHeader().names()).containsExactly("id", "name", "id");
+    assertThat(reader.getHeader().indexOf("id")).isEqualTo(0);
+    assertThat(reader.getHeader().indexOf("age")).isEqualTo(-1);
+    var record = reader.readRecord();
+    assertThat(record).containsExactly("1", "Alice", "x");
+    assertThat(record.header()).isSameAs(reader.getHeader());
+    assertThat(record.get("name")).isEqualTo("Alice");
+    assertThat(reader.hasMoreRecord()).isFalse();
+    assertThatThrownBy(() -> record.get("age")).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void widthOfRecordsIsValidatedAgainstHeader() throws IOException {
+    var csv = "id,name\r\n1\r\n2,3\r\n";
+    var parser = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+
+    var reader = parser.newNamedRecordReader(new StringReader(csv));
+    assertThatThrownBy(reader::readRecord)
+        .isInstanceOf(ParserException.class)
+        .hasMessage("Illegal number of fields found [L2]");
+    var decorated = NamedRecordReader.of(parser.newRecordReader(new StringReader(csv)));
+    assertThatThrownBy(decorated::readRecord).isInstanceOf(ParserException.class);
+  }
+
+  @Test
+  void headerIsEmptyWithoutRecords() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+
+    var reader =
+        parser.newNamedRecordReader(new ByteArrayInputStream(new byte[0]), StandardCharsets.UTF_8);
+
+    assertThat(reader.getHeader().size()).isEqualTo(0);
+    assertThat(reader.hasMoreRecord()).isFalse();
+  }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  void recordsOfFilesAreMergedWithSourcesAndLines(boolean isOrdered) throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var expected = new ArrayList<String>();
+    var paths = new ArrayList<Path>();
+    String[] newlines = {"\r\n", "\n", "\r"};
+    for (int i = 0; i < 20; i++) {
+      // every fifth file is split into parts, with newlines in escaped fields across them
+      var path = tempDir.resolve("part-" + i + ".csv");
+      var csv = new StringBuilder();
+      int lineNo = 1;
+      for (int j = 0; j < (i % 5 == 0 ? 100000 : i); j++) {
+        var newline = newlines[j % 3];
+        var field = j % 7 == 0 ? "\"x" + newline + "\"\"y\"" : "z" + j;
+        var value = j % 7 == 0 ? "x" + newline + "\"y" : field;
+        csv.append(i).append(',').append(field).append(",\u00e9").append(newline);
+        expected.add(path.getFileName() + ":" + lineNo + ":" + List.of("" + i, value, "\u00e9"));
+        lineNo += j % 7 == 0 ? 2 : 1;
+      }
+      Files.writeString(path, csv);
+      paths.add(path);
+    }
+
+    var actual = new ArrayList<String>();
+    try (var reader = parser.newSourcedRecordReader(paths, StandardCharsets.UTF_8, isOrdered)) {
+      while (reader.hasMoreRecord()) {
+        var record = reader.readRecord();
+        actual.add(record.getSource().getFileName() + ":" + record.getLineNumber() + ":" + record);
+      }
+    }
+
+    if (isOrdered) {
+      assertThat(actual).containsExactlyElementsOf(expected);
+    } else {
+      assertThat(actual).containsExactlyInAnyOrderElementsOf(expected);
+    }
+  }
+
+  @Test
+  void widthOfRecordsIsValidatedAcrossPartsOfFile() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var path = tempDir.resolve("wide.csv");
+    Files.writeString(path, "a,b\r\n".repeat(400000) + "a,b,c\r\n" + "a,b\r\n");
+
+    try (var reader = parser.newSourcedRecordReader(tempDir, StandardCharsets.UTF_8, true)) {
+      assertThatThrownBy(
+              () -> {
+                while (reader.hasMoreRecord()) {
+                  reader.readRecord();
+                }
+              })
+          .isInstanceOf(ParserException.class)
+          .hasMessageContaining("L400001");
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"ISO-8859-1", "UTF-8", "UTF-16"})
+  void recordsAreCountedAsParsed(String charsetName) throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var cs = Charset.forName(charsetName);
+    var path = tempDir.resolve("count.csv");
+    Files.writeString(path, "1,\"a\r\n\"\"b\",\u00e9\r\n2,c,d\n".repeat(60000), cs);
+
+    assertThat(parser.countRecords(path, cs)).isEqualTo(parser.parseFile(path, cs).size());
+  }
+
+  @Test
+  void firstMalformedRecordIsThrownWhileCounting() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var path = tempDir.resolve("count.csv");
+    Files.writeString(path, "a,b\r\n".repeat(400000) + "a,b\"c\r\n" + "a,b,c\r\n");
+
+    assertThatThrownBy(() -> parser.countRecords(path, StandardCharsets.UTF_8))
+        .isInstanceOf(ParserException.class)
+        .hasMessage("Double quotation found in non-escaped field [L400001,C3]");
+  }
+
+  @Test
+  void allMalformedRecordsAreReportedByValidation() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var path = tempDir.resolve("validate.csv");
+    var csv = "a,\"b\r\n\"\r\n".repeat(200000);
+    Files.writeString(path, csv + "c,\"d\"x\r\ne\r\n" + csv + "\"f,g\r\n");
+    var expected = new MalformedRecordCollector(Integer.MAX_VALUE);
+    var actual = new MalformedRecordCollector(Integer.MAX_VALUE);
+
+    var recordCount = parser.parseFile(path, StandardCharsets.UTF_8, expected).size();
+
+    assertThat(parser.validate(path, StandardCharsets.UTF_8, actual)).isEqualTo(recordCount);
+    assertThat(actual.getMalformedRecords())
+        .extracting(r -> r + ":" + r.getRawText())
+        .containsExactlyElementsOf(
+            expected.getMalformedRecords().stream().map(r -> r + ":" + r.getRawText()).toList())
+        .hasSize(3);
+  }
+
+  @Test
+  void filesAreReadOneAfterAnotherWithoutLinesByDefault() throws IOException {
+    CsvParser parser = CsvParsers.ofStrictRfc4180(false)::newRecordReader;
+    Files.writeString(tempDir.resolve("1.csv"), "a,b\r\n");
+    Files.writeString(tempDir.resolve("2.csv"), "");
+    Files.writeString(tempDir.resolve("3.csv"), "c,d\r\ne,f\r\n");
+
+    var records = new ArrayList<SourcedRecord>();
+    try (var reader = parser.newSourcedRecordReader(tempDir, StandardCharsets.UTF_8, false)) {
+      while (reader.hasMoreRecord()) {
+        records.add(reader.readRecord());
+      }
+    }
+
+    assertThat(records).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e", "f"));
+    assertThat(records).extracting(SourcedRecord::getLineNumber).containsOnly(-1);
+    assertThat(records.get(2).getSource()).isEqualTo(tempDir.resolve("3.csv"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {"UTF-8", "ISO-8859-1"})
+  void readingResumesFromSerializedCheckpoint(String charsetName) throws Exception {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var cs = Charset.forName(charsetName);
+    var path = tempDir.resolve("resumed.csv");
+    Files.writeString(path, "caf\u00e9,\"a\r\nb\"\r\n".repeat(5000) + "x,y\"\r\n", cs);
+    Checkpoint checkpoint;
+    try (var reader = parser.newCheckpointableRecordReader(path, cs)) {
+      reader.skipRecords(3000);
+      checkpoint = reader.checkpoint();
+    }
+    var bytes = new ByteArrayOutputStream();
+    try (var out = new ObjectOutputStream(bytes)) {
+      out.writeObject(checkpoint);
+    }
+    try (var in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+      checkpoint = (Checkpoint) in.readObject();
+    }
+
+    try (var reader = parser.newCheckpointableRecordReader(path, cs, checkpoint)) {
+      assertThat(reader.skipRecords(1999)).isEqualTo(1999);
+      assertThat(reader.readRecord()).containsExactly("caf\u00e9", "a\r\nb");
+      assertThatThrownBy(reader::readRecord)
+          .isInstanceOf(ParserException.class)
+          .hasMessageContaining("[L10001,C");
+    }
+    var recordSize = charsetName.equals("UTF-8") ? 14 : 13;
+    assertThat(checkpoint.getByteOffset()).isEqualTo(3000L * recordSize);
+    assertThat(checkpoint.getLineNumber()).isEqualTo(6001);
+    assertThat(checkpoint.getRecordCount()).isEqualTo(3000);
+    assertThat(checkpoint.getFieldCount()).isEqualTo(2);
+  }
+
+  @Test
+  void checkpointIsNotTakenInMiddleOfRecord() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var path = tempDir.resolve("malformed.csv");
+    Files.writeString(path, "a,b\nc\"d,e\nf,g\n");
+
+    try (var reader = parser.newCheckpointableRecordReader(path, StandardCharsets.UTF_8)) {
+      reader.readRecord();
+      assertThat(reader.checkpoint().getByteOffset()).isEqualTo(4);
+      assertThatThrownBy(reader::readRecord).isInstanceOf(ParserException.class);
+      assertThatThrownBy(reader::checkpoint).isInstanceOf(IllegalStateException.class);
+    }
+    assertThatThrownBy(() -> parser.newCheckpointableRecordReader(path, StandardCharsets.UTF_16))
+        .isInstanceOf(UnsupportedOperationException.class);
+  }
 }
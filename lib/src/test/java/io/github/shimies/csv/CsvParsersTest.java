@@ -50,6 +50,14 @@ public class CsvParsersTest {
             List.of("square", "n=10,0"));
   }
 
+  @Test
+  void rfc4180CompliantCsvParsersInCommonUseAreShared() {
+    assertThat(CsvParsers.ofStrictRfc4180(true)).isSameAs(CsvParsers.ofStrictRfc4180(true));
+    assertThat(CsvParsers.ofStrictRfc4180(false)).isNotSameAs(CsvParsers.ofStrictRfc4180(true));
+    assertThat(CsvParsers.ofStrictRfc4180ForVariadicFields(false))
+        .isSameAs(CsvParsers.ofStrictRfc4180ForVariadicFields(false));
+  }
+
   @Test
   void rfc4180CompliantCsvParserCanBeCreatedWithBehaviorCustomized() throws IOException {
     var parser = CsvParsers.ofVariantRfc4180('|', true, true, true, true);
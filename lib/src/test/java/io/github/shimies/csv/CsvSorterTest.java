@@ -0,0 +1,155 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for {@link CsvSorter} and {@link RecordComparators}. */
+public class CsvSorterTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final CsvFormatter FORMATTER = CsvFormatters.ofRfc4180();
+
+  @TempDir Path tempDir;
+
+  @Test
+  void recordsFittingInMemoryAreSortedWithoutSpilling() throws IOException {
+    var sorter =
+        new CsvSorter(PARSER, FORMATTER, RecordComparators.byColumn(1), 1 << 20, 1, tempDir);
+
+    var actual = sort(sorter, "a,c\r\nb,a\r\nc,b\r\n");
+    assertThat(actual).isEqualTo("b,a\r\nc,b\r\na,c\r\n");
+    assertThat(tempDir).isEmptyDirectory();
+  }
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 4})
+  void recordsExceedingMemoryBudgetAreSortedStably(int parallelism) throws IOException {
+    var random = new Random(42);
+    var records = new ArrayList<List<String>>();
+    for (int i = 0; i < 2000; i++) {
+      var key = Integer.toString(random.nextInt(100));
+      var value = i % 7 == 0 ? "multi\r\nline, \"" + i + "\"" : Integer.toString(i);
+      records.add(List.of(key, value));
+    }
+    // a budget this small spills runs of a few records, which needs multiple merge passes
+    var sorter =
+        new CsvSorter(
+            PARSER, FORMATTER, RecordComparators.byLongColumn(0), 1024, parallelism, tempDir);
+
+    var actual = PARSER.parseString(sort(sorter, FORMATTER.formatToString(records)));
+    var expected = new ArrayList<>(records);
+    expected.sort(Comparator.comparingLong(record -> Long.parseLong(record.get(0))));
+    assertThat(actual).isEqualTo(expected);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void fileIsSortedIntoAnotherFile() throws IOException {
+    var input = tempDir.resolve("input.csv");
+    var output = tempDir.resolve("output.csv");
+    Files.writeString(input, "b,2\r\na,10\r\nb,1\r\na,9\r\n", StandardCharsets.UTF_8);
+    var comparator = RecordComparators.byColumn(0).thenComparing(RecordComparators.byLongColumn(1));
+    var sorter = new CsvSorter(PARSER, FORMATTER, comparator, 64, 2, tempDir);
+
+    sorter.sort(input, output, StandardCharsets.UTF_8);
+    assertThat(Files.readString(output, StandardCharsets.UTF_8))
+        .isEqualTo("a,9\r\na,10\r\nb,1\r\nb,2\r\n");
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).containsExactlyInAnyOrder(input, output);
+    }
+  }
+
+  @Test
+  void chainedAndReversedComparatorsSortAcrossRuns() throws IOException {
+    var random = new Random(7);
+    var records = new ArrayList<List<String>>();
+    for (int i = 0; i < 1000; i++) {
+      records.add(
+          List.of(
+              Integer.toString(random.nextInt(5)),
+              Integer.toString(random.nextInt(5)),
+              Integer.toString(i)));
+    }
+    Comparator<List<String>> comparator =
+        RecordComparators.byLongColumn(0)
+            .reversed()
+            .thenComparing(RecordComparators.byDecimalColumn(1))
+            .thenComparing(Comparator.comparing((List<String> record) -> record.get(2)).reversed());
+    var sorter = new CsvSorter(PARSER, FORMATTER, comparator, 1024, 3, tempDir);
+
+    var actual = PARSER.parseString(sort(sorter, FORMATTER.formatToString(records)));
+    var expected = new ArrayList<>(records);
+    expected.sort(comparator);
+    assertThat(actual).isEqualTo(expected);
+  }
+
+  @Test
+  void missingAndBlankKeysComeFirst() {
+    List<List<String>> records =
+        new ArrayList<>(List.of(List.of("x", "2.5"), List.of("y", " "), List.of("z")));
+    records.add(List.of("w", "-1e3"));
+
+    records.sort(RecordComparators.byDoubleColumn(1));
+    assertThat(records).extracting(record -> record.get(0)).containsExactly("y", "z", "w", "x");
+    records.sort(RecordComparators.byDecimalColumn(1).reversed());
+    assertThat(records).extracting(record -> record.get(0)).containsExactly("x", "w", "y", "z");
+    records.sort(RecordComparators.byColumn(1, String.CASE_INSENSITIVE_ORDER));
+    assertThat(records).extracting(record -> record.get(0)).containsExactly("z", "y", "w", "x");
+  }
+
+  @Test
+  void unparsableKeyIsReported() {
+    var sorter = new CsvSorter(PARSER, FORMATTER, RecordComparators.byLongColumn(0));
+
+    assertThatThrownBy(() -> sort(sorter, "1\r\nx\r\n")).isInstanceOf(NumberFormatException.class);
+  }
+
+  @Test
+  void unparsableKeyInParallelRunLeavesNoRunBehind() throws IOException {
+    var csv = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      csv.append(i == 1000 ? "x" : Integer.toString(i % 100)).append("\r\n");
+    }
+    var sorter =
+        new CsvSorter(PARSER, FORMATTER, RecordComparators.byLongColumn(0), 1024, 4, tempDir);
+
+    assertThatThrownBy(() -> sort(sorter, csv.toString()))
+        .isInstanceOf(NumberFormatException.class);
+    try (Stream<Path> files = Files.list(tempDir)) {
+      assertThat(files).isEmpty();
+    }
+  }
+
+  @Test
+  void invalidSettingsAreRejected() {
+    var comparator = RecordComparators.byColumn(0);
+
+    assertThatThrownBy(() -> new CsvSorter(PARSER, FORMATTER, comparator, 0, 1, null))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> new CsvSorter(PARSER, FORMATTER, comparator, 1, 0, null))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private static String sort(CsvSorter sorter, String csv) throws IOException {
+    var writer = new StringWriter();
+    sorter.sort(PARSER.newRecordReader(new StringReader(csv)), FORMATTER.newRecordWriter(writer));
+    return writer.toString();
+  }
+}
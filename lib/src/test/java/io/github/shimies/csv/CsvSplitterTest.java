@@ -0,0 +1,118 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for {@link CsvSplitter}. */
+public class CsvSplitterTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+  private static final CsvFormatter FORMATTER = CsvFormatters.ofRfc4180();
+
+  @TempDir Path tempDir;
+
+  @ParameterizedTest
+  @ValueSource(ints = {1, 3, 8})
+  void recordsOfSameKeyGoToSameShard(int shardCount) throws IOException {
+    var csv = new StringBuilder("id,value\r\n");
+    for (int i = 0; i < 5000; i++) {
+      csv.append(i % 100).append(',').append(i).append("\r\n");
+    }
+    var splitter = CsvSplitter.byKey(PARSER, FORMATTER, new int[] {0}, shardCount, true);
+
+    var recordCounts = split(splitter, csv.toString());
+    assertThat(recordCounts).hasSize(shardCount);
+    assertThat(recordCounts).containsExactly(countsOf(shardCount, 5000));
+    var keys = new ArrayList<String>();
+    for (int i = 0; i < shardCount; i++) {
+      var records = read(i);
+      assertThat(records.get(0)).containsExactly("id", "value");
+      assertThat(records).hasSize((int) recordCounts[i] + 1);
+      records.stream().skip(1).map(r -> r.get(0)).distinct().forEach(keys::add);
+    }
+    assertThat(keys).hasSize(100).doesNotHaveDuplicates();
+  }
+
+  @Test
+  void shardsAreFilledUpToTargetSizeInOrder() throws IOException {
+    var splitter = CsvSplitter.bySize(PARSER, FORMATTER, 10, false);
+
+    var recordCounts = split(splitter, "1,abc\r\n2,def\r\n3,ghi\r\n4,\"j\r\nk\"\r\n5\r\n");
+    assertThat(recordCounts).containsExactly(2, 2, 1);
+    assertThat(read(0)).containsExactly(List.of("1", "abc"), List.of("2", "def"));
+    assertThat(read(1)).containsExactly(List.of("3", "ghi"), List.of("4", "j\r\nk"));
+    assertThat(read(2)).containsExactly(List.of("5"));
+  }
+
+  @Test
+  void emptyShardsAreWrittenByKeyButNotBySize() throws IOException {
+    assertThat(split(CsvSplitter.byKey(PARSER, FORMATTER, new int[] {0}, 2, true), "a,b\r\n"))
+        .containsExactly(0, 0);
+    assertThat(read(0)).containsExactly(List.of("a", "b"));
+    assertThat(read(1)).containsExactly(List.of("a", "b"));
+    assertThat(split(CsvSplitter.bySize(PARSER, FORMATTER, 10, true), "a,b\r\n")).isEmpty();
+  }
+
+  @Test
+  void failureInWritingShardIsReported() {
+    var splitter = CsvSplitter.byKey(PARSER, FORMATTER, new int[] {0}, 2, false);
+    var csv = "1\r\n2\r\n3\r\n".repeat(10000);
+
+    assertThatThrownBy(
+            () ->
+                splitter.split(
+                    PARSER.newRecordReader(new StringReader(csv)),
+                    StandardCharsets.UTF_8,
+                    i -> tempDir.resolve("missing").resolve("shard" + i)))
+        .isInstanceOf(IOException.class);
+  }
+
+  @Test
+  void illegalArgumentsAreRejected() {
+    assertThatThrownBy(() -> CsvSplitter.byKey(PARSER, FORMATTER, new int[0], 2, false))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CsvSplitter.byKey(PARSER, FORMATTER, new int[] {-1}, 2, false))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CsvSplitter.byKey(PARSER, FORMATTER, new int[] {0}, 0, false))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CsvSplitter.bySize(PARSER, FORMATTER, 0, false))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  private long[] split(CsvSplitter splitter, String csv) throws IOException {
+    return splitter.split(
+        PARSER.newRecordReader(new StringReader(csv)),
+        StandardCharsets.UTF_8,
+        i -> tempDir.resolve("shard" + i + ".csv"));
+  }
+
+  private List<List<String>> read(int shard) throws IOException {
+    try (var reader = Files.newBufferedReader(tempDir.resolve("shard" + shard + ".csv"))) {
+      var recordReader = PARSER.newRecordReader(reader);
+      var records = new ArrayList<List<String>>();
+      while (recordReader.hasMoreRecord()) {
+        records.add(recordReader.readRecord());
+      }
+      return records;
+    }
+  }
+
+  private static long[] countsOf(int shardCount, int recordCount) {
+    var counts = new long[shardCount];
+    for (int i = 0; i < recordCount; i++) {
+      counts[Math.floorMod(RecordKeys.hash(String.valueOf(i % 100)), shardCount)]++;
+    }
+    return counts;
+  }
+}
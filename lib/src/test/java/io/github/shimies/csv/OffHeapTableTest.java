@@ -0,0 +1,105 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for {@link OffHeapTable}. */
+public class OffHeapTableTest {
+
+  @Test
+  void recordsInFileCanBeAccessedAfterLoaded() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180ForVariadicFields(false);
+    var path = ResourceHelper.makePathOutOfResource("variadic_n_fields_0.csv");
+
+    try (var table = OffHeapTable.load(parser, path, StandardCharsets.UTF_8)) {
+      assertThat(table.getRecordCount()).isEqualTo(3);
+      assertThat(table.getFieldCount(1)).isEqualTo(3);
+      assertThat(table.getField(1, 2)).isEqualTo("y=10,0");
+      assertThat(table.getRecord(2)).containsExactly("square", "n=10,0");
+      assertThat(table.getAllocatedBytes()).isPositive();
+    }
+  }
+
+  @Test
+  void fieldsSpanningPagesCanBeAccessed() throws IOException {
+    var parser = CsvParsers.ofVariantRfc4180(',', false, true, true, false);
+    var csv = "a,\u3042\u3044\u3046\u3048\u304a,\r\n,\r\n0123456789abcdefghij\r\n\"x\r\ny\",z\r\n";
+    var records = parser.parseString(csv);
+
+    try (var table = OffHeapTable.load(parser.newRecordReader(new StringReader(csv)), 8)) {
+      assertThat(table.getRecordCount()).isEqualTo(records.size());
+      for (int i = 0; i < records.size(); i++) {
+        assertThat(table.getRecord(i)).isEqualTo(records.get(i));
+      }
+      assertThat(table.getField(0, 1)).isEqualTo("\u3042\u3044\u3046\u3048\u304a");
+      assertThat(table.getField(1, 0)).isEmpty();
+    }
+  }
+
+  @Test
+  void accessOutOfRangeIsRejected() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+
+    try (var table = OffHeapTable.load(parser.newRecordReader(new StringReader("a,b\r\n")))) {
+      assertThatThrownBy(() -> table.getRecord(1)).isInstanceOf(IndexOutOfBoundsException.class);
+      assertThatThrownBy(() -> table.getField(0, 2))
+          .isInstanceOf(IndexOutOfBoundsException.class);
+      assertThatThrownBy(() -> table.getField(-1, 0))
+          .isInstanceOf(IndexOutOfBoundsException.class);
+    }
+  }
+
+  @Test
+  void memoryIsReleasedOnClose() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var table = OffHeapTable.load(parser.newRecordReader(new StringReader("a,b\r\n")));
+
+    table.close();
+    table.close();
+
+    assertThat(table.getAllocatedBytes()).isZero();
+    assertThatThrownBy(() -> table.getRecord(0)).isInstanceOf(IllegalStateException.class);
+    assertThat(List.of(table.getRecordCount())).containsExactly(1L);
+  }
+
+  @Test
+  void readsRacingWithCloseEitherSucceedOrAreRejected() throws Exception {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var table = OffHeapTable.load(parser.newRecordReader(new StringReader("a,b\r\n".repeat(1000))));
+    var executor = Executors.newFixedThreadPool(4);
+    try {
+      var readers = new ArrayList<Future<Long>>();
+      for (int i = 0; i < 4; i++) {
+        readers.add(
+            executor.submit(
+                () -> {
+                  long readCount = 0;
+                  try {
+                    while (true) {
+                      assertThat(table.getRecord(readCount % 1000)).containsExactly("a", "b");
+                      readCount++;
+                    }
+                  } catch (IllegalStateException e) {
+                    return readCount;
+                  }
+                }));
+      }
+      Thread.sleep(50);
+      table.close();
+
+      for (var reader : readers) {
+        assertThat(reader.get()).isPositive();
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for {@link RecordBinder}. */
+public class RecordBinderTest {
+
+  private static final CsvParser PARSER = CsvParsers.ofStrictRfc4180(false);
+
+  enum Side {
+    BUY,
+    SELL
+  }
+
+  record Trade(String id, Side side, int quantity, BigDecimal price, LocalDate date, Long ref) {}
+
+  public static class Account {
+
+    private String name;
+    private long balance;
+    private boolean isActive;
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public void setBalance(long balance) {
+      this.balance = balance;
+    }
+
+    public void setActive(boolean isActive) {
+      this.isActive = isActive;
+    }
+  }
+
+  @Test
+  void recordsAreBoundToRecordComponentsByColumnNames() throws IOException {
+    var csv = "date,id,quantity,price,side,ref,note\r\n2024-01-02,t1,100,12.50,BUY,,x\r\n";
+
+    var trades = PARSER.readAs(new StringReader(csv), Trade.class);
+
+    var date = LocalDate.of(2024, 1, 2);
+    assertThat(trades)
+        .containsExactly(new Trade("t1", Side.BUY, 100, new BigDecimal("12.50"), date, null));
+  }
+
+  @Test
+  void recordsAreBoundToRecordComponentsInOrderWithoutHeader() {
+    var binder = RecordBinder.of(Trade.class);
+
+    var trade = binder.bind(List.of("t2", "SELL", "-3", "0.1", "2024-12-31", "7"));
+
+    assertThat(trade)
+        .isEqualTo(
+            new Trade("t2", Side.SELL, -3, new BigDecimal("0.1"), LocalDate.of(2024, 12, 31), 7L));
+  }
+
+  @Test
+  void recordsAreBoundToBeanPropertiesByColumnNames() throws IOException {
+    var csv = "balance,name,memo,active\r\n42,Alice,x,true\r\n-1,Bob,y,false\r\n";
+
+    var accounts = PARSER.readAs(new StringReader(csv), Account.class);
+
+    assertThat(accounts)
+        .extracting(a -> a.name, a -> a.balance, a -> a.isActive)
+        .containsExactly(tuple("Alice", 42L, true), tuple("Bob", -1L, false));
+  }
+
+  @Test
+  void unconvertibleFieldIsReported() {
+    var binder = RecordBinder.of(Trade.class);
+
+    assertThatThrownBy(() -> binder.bind(List.of("t3", "BUY", "x", "1", "2024-01-01", "")))
+        .isInstanceOf(NumberFormatException.class);
+    assertThatThrownBy(() -> binder.bind(List.of("t3", "HOLD", "1", "1", "2024-01-01", "")))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void unbindableTypesAreRejected() {
+    var header = Header.of(List.of("id", "side"));
+
+    assertThatThrownBy(() -> RecordBinder.of(Trade.class, header))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RecordBinder.of(Account.class))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RecordBinder.of(Runnable.class, header))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
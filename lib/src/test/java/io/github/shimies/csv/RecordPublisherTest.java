@@ -0,0 +1,78 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for {@link RecordPublisher}. */
+public class RecordPublisherTest {
+
+  @Test
+  void recordsArePublishedOnlyAsRequested() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var reader = parser.newRecordReader(new StringReader("0\n1\n2\n3\n4\n"));
+    var subscriber = new CollectingSubscriber();
+
+    new RecordPublisher(reader, Runnable::run).subscribe(subscriber);
+    subscriber.subscription.request(2);
+
+    assertThat(subscriber.records).containsExactly(List.of("0"), List.of("1"));
+    assertThat(subscriber.isCompleted).isFalse();
+    assertThat(reader.readRecord()).containsExactly("2");
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    assertThat(subscriber.records).hasSize(4).endsWith(List.of("4"));
+    assertThat(subscriber.isCompleted).isTrue();
+  }
+
+  @Test
+  void invalidRequestAndSecondSubscriberAreSignaledAsErrors() throws IOException {
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    var reader = parser.newRecordReader(new StringReader("0\n1\n"));
+    var publisher = new RecordPublisher(reader, Runnable::run);
+    var first = new CollectingSubscriber();
+    var second = new CollectingSubscriber();
+
+    publisher.subscribe(first);
+    first.subscription.request(0);
+    publisher.subscribe(second);
+
+    assertThat(first.error).isInstanceOf(IllegalArgumentException.class);
+    assertThat(second.error).isInstanceOf(IllegalStateException.class);
+    assertThat(first.records).isEmpty();
+  }
+
+  private static class CollectingSubscriber implements Flow.Subscriber<List<String>> {
+
+    private final List<List<String>> records = new ArrayList<>();
+    private Flow.Subscription subscription;
+    private Throwable error;
+    private boolean isCompleted = false;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(List<String> record) {
+      records.add(record);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+    }
+
+    @Override
+    public void onComplete() {
+      isCompleted = true;
+    }
+  }
+}
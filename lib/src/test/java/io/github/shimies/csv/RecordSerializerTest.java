@@ -0,0 +1,111 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.LocalDate;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/** Test suite for {@link RecordSerializer}. */
+public class RecordSerializerTest {
+
+  enum Side {
+    BUY,
+    SELL
+  }
+
+  record Trade(String id, Side side, int quantity, double price, LocalDate date, Long ref) {}
+
+  public static class Account {
+
+    public String getName() {
+      return "A,\"B\"";
+    }
+
+    public long getBalance() {
+      return -5;
+    }
+
+    public boolean isActive() {
+      return true;
+    }
+  }
+
+  private static final List<Trade> TRADES =
+      List.of(
+          new Trade("t1", Side.BUY, 100, 12.5, LocalDate.of(2024, 1, 2), null),
+          new Trade("t\r\n2", Side.SELL, -1, 0.1 + 0.2, null, 7L));
+
+  @ParameterizedTest
+  @ValueSource(booleans = {false, true})
+  void objectsAreWrittenInOrderOfRecordComponents(boolean isDefault) throws IOException {
+    var formatter = CsvFormatters.ofRfc4180();
+    var sink = new StringWriter();
+    var writer =
+        isDefault
+            ? ((CsvFormatter) formatter::newRecordWriter)
+                .newObjectWriter(sink, RecordSerializer.of(Trade.class))
+            : formatter.newObjectWriter(sink, RecordSerializer.of(Trade.class));
+
+    writer.writeHeader();
+    writer.writeAllObjects(TRADES);
+
+    assertThat(sink)
+        .hasToString(
+            "id,side,quantity,price,date,ref\r\n"
+                + "t1,BUY,100,12.5,2024-01-02,\"\"\r\n"
+                + "\"t\r\n2\",SELL,-1,0.30000000000000004,,7\r\n");
+  }
+
+  @Test
+  void objectsWrittenAreBoundBackToEqualObjects() throws IOException {
+    var sink = new StringWriter();
+    var writer = CsvFormatters.ofRfc4180().newObjectWriter(sink, RecordSerializer.of(Trade.class));
+
+    writer.writeHeader();
+    writer.writeAllObjects(TRADES);
+
+    var parser = CsvParsers.ofStrictRfc4180(false);
+    assertThat(parser.readAs(new StringReader(sink.toString()), Trade.class))
+        .containsExactlyElementsOf(TRADES);
+  }
+
+  @Test
+  void numbersAreEscapedIfTheyContainDelimiter() throws IOException {
+    var formatter = CsvFormatters.ofRfc4180('.', Newline.LF, true);
+    var sink = new StringWriter();
+
+    formatter.newObjectWriter(sink, RecordSerializer.of(Trade.class)).writeAllObjects(TRADES);
+
+    assertThat(sink)
+        .hasToString(
+            "t1.BUY.100.\"12.5\".2024-01-02.\n\"t\r\n2\".SELL.-1.\"0.30000000000000004\"..7\n");
+  }
+
+  @Test
+  void beanPropertiesAreSerializedByColumnNames() {
+    var header = Header.of(List.of("active", "name", "balance"));
+    var serializer = RecordSerializer.of(Account.class, header);
+
+    assertThat(serializer.getColumnType(2)).isEqualTo(RecordSerializer.ColumnType.LONG);
+    assertThat(serializer.getLong(new Account(), 2)).isEqualTo(-5);
+    assertThat(serializer.toRecord(new Account())).containsExactly("true", "A,\"B\"", "-5");
+  }
+
+  @Test
+  void unserializableColumnsAreRejected() {
+    var serializer = RecordSerializer.of(Trade.class);
+
+    assertThatThrownBy(() -> RecordSerializer.of(Account.class))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> RecordSerializer.of(Account.class, Header.of(List.of("id"))))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> serializer.getInt(TRADES.get(0), 0))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,71 @@
+package io.github.shimies.csv;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for {@link RecordSubscriber}. */
+public class RecordSubscriberTest {
+
+  @Test
+  void publishedRecordsAreWrittenInBatches() throws IOException {
+    var csv = "a,b\r\n".repeat(1000);
+    var reader = CsvParsers.ofStrictRfc4180(false).newRecordReader(new StringReader(csv));
+    var sink = new StringWriter();
+    var subscriber = new RecordSubscriber(CsvFormatters.ofRfc4180().newRecordWriter(sink), 64);
+    var executor = Executors.newSingleThreadExecutor();
+
+    try {
+      new RecordPublisher(reader, executor).subscribe(subscriber);
+
+      assertThat(subscriber.getWrittenRecordCount().join()).isEqualTo(1000);
+    } finally {
+      executor.shutdown();
+    }
+    assertThat(sink).hasToString(csv);
+  }
+
+  @Test
+  void subscriptionIsCancelledOnWriteErrorOnlyBeforeCompletion() {
+    var cancelCount = new AtomicInteger();
+    RecordWriter writer =
+        record -> {
+          throw new IOException("Broken");
+        };
+
+    for (boolean isCompleted : new boolean[] {false, true}) {
+      var subscriber = new RecordSubscriber(writer, 2);
+      subscriber.onSubscribe(
+          new Flow.Subscription() {
+            @Override
+            public void request(long n) {}
+
+            @Override
+            public void cancel() {
+              cancelCount.incrementAndGet();
+            }
+          });
+      subscriber.onNext(List.of("a"));
+      if (isCompleted) {
+        subscriber.onComplete();
+      } else {
+        subscriber.onNext(List.of("b"));
+      }
+
+      assertThat(subscriber.getWrittenRecordCount())
+          .failsWithin(Duration.ZERO)
+          .withThrowableOfType(ExecutionException.class)
+          .withCauseInstanceOf(IOException.class);
+    }
+    assertThat(cancelCount).hasValue(1);
+  }
+}
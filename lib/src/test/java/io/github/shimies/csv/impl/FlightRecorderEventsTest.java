@@ -0,0 +1,123 @@
+package io.github.shimies.csv.impl;
+
+import static org.assertj.core.api.Assertions.*;
+
+import io.github.shimies.csv.CsvTool;
+import io.github.shimies.csv.Newline;
+import io.github.shimies.csv.ParserException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+/** Test suite for flight recorder events emitted by {@link CsvParserRfc4180} and others. */
+public class FlightRecorderEventsTest {
+
+  private static final String EVENT_PARSE_CHUNK = "io.github.shimies.csv.ParseChunk";
+  private static final String EVENT_PARSE_ERROR = "io.github.shimies.csv.ParseError";
+  private static final String EVENT_FORMAT_CHUNK = "io.github.shimies.csv.FormatChunk";
+
+  @Test
+  void parseChunkEventsCoverAllRecords() throws IOException {
+    var parser = new CsvParserRfc4180(',', false, false, false, false);
+    var csvTool = new CsvTool(',', Newline.CRLF, true);
+    var csv = csvTool.toCsvFromStrings(CsvTool.listOfListFilledWith("a", 2500, 2));
+
+    var events = record(() -> parser.parseString(csv));
+
+    var chunks =
+        events.stream().filter(e -> e.getEventType().getName().equals(EVENT_PARSE_CHUNK)).toList();
+    assertThat(chunks).extracting(e -> e.getInt("recordCount")).containsExactly(1024, 1024, 452);
+    assertThat(chunks).extracting(e -> e.getInt("endLine")).containsExactly(1025, 2049, 2500);
+  }
+
+  @Test
+  void parseErrorEventIsEmittedWithLocation() throws IOException {
+    var parser = new CsvParserRfc4180(',', false, false, false, false);
+
+    var events =
+        record(
+            () ->
+                assertThatThrownBy(() -> parser.parseString("abc,non\"\""))
+                    .isInstanceOf(ParserException.class));
+
+    var errors =
+        events.stream().filter(e -> e.getEventType().getName().equals(EVENT_PARSE_ERROR)).toList();
+    assertThat(errors).hasSize(1);
+    assertThat(errors.get(0).getString("reason"))
+        .isEqualTo("Double quotation found in non-escaped field");
+    assertThat(errors.get(0).getInt("lineNumber")).isEqualTo(1);
+    assertThat(errors.get(0).getInt("characterNumber")).isEqualTo(8);
+  }
+
+  @Test
+  void parseChunkEventsCountErrorsOfLenientReading() throws IOException {
+    var parser = new CsvParserRfc4180(',', false, false, false, false);
+    var csv = "\"c\"d,e\r\na,b\r\n".repeat(1500);
+
+    var events = record(() -> parser.parseString(csv, record -> {}));
+
+    var chunks =
+        events.stream().filter(e -> e.getEventType().getName().equals(EVENT_PARSE_CHUNK)).toList();
+    assertThat(chunks).extracting(e -> e.getInt("recordCount")).containsExactly(1024, 476);
+    assertThat(chunks).extracting(e -> e.getInt("errorCount")).containsExactly(1024, 476);
+  }
+
+  @Test
+  void parseErrorEventIsDisabledByDefault() throws IOException {
+    var parser = new CsvParserRfc4180(',', false, false, false, false);
+
+    var events = record(() -> parser.parseString("abc,non\"\"", record -> {}), false);
+
+    assertThat(events)
+        .extracting(e -> e.getEventType().getName())
+        .doesNotContain(EVENT_PARSE_ERROR);
+  }
+
+  @Test
+  void formatChunkEventsCoverAllRecords() throws IOException {
+    var formatter = new CsvFormatterRfc4180(',', "\r\n", false);
+    var records = CsvTool.listOfListFilledWith("a", 1500, 2);
+
+    var events = record(() -> formatter.formatToString(records));
+
+    var chunks =
+        events.stream().filter(e -> e.getEventType().getName().equals(EVENT_FORMAT_CHUNK)).toList();
+    assertThat(chunks).extracting(e -> e.getInt("recordCount")).containsExactly(1024, 476);
+    assertThat(chunks).extracting(e -> e.getLong("endOffset")).containsExactly(5120L, 7500L);
+  }
+
+  private static List<RecordedEvent> record(IoRunnable action) throws IOException {
+    return record(action, true);
+  }
+
+  private static List<RecordedEvent> record(IoRunnable action, boolean isErrorEnabled)
+      throws IOException {
+    try (var recording = new Recording()) {
+      recording.enable(EVENT_PARSE_CHUNK).withThreshold(Duration.ZERO);
+      if (isErrorEnabled) {
+        recording.enable(EVENT_PARSE_ERROR);
+      }
+      recording.enable(EVENT_FORMAT_CHUNK).withThreshold(Duration.ZERO);
+      recording.start();
+      action.run();
+      recording.stop();
+      var dump = Files.createTempFile("test", ".jfr");
+      try {
+        recording.dump(dump);
+        return RecordingFile.readAllEvents(dump);
+      } finally {
+        Files.delete(dump);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface IoRunnable {
+    void run() throws IOException;
+  }
+}
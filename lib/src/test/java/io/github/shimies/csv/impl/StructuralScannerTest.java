@@ -0,0 +1,75 @@
+package io.github.shimies.csv.impl;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Test suite for implementations of {@link StructuralScanner}. */
+public class StructuralScannerTest {
+
+  @ParameterizedTest
+  @MethodSource
+  void plainCharactersAreSkipped(StructuralScanner scanner, String text, int expected) {
+    var buffer = ("<" + text).toCharArray();
+
+    var actual = scanner.skipPlain(buffer, 1, buffer.length, ',');
+    assertThat(actual).isEqualTo(expected + 1);
+  }
+
+  static Stream<Arguments> plainCharactersAreSkipped() {
+    var long64 = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ!?";
+    return scannersProvider().stream()
+        .flatMap(
+            scanner ->
+                Stream.of(
+                    Arguments.of(scanner, "", 0),
+                    Arguments.of(scanner, "abc", 3),
+                    Arguments.of(scanner, "abc,def", 3),
+                    Arguments.of(scanner, "abc def", 3),
+                    Arguments.of(scanner, "abc\"def", 3),
+                    Arguments.of(scanner, "abc\u3042def", 3),
+                    Arguments.of(scanner, "abc\tdef", 3),
+                    Arguments.of(scanner, long64 + long64, 128),
+                    Arguments.of(scanner, long64 + "\r\n", 64),
+                    Arguments.of(scanner, long64 + "~\u007f", 65)));
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void escapedContentIsAppendedUntilSpecialCharacter(
+      StructuralScanner scanner, String text, String expectedContent, int expected) {
+    var buffer = text.toCharArray();
+    var sb = new StringBuilder();
+
+    var actual = scanner.appendEscaped(buffer, 0, buffer.length, sb);
+    assertThat(actual).isEqualTo(expected);
+    assertThat(sb).hasToString(expectedContent);
+  }
+
+  static Stream<Arguments> escapedContentIsAppendedUntilSpecialCharacter() {
+    var long64 = "0123456789abcdefghijklmnopqrstuvwxyz, ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    return scannersProvider().stream()
+        .flatMap(
+            scanner ->
+                Stream.of(
+                    Arguments.of(scanner, "", "", 0),
+                    Arguments.of(scanner, "a, b", "a, b", 4),
+                    Arguments.of(scanner, "a\"b", "a", 1),
+                    Arguments.of(scanner, "a\"\"b\"c", "a\"b", 4),
+                    Arguments.of(scanner, "a\"", "a", 1),
+                    Arguments.of(scanner, "a\rb", "a", 1),
+                    Arguments.of(scanner, "a\nb", "a", 1),
+                    Arguments.of(scanner, "a\ud800\udc0f", "a", 1),
+                    Arguments.of(scanner, long64 + long64, long64 + long64, 128),
+                    Arguments.of(scanner, long64 + "\"\"" + long64, long64 + "\"" + long64, 130),
+                    Arguments.of(scanner, long64 + "\",a", long64, 64)));
+  }
+
+  private static List<StructuralScanner> scannersProvider() {
+    return List.of(new ScalarStructuralScanner(), StructuralScanners.getInstance());
+  }
+}
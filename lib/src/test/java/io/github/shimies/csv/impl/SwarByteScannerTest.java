@@ -0,0 +1,67 @@
+package io.github.shimies.csv.impl;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.Stream;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+/** Test suite for {@link SwarByteScanner}. */
+public class SwarByteScannerTest {
+
+  @ParameterizedTest
+  @MethodSource
+  void plainBytesAreSkipped(String text, int expected) {
+    var scanner = new SwarByteScanner(',', false);
+    var buffer = ("<" + text).getBytes(StandardCharsets.ISO_8859_1);
+
+    var actual = scanner.skipPlain(buffer, 1, buffer.length);
+    assertThat(actual).isEqualTo(expected + 1);
+  }
+
+  static Stream<Arguments> plainBytesAreSkipped() {
+    var long16 = "0123456789abcdef";
+    return Stream.of(
+        Arguments.of("", 0),
+        Arguments.of("abc", 3),
+        Arguments.of("abc,def", 3),
+        Arguments.of(long16 + ",", 16),
+        Arguments.of(long16 + "\"", 16),
+        Arguments.of(long16 + " ", 16),
+        Arguments.of(long16 + "\t", 16),
+        Arguments.of(long16 + "\u007f", 16),
+        Arguments.of(long16 + "\u00e9", 16),
+        Arguments.of(long16 + "~!abcd\r\n", 22),
+        Arguments.of(long16 + long16, 32));
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void escapedContentIsAppendedUntilSpecialByte(
+      boolean isAsciiOnly, String text, String expectedContent, int expected) {
+    var scanner = new SwarByteScanner(',', isAsciiOnly);
+    var buffer = text.getBytes(StandardCharsets.ISO_8859_1);
+    var sb = new StringBuilder();
+
+    var actual = scanner.appendEscaped(buffer, 0, buffer.length, sb);
+    assertThat(actual).isEqualTo(expected);
+    assertThat(sb).hasToString(expectedContent);
+  }
+
+  static Stream<Arguments> escapedContentIsAppendedUntilSpecialByte() {
+    var long16 = "0123456789, cdef";
+    return Stream.of(
+        Arguments.of(false, "", "", 0),
+        Arguments.of(false, "a, b", "a, b", 4),
+        Arguments.of(false, "a\"b", "a", 1),
+        Arguments.of(false, "a\"\"b\"c", "a\"b", 4),
+        Arguments.of(false, "a\"", "a", 1),
+        Arguments.of(false, long16 + "\r", long16, 16),
+        Arguments.of(false, long16 + "\n", long16, 16),
+        Arguments.of(false, long16 + "\"\"" + long16, long16 + "\"" + long16, 34),
+        Arguments.of(false, long16 + "\u00e9\"", long16 + "\u00e9", 17),
+        Arguments.of(true, long16 + "\u00e9\"", long16, 16));
+  }
+}
@@ -0,0 +1,61 @@
+package io.github.shimies.csv.impl;
+
+import static io.github.shimies.csv.impl.TransitionTable.*;
+import static org.assertj.core.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+/** Test suite for {@link TransitionTable}. */
+public class TransitionTableTest {
+
+  @Test
+  void delimiterTakesPrecedenceOverOtherClasses() {
+    var classes = classesOfAscii('\t');
+
+    assertThat(classes['\t']).isEqualTo((byte) C_DELIM);
+    assertThat(classes[' ']).isEqualTo((byte) C_SPACE);
+    assertThat(classes[',']).isEqualTo((byte) C_LETTER);
+    assertThat(classes['"']).isEqualTo((byte) C_QUOTE);
+    assertThat(classes['\r']).isEqualTo((byte) C_CR);
+    assertThat(classes['\n']).isEqualTo((byte) C_LF);
+    assertThat(classOf(-1, '\t')).isEqualTo(C_EOF);
+    assertThat(classOf(' ', '\t')).isEqualTo(C_SPACE);
+    assertThat(classOf(0x20bb7, 0x20bb7)).isEqualTo(C_DELIM);
+  }
+
+  @Test
+  void emptyFieldAtEndOfRecordIsRejectedUnlessAllowed() {
+    assertThat(actionOf(of(false, false), S_FIELD_START, C_LF)).isEqualTo(A_ERROR_EMPTY_FIELD);
+    assertThat(actionOf(of(true, false), S_FIELD_START, C_LF)).isEqualTo(A_END_RECORD);
+    assertThat(actionOf(of(false, false), S_NON_ESCAPED, C_EOF)).isEqualTo(A_END_RECORD);
+  }
+
+  @Test
+  void spacesAroundEscapedFieldAreRejectedUnlessAllowed() {
+    assertThat(nextOf(of(false, false), S_FIELD_START, C_SPACE)).isEqualTo(S_NON_ESCAPED);
+    assertThat(nextOf(of(false, true), S_FIELD_START, C_SPACE)).isEqualTo(S_LEADING_BLANK);
+    assertThat(actionOf(of(false, true), S_LEADING_BLANK, C_QUOTE)).isEqualTo(A_OPEN_QUOTE);
+    assertThat(actionOf(of(false, false), S_QUOTE_IN_ESCAPED, C_SPACE))
+        .isEqualTo(A_ERROR_AFTER_ESCAPED);
+    assertThat(actionOf(of(false, true), S_QUOTE_IN_ESCAPED, C_SPACE)).isEqualTo(A_SKIP);
+    assertThat(actionOf(of(false, true), S_ESCAPED_END, C_QUOTE)).isEqualTo(A_ERROR_AFTER_ESCAPED);
+  }
+
+  @Test
+  void pairOfDoubleQuotesIsUnescaped() {
+    var table = of(false, false);
+
+    assertThat(actionOf(table, S_ESCAPED, C_QUOTE)).isEqualTo(A_SKIP);
+    assertThat(nextOf(table, S_ESCAPED, C_QUOTE)).isEqualTo(S_QUOTE_IN_ESCAPED);
+    assertThat(actionOf(table, S_QUOTE_IN_ESCAPED, C_QUOTE)).isEqualTo(A_APPEND);
+    assertThat(nextOf(table, S_QUOTE_IN_ESCAPED, C_QUOTE)).isEqualTo(S_ESCAPED);
+  }
+
+  private static int actionOf(byte[] table, int state, int characterClass) {
+    return table[state << CLASS_BITS | characterClass] >>> ACTION_SHIFT;
+  }
+
+  private static int nextOf(byte[] table, int state, int characterClass) {
+    return table[state << CLASS_BITS | characterClass] & STATE_MASK;
+  }
+}